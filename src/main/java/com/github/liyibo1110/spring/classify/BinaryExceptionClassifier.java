@@ -83,7 +83,7 @@ public class BinaryExceptionClassifier extends SubclassClassifier<Throwable, Boo
         if(classified.equals(this.getDefault())) { // 命中规则是：只要cause链中有一层命中“非默认value”，就立刻采用这个结果
             Throwable cause = classifiable;
             do {
-                if(this.getClassified().containsKey(cause.getCause()))
+                if(this.getClassified().containsKey(cause.getClass()))
                     return classified;  // 找到了
                 cause = cause.getCause();   // 继续找下一层cause
                 classified = super.classify(cause);
@@ -73,8 +73,8 @@ public class SubclassClassifier<T, C> implements Classifier<T, C> {
 
         if(value == null)
             value = this.defaultValue;
-        
-        return null;
+
+        return value;
     }
 
     final public C getDefault() {
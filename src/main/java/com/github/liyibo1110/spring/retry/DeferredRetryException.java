@@ -0,0 +1,23 @@
+package com.github.liyibo1110.spring.retry;
+
+/**
+ * 原地重试已经用完，但policy要求稍后再延迟重试（例如TieredRetryPolicy.thenDefer），
+ * cause是最后一次的异常，调用线程收到后应该交给DeferredRetryHandler之类的组件重新提交，而不是当成最终失败
+ * @author liyibo
+ * @date 2026-10-20 01:00
+ */
+public class DeferredRetryException extends RetryException {
+    private final int attempts;
+
+    public DeferredRetryException(String msg, Throwable cause, int attempts) {
+        super(msg, cause);
+        this.attempts = attempts;
+    }
+
+    /**
+     * 本轮原地执行的次数
+     */
+    public int getAttempts() {
+        return this.attempts;
+    }
+}
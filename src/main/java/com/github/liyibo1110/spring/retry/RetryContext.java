@@ -48,6 +48,17 @@ public interface RetryContext extends AttributeAccessor {
      */
     String MAX_ATTEMPTS = "context.max-attempts";
 
+    /**
+     * 对于有总时长限制的策略（例如TimeoutRetryPolicy），表示整个retry过程的截止时间（System.currentTimeMillis），
+     * backoff可以据此避免等待到截止时间之后
+     */
+    String DEADLINE = "context.deadline";
+
+    /**
+     * 如果原地重试已经用完，但应该交给延迟重试（抛出DeferredRetryException），则为非空（且为真）
+     */
+    String DEFERRED = "context.deferred";
+
     /**
      * 设置并表明不应再尝试当前的RetryCallback了
      */
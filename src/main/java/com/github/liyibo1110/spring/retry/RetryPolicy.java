@@ -31,6 +31,14 @@ public interface RetryPolicy extends Serializable {
      */
     void registerThrowable(RetryContext context, Throwable throwable);
 
+    /**
+     * 每次尝试结束后（无论成功还是失败）调用1次，传入本次尝试的耗时（纳秒，来自System.nanoTime）。
+     * 默认不关心耗时，需要根据调用快慢做决策的policy（例如熔断器）可以覆盖
+     */
+    default void registerDuration(RetryContext context, long durationNanos) {
+
+    }
+
     default int getMaxAttempts() {
         return NO_MAXIMUM_ATTEMPTS_SET;
     }
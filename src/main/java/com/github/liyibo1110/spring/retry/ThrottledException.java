@@ -0,0 +1,22 @@
+package com.github.liyibo1110.spring.retry;
+
+import java.time.Duration;
+
+/**
+ * 下游已经发出了过载信号（ThrottleGate处于关闭状态），本次执行没有调用下游就直接结束了，
+ * 它不算一次失败的尝试，不经过retry policy、backoff和recovery，而是直接抛给调用方，getRetryAfter是gate剩余的关闭时间
+ * @author liyibo
+ * @date 2026-10-19 19:40
+ */
+public class ThrottledException extends RetryException {
+    private final Duration retryAfter;
+
+    public ThrottledException(String msg, Duration retryAfter) {
+        super(msg);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return this.retryAfter;
+    }
+}
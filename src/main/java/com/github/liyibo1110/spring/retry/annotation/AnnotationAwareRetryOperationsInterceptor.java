@@ -5,19 +5,26 @@ import com.github.liyibo1110.spring.retry.RetryListener;
 import com.github.liyibo1110.spring.retry.RetryPolicy;
 import com.github.liyibo1110.spring.retry.backoff.BackOffPolicy;
 import com.github.liyibo1110.spring.retry.backoff.BackOffPolicyBuilder;
+import com.github.liyibo1110.spring.retry.backoff.ExceptionClassifierBackOffPolicy;
+import com.github.liyibo1110.spring.retry.backoff.Jitter;
 import com.github.liyibo1110.spring.retry.backoff.NoBackOffPolicy;
 import com.github.liyibo1110.spring.retry.backoff.Sleeper;
+import com.github.liyibo1110.spring.retry.interceptor.ExpressionKeyGenerator;
 import com.github.liyibo1110.spring.retry.interceptor.FixedKeyGenerator;
 import com.github.liyibo1110.spring.retry.interceptor.MethodArgumentsKeyGenerator;
 import com.github.liyibo1110.spring.retry.interceptor.MethodInvocationRecoverer;
 import com.github.liyibo1110.spring.retry.interceptor.NewMethodArgumentsIdentifier;
 import com.github.liyibo1110.spring.retry.interceptor.RetryInterceptorBuilder;
+import com.github.liyibo1110.spring.retry.interceptor.RetryOperationsInterceptor;
 import com.github.liyibo1110.spring.retry.policy.CircuitBreakerRetryPolicy;
 import com.github.liyibo1110.spring.retry.policy.ExpressionRetryPolicy;
+import com.github.liyibo1110.spring.retry.policy.LruRetryContextCache;
 import com.github.liyibo1110.spring.retry.policy.MapRetryContextCache;
 import com.github.liyibo1110.spring.retry.policy.RetryContextCache;
 import com.github.liyibo1110.spring.retry.policy.SimpleRetryPolicy;
 import com.github.liyibo1110.spring.retry.support.Args;
+import com.github.liyibo1110.spring.retry.support.CircuitBreakerRegistry;
+import com.github.liyibo1110.spring.retry.support.ThrottleGateRegistry;
 import com.github.liyibo1110.spring.retry.support.RetrySynchronizationManager;
 import com.github.liyibo1110.spring.retry.support.RetryTemplate;
 import org.aopalliance.intercept.MethodInterceptor;
@@ -33,6 +40,12 @@ import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.expression.Expression;
 import org.springframework.expression.common.TemplateParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.ast.MethodReference;
+import org.springframework.expression.spel.ast.PropertyOrFieldReference;
+import org.springframework.expression.spel.standard.SpelExpression;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.util.ConcurrentReferenceHashMap;
@@ -43,12 +56,24 @@ import javax.naming.OperationNotSupportedException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * 用于解析正在调用method上面的retry元数据的拦截器，并委托给适当的RetryOperationsInterceptor组件进行处理
@@ -62,14 +87,23 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public class AnnotationAwareRetryOperationsInterceptor implements IntroductionInterceptor, BeanFactoryAware {
     private static final TemplateParserContext PARSER_CONTEXT = new TemplateParserContext();
-    private static final SpelExpressionParser PARSER = new SpelExpressionParser();
+    /** 运行时表达式每次获取属性都会计算，使用MIXED编译模式，达到阈值后编译成字节码，失败时退回解释执行 */
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, AnnotationAwareRetryOperationsInterceptor.class.getClassLoader()));
     private static final MethodInterceptor NULL_INTERCEPTOR = methodInvocation -> {
         throw new OperationNotSupportedException("Not supported");
     };
-    private final StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
+    /** 所有表达式共享，配置完成后只替换引用不修改内容，并发计算时只读 */
+    private volatile StandardEvaluationContext evaluationContext = ExpressionRetryPolicy.createEvaluationContext(null);
 
-    /** Object -> Method -> MethodInterceptor的双层映射缓存 */
-    private final ConcurrentReferenceHashMap<Object, ConcurrentMap<Method, MethodInterceptor>> delegates = new ConcurrentReferenceHashMap<>();
+    /**
+     * target的Class -> Method -> MethodInterceptor的双层映射缓存，
+     * 拦截器只和类有关（recoverer在调用时才绑定target），所以同一个类的所有实例（例如prototype bean）共享同一组拦截器。
+     * 不用ClassValue：它的值（Method、拦截器）强引用了类本身，会让类和类加载器无法卸载（JDK-8136353），
+     * ConcurrentReferenceHashMap整个entry都是软引用，不会阻止类卸载，同时不会像弱引用那样在每次GC时丢掉正在使用的拦截器
+     */
+    private final ConcurrentReferenceHashMap<Class<?>, ConcurrentMap<Method, MethodInterceptor>> delegates =
+            new ConcurrentReferenceHashMap<>();
 
     private RetryContextCache retryContextCache = new MapRetryContextCache();
 
@@ -83,6 +117,33 @@ public class AnnotationAwareRetryOperationsInterceptor implements IntroductionIn
 
     private RetryListener[] globalListeners;
 
+    /** 具名熔断器的注册表，没有设置时每个拦截器（即每个RetryConfiguration）独享一个，不使用进程级的默认实例 */
+    private CircuitBreakerRegistry circuitBreakerRegistry = new CircuitBreakerRegistry();
+
+    private ThrottleGateRegistry throttleGateRegistry;
+
+    /** 规范化后的配置 -> 共享的实例，见configKey */
+    private final ConcurrentMap<List<Object>, RetryTemplate> sharedTemplates = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<List<Object>, RetryPolicy> sharedRetryPolicies = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<List<Object>, BackOffPolicy> sharedBackOffPolicies = new ConcurrentHashMap<>();
+
+    /** 异步返回值方法的重试调度器，没有设置时使用共享的默认调度器 */
+    private ScheduledExecutorService asyncScheduler;
+
+    /** 异步重试中backoff到期之后执行下一次尝试的executor，没有设置时使用ForkJoinPool.commonPool() */
+    private Executor asyncExecutor;
+
+    /** 运行时表达式计算结果的缓存时间（纳秒），小于等于0表示不缓存 */
+    private volatile long expressionRefreshNanos = TimeUnit.MILLISECONDS.toNanos(1000);
+
+    /** 表达式缓存的代数，配置变更时加1，之前缓存的结果全部失效 */
+    private final AtomicLong expressionGeneration = new AtomicLong();
+
+    /** 用来给引用了args的表达式分配RetryContext中的attribute名称 */
+    private final AtomicInteger expressionIds = new AtomicInteger();
+
     public void setSleeper(Sleeper sleeper) {
         this.sleeper = sleeper;
     }
@@ -91,6 +152,33 @@ public class AnnotationAwareRetryOperationsInterceptor implements IntroductionIn
         this.retryContextCache = retryContextCache;
     }
 
+    public void setCircuitBreakerRegistry(CircuitBreakerRegistry circuitBreakerRegistry) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+    }
+
+    public void setExpressionRefreshInterval(long refreshInterval) {
+        this.expressionRefreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshInterval);
+    }
+
+    /**
+     * 让所有缓存的表达式结果失效（配置发生变化时调用）
+     */
+    public void refreshExpressions() {
+        this.expressionGeneration.incrementAndGet();
+    }
+
+    public void setAsyncScheduler(ScheduledExecutorService asyncScheduler) {
+        this.asyncScheduler = asyncScheduler;
+    }
+
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    public void setThrottleGateRegistry(ThrottleGateRegistry throttleGateRegistry) {
+        this.throttleGateRegistry = throttleGateRegistry;
+    }
+
     public void setKeyGenerator(MethodArgumentsKeyGenerator methodArgumentsKeyGenerator) {
         this.methodArgumentsKeyGenerator = methodArgumentsKeyGenerator;
     }
@@ -108,7 +196,7 @@ public class AnnotationAwareRetryOperationsInterceptor implements IntroductionIn
     @Override
     public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
         this.beanFactory = beanFactory;
-        this.evaluationContext.setBeanResolver(new BeanFactoryResolver(beanFactory));
+        this.evaluationContext = ExpressionRetryPolicy.createEvaluationContext(new BeanFactoryResolver(beanFactory));
     }
 
     /**
@@ -124,17 +212,23 @@ public class AnnotationAwareRetryOperationsInterceptor implements IntroductionIn
      */
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
-        MethodInterceptor delegate = this.getDelegate(invocation.getThis(), invocation.getMethod());
+        MethodInterceptor delegate = this.getDelegate(invocation.getThis().getClass(), invocation.getMethod());
         if(delegate == null)    // 没找到合适的拦截器，直接调用原始方法即可
             return invocation.proceed();
         else
             return delegate.invoke(invocation);
     }
 
-    private MethodInterceptor getDelegate(Object target, Method method) {
-        ConcurrentMap<Method, MethodInterceptor> cachedMethods = this.delegates.get(target);
-        if(cachedMethods == null)
-            cachedMethods = new ConcurrentHashMap<>();
+    /**
+     * 预先解析target上method对应的拦截器（和第一次调用时的解析完全相同，结果放入同一个cache），返回是否需要拦截
+     */
+    boolean resolveDelegate(Object target, Method method) {
+        return this.getDelegate(target.getClass(), method) != null;
+    }
+
+    private MethodInterceptor getDelegate(Class<?> targetClass, Method method) {
+        ConcurrentMap<Method, MethodInterceptor> cachedMethods = this.delegates.computeIfAbsent(targetClass,
+                k -> new ConcurrentHashMap<>());
         MethodInterceptor delegate = cachedMethods.get(method);
         if(delegate == null) {  // cache里找不到，只能尝试匹配
             MethodInterceptor interceptor = NULL_INTERCEPTOR; // 默认结果是没找到
@@ -143,29 +237,27 @@ public class AnnotationAwareRetryOperationsInterceptor implements IntroductionIn
             if(retryable == null)   // 在method所属的类上面继续找Retryable注解（不能同时有Recover注解，因为recover不能也retry）
                 retryable = this.classLevelAnnotation(method, Retryable.class);
             if(retryable == null)
-                retryable = this.findAnnotationOnTarget(target, method, Retryable.class);
+                retryable = this.findAnnotationOnTarget(targetClass, method, Retryable.class);
             if(retryable != null) { // 找到注解了
                 if(StringUtils.hasText(retryable.interceptor()))    // 如果标明了用哪个拦截器就直接用
                     interceptor = this.beanFactory.getBean(retryable.interceptor(), MethodInterceptor.class);
                 else if(retryable.stateful())   // 如果标明了要用stateful模式的拦截器
-                    interceptor = this.getStatefulInterceptor(target, method, retryable);
+                    interceptor = this.getStatefulInterceptor(targetClass, method, retryable);
                 else    // 否则只能用stateless模式的拦截器了
-                    interceptor = this.getStatelessInterceptor(target, method, retryable);
+                    interceptor = this.getStatelessInterceptor(targetClass, method, retryable);
             }
             cachedMethods.putIfAbsent(method, interceptor); // 尝试放入cache，下次不用再匹配了
             delegate = cachedMethods.get(method);
         }
-        // cache里有，或者匹配到了
-        this.delegates.putIfAbsent(target, cachedMethods);
         return delegate == NULL_INTERCEPTOR ? null : delegate;
     }
 
     /**
      * 在target自身的同名Method里面寻找特定注解（也会在target类级别上寻找）
      */
-    private <A extends Annotation> A findAnnotationOnTarget(Object target, Method method, Class<A> annotation) {
+    private <A extends Annotation> A findAnnotationOnTarget(Class<?> targetClass, Method method, Class<A> annotation) {
         try {
-            Method targetMethod = target.getClass().getMethod(method.getName(), method.getParameterTypes());
+            Method targetMethod = targetClass.getMethod(method.getName(), method.getParameterTypes());
             A retryable = AnnotatedElementUtils.findMergedAnnotation(targetMethod, annotation);
             if(retryable == null)
                 retryable = classLevelAnnotation(targetMethod, annotation);
@@ -188,43 +280,135 @@ public class AnnotationAwareRetryOperationsInterceptor implements IntroductionIn
     /**
      * 尝试匹配stateless的拦截器
      */
-    private MethodInterceptor getStatelessInterceptor(Object target, Method method, Retryable retryable) {
-        RetryTemplate template = createTemplate(retryable.listeners());
-        template.setRetryPolicy(this.getRetryPolicy(retryable, true));
-        template.setBackOffPolicy(getBackoffPolicy(retryable.backoff(), true));
-        return RetryInterceptorBuilder.stateless()
+    private MethodInterceptor getStatelessInterceptor(Class<?> targetClass, Method method, Retryable retryable) {
+        List<Object> key = this.configKey(retryable);
+        RetryTemplate template;
+        if(key != null && retryable.listeners().length == 0 && this.throttleGateRegistry == null) {
+            // template本身也没有和方法相关的东西（listener和闸门），可以直接共享
+            template = this.sharedTemplates.computeIfAbsent(key, k -> this.createStatelessTemplate(retryable, k));
+        }else {
+            template = this.createStatelessTemplate(retryable, key);
+            this.throttleGate(template, method, retryable.label());
+        }
+        RetryOperationsInterceptor interceptor = RetryInterceptorBuilder.stateless()
                 .retryOperations(template)
                 .label(retryable.label())
-                .recoverer(this.getRecoverer(target, method))
+                .recoverer(this.getRecoverer(targetClass, method))
                 .build();
+        if(RetryOperationsInterceptor.isAsyncReturnType(method.getReturnType())) {  // 按future的完成结果重试
+            interceptor.setAsyncScheduler(this.asyncScheduler != null ? this.asyncScheduler : DefaultAsyncScheduler.INSTANCE);
+            if(this.asyncExecutor != null)
+                interceptor.setAsyncExecutor(this.asyncExecutor);
+        }
+        return interceptor;
+    }
+
+    /**
+     * 默认的异步重试调度器，第一次用到时才创建，只负责backoff的计时，到期后把下一次尝试交给asyncExecutor执行
+     */
+    private static final class DefaultAsyncScheduler {
+        static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "spring-retry-async");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * key不为null时，相同配置的方法共享同一个RetryPolicy和BackOffPolicy（状态都在RetryContext / BackOffContext里，实例本身无状态）
+     */
+    private RetryTemplate createStatelessTemplate(Retryable retryable, List<Object> key) {
+        RetryTemplate template = createTemplate(retryable.listeners());
+        if(key != null) {
+            template.setRetryPolicy(this.sharedRetryPolicies.computeIfAbsent(key, k -> this.getRetryPolicy(retryable, true)));
+            template.setBackOffPolicy(this.sharedBackOffPolicies.computeIfAbsent(key,
+                    k -> this.getBackoffPolicy(retryable.backoff(), true)));
+        }else {
+            template.setRetryPolicy(this.getRetryPolicy(retryable, true));
+            template.setBackOffPolicy(this.getBackoffPolicy(retryable.backoff(), true));
+        }
+        return template;
+    }
+
+    /**
+     * 把决定RetryPolicy和BackOffPolicy的配置规范化成一个值，相等说明生成的policy完全相同，
+     * 例如@Backoff(100)和@Backoff(delay = 100)，以及异常类型的不同书写顺序。
+     * 只有全部是字面量的配置才能共享，带表达式（运行时计算或者引用了args）的返回null
+     */
+    private List<Object> configKey(Retryable retryable) {
+        Backoff backoff = retryable.backoff();
+        if(StringUtils.hasText(retryable.maxAttemptsExpression()) || StringUtils.hasText(retryable.exceptionExpression())
+                || StringUtils.hasText(backoff.delayExpression()) || StringUtils.hasText(backoff.maxDelayExpression())
+                || StringUtils.hasText(backoff.multiplierExpression()) || StringUtils.hasText(backoff.randomExpression()))
+            return null;
+        Map<String, Object> attrs = AnnotationUtils.getAnnotationAttributes(retryable);
+        Class<?>[] includes = (Class<?>[])attrs.get("value");
+        if(includes.length == 0)
+            includes = (Class<?>[])attrs.get("retryFor");
+        return List.of(new HashSet<>(Arrays.asList(includes)),
+                new HashSet<>(Arrays.asList((Class<?>[])attrs.get("noRetryFor"))),
+                new HashSet<>(Arrays.asList((Class<?>[])attrs.get("notRecoverable"))),
+                retryable.maxAttempts(),
+                backoff.delay() == 0 ? backoff.value() : backoff.delay(),
+                backoff.maxDelay(),
+                backoff.multiplier(),
+                backoff.multiplier() > 0 && backoff.random(),
+                backoff.jitter(),
+                List.of(backoff.exceptionBackoffs()));
     }
 
     /**
      * 尝试匹配stateful的拦截器
      */
-    private MethodInterceptor getStatefulInterceptor(Object target, Method method, Retryable retryable) {
+    private MethodInterceptor getStatefulInterceptor(Class<?> targetClass, Method method, Retryable retryable) {
         RetryTemplate template = createTemplate(retryable.listeners());
         template.setRetryContextCache(this.retryContextCache);
 
         CircuitBreaker circuit = AnnotatedElementUtils.findMergedAnnotation(method, CircuitBreaker.class);
         if(circuit == null)
-            circuit = this.findAnnotationOnTarget(target, method, CircuitBreaker.class);
+            circuit = this.findAnnotationOnTarget(targetClass, method, CircuitBreaker.class);
         if(circuit != null) {
             // 生成带熔断的stateful拦截器
             RetryPolicy policy = this.getRetryPolicy(circuit, false);
             CircuitBreakerRetryPolicy breaker = new CircuitBreakerRetryPolicy(policy);
             this.openTimeout(breaker, circuit);
             this.resetTimeout(breaker, circuit);
+            this.slowCall(breaker, circuit);
+            breaker.setRampUpWindow(circuit.rampUpWindow());
+            breaker.setRampUpStrategy(circuit.rampUpStrategy());
             template.setRetryPolicy(breaker);
             template.setBackOffPolicy(new NoBackOffPolicy());
             template.setThrowLastExceptionOnExhausted(circuit.throwLastExceptionOnExhausted());
             String label = circuit.label();
             if(!StringUtils.hasText(label))
                 label = method.toGenericString();
+            MethodArgumentsKeyGenerator keyGenerator = new FixedKeyGenerator("circuit");
+            if(StringUtils.hasText(circuit.key())) {
+                // 按key区分熔断器，key的数量不可控，所以要用有界且会淘汰的cache，不能和其它方法共享
+                keyGenerator = new ExpressionKeyGenerator(this.parse(circuit.key()),
+                        this.evaluationContext.getBeanResolver(), "circuit");
+                int maxKeys = circuit.maxKeys() == -1 ? LruRetryContextCache.DEFAULT_CAPACITY : circuit.maxKeys();
+                template.setRetryContextCache(new LruRetryContextCache(maxKeys));
+            }
+            boolean shared = StringUtils.hasText(circuit.name());
+            if(shared) {
+                // 具名熔断器：policy和状态都交给注册表，key只和名称（以及key表达式）有关，和方法无关
+                String name = circuit.name();
+                if(circuit.maxKeys() != -1)   // 状态在注册表的cache里，maxKeys不会生效
+                    throw new IllegalStateException("@CircuitBreaker(name = \"" + name + "\") cannot be combined with "
+                            + "maxKeys, the capacity of a named circuit breaker comes from its CircuitBreakerRegistry: " + method);
+                CircuitBreakerRegistry registry = this.circuitBreakerRegistry;
+                template.setRetryPolicy(registry.circuitBreaker(name, () -> breaker));
+                template.setRetryContextCache(registry.getRetryContextCache());
+                Object sharedKey = registry.getKey(name);
+                MethodArgumentsKeyGenerator perKey = StringUtils.hasText(circuit.key()) ? keyGenerator : null;
+                keyGenerator = perKey == null ? args -> sharedKey : args -> Arrays.asList(sharedKey, perKey.getKey(args));
+            }
             return RetryInterceptorBuilder.circuitBreaker()
-                    .keyGenerator(new FixedKeyGenerator("circuit"))
+                    .keyGenerator(keyGenerator)
+                    .useRawKey(shared)
                     .retryOperations(template)
-                    .recoverer(getRecoverer(target, method))
+                    .recoverer(this.getRecoverer(targetClass, method))
                     .label(label)
                     .build();
         }
@@ -232,16 +416,28 @@ public class AnnotationAwareRetryOperationsInterceptor implements IntroductionIn
         RetryPolicy policy = this.getRetryPolicy(retryable, false);
         template.setRetryPolicy(policy);
         template.setBackOffPolicy(this.getBackoffPolicy(retryable.backoff(), false));
+        this.throttleGate(template, method, retryable.label());
         String label = retryable.label();
         return RetryInterceptorBuilder.stateful()
                 .keyGenerator(this.methodArgumentsKeyGenerator)
                 .newMethodArgumentsIdentifier(this.newMethodArgumentsIdentifier)
                 .retryOperations(template)
                 .label(label)
-                .recoverer(this.getRecoverer(target, method))
+                .recoverer(this.getRecoverer(targetClass, method))
                 .build();
     }
 
+    /**
+     * 容器中有ThrottleGateRegistry时，按label（没有则用方法签名）为template设置暂停闸门
+     */
+    private void throttleGate(RetryTemplate template, Method method, String label) {
+        if(this.throttleGateRegistry == null)
+            return;
+        if(!StringUtils.hasText(label))
+            label = method.toGenericString();
+        template.setThrottleGate(this.throttleGateRegistry.gate(label));
+    }
+
     /**
      * 为CircuitBreakerRetryPolicy实例设置openTimeout参数
      * 1、从CircuitBreaker相应配置值获取
@@ -258,7 +454,7 @@ public class AnnotationAwareRetryOperationsInterceptor implements IntroductionIn
                     return;
                 }
             }else { // 不是template要嗲用evaluate计算实际的值
-                breaker.openTimeoutSupplier(() -> evaluate(parsed, Long.class, false));
+                breaker.openTimeoutSupplier(this.supplier(parsed, Long.class, false));
                 return;
             }
         }
@@ -282,7 +478,7 @@ public class AnnotationAwareRetryOperationsInterceptor implements IntroductionIn
                     return;
                 }
             }else { // 不是template要嗲用evaluate计算实际的值
-                breaker.resetTimeoutSupplier(() -> evaluate(parsed, Long.class, false));
+                breaker.resetTimeoutSupplier(this.supplier(parsed, Long.class, false));
                 return;
             }
         }
@@ -290,6 +486,31 @@ public class AnnotationAwareRetryOperationsInterceptor implements IntroductionIn
         breaker.setResetTimeout(circuit.resetTimeout());
     }
 
+    /**
+     * 为CircuitBreakerRetryPolicy实例设置慢调用熔断的相关参数
+     * 1、slowCallDurationThreshold从CircuitBreaker相应配置值获取，或者从相应表达式计算得出
+     * 2、slowCallRateThreshold和slowCallMinimumCalls直接从配置值获取
+     */
+    private void slowCall(CircuitBreakerRetryPolicy breaker, CircuitBreaker circuit) {
+        breaker.setSlowCallRateThreshold(circuit.slowCallRateThreshold());
+        breaker.setSlowCallMinimumCalls(circuit.slowCallMinimumCalls());
+        String expression = circuit.slowCallDurationThresholdExpression();
+        if(StringUtils.hasText(expression)) {
+            Expression parsed = this.parse(expression);
+            if(isTemplate(expression)) {
+                Long value = parsed.getValue(this.evaluationContext, Long.class);
+                if(value != null) {
+                    breaker.setSlowCallDurationThreshold(value);
+                    return;
+                }
+            }else {
+                breaker.slowCallDurationThresholdSupplier(this.supplier(parsed, Long.class, false));
+                return;
+            }
+        }
+        breaker.setSlowCallDurationThreshold(circuit.slowCallDurationThreshold());
+    }
+
     private RetryTemplate createTemplate(String[] listenersBeanNames) {
         RetryTemplate template = new RetryTemplate();
         if(listenersBeanNames.length > 0)
@@ -308,18 +529,40 @@ public class AnnotationAwareRetryOperationsInterceptor implements IntroductionIn
         return listeners;
     }
 
-    private MethodInvocationRecoverer<?> getRecoverer(Object target, Method method) {
-        if(target instanceof MethodInvocationRecoverer)
-            return (MethodInvocationRecoverer<?>)target;
+    private MethodInvocationRecoverer<?> getRecoverer(Class<?> targetClass, Method method) {
+        if(MethodInvocationRecoverer.class.isAssignableFrom(targetClass))   // target自己就是recoverer，调用时再绑定
+            return TargetRecoverer.INSTANCE;
         final AtomicBoolean foundRecoverable = new AtomicBoolean(false);
-        ReflectionUtils.doWithMethods(target.getClass(), candidate -> {
-            if(AnnotatedElementUtils.findMergedAnnotation(candidate, Recover.class) != null)
-                foundRecoverable.set(true);
-        });
+        List<Method> indexed = RetryIndex.get(targetClass).findRecoverMethods(targetClass);
+        if(indexed != null) {   // 有编译期索引时不需要反射扫描
+            foundRecoverable.set(!indexed.isEmpty());
+        }else {
+            ReflectionUtils.doWithMethods(targetClass, candidate -> {
+                if(AnnotatedElementUtils.findMergedAnnotation(candidate, Recover.class) != null)
+                    foundRecoverable.set(true);
+            });
+        }
         if(!foundRecoverable.get())
             return null;
         // 找到了Recover实现，要构造并返回MethodInvocationRecoverer的实现类
-        return new RecoverAnnotationRecoveryHandler<>(target, method);
+        return new RecoverAnnotationRecoveryHandler<>(targetClass, method);
+    }
+
+    /**
+     * 把recover委托给本次调用的target（target实现了MethodInvocationRecoverer）
+     */
+    private static final class TargetRecoverer implements MethodInvocationRecoverer<Object> {
+        private static final TargetRecoverer INSTANCE = new TargetRecoverer();
+
+        @Override
+        public Object recover(Object[] args, Throwable cause) {
+            throw new IllegalStateException("Target is required to recover", cause);
+        }
+
+        @Override
+        public Object recover(Object target, Object[] args, Throwable cause) {
+            return ((MethodInvocationRecoverer<?>)target).recover(args, cause);
+        }
     }
 
     /**
@@ -353,7 +596,7 @@ public class AnnotationAwareRetryOperationsInterceptor implements IntroductionIn
                     ? new ExpressionRetryPolicy(this.resolve(exceptionExpression)).withBeanFactory(this.beanFactory)
                     : new SimpleRetryPolicy();
             if(maxAttExpression != null)
-                simple.maxAttemptsSupplier(() -> this.evaluate(maxAttExpression, Integer.class, stateless));
+                simple.maxAttemptsSupplier(this.supplier(maxAttExpression, Integer.class, stateless));
             else
                 simple.setMaxAttempts(maxAttempts);
         }
@@ -371,7 +614,7 @@ public class AnnotationAwareRetryOperationsInterceptor implements IntroductionIn
                 simple = new SimpleRetryPolicy(maxAttempts, policyMap, true, retryNotExcluded);
             }
             if(maxAttExpression != null)
-                simple.maxAttemptsSupplier(() -> this.evaluate(maxAttExpression, Integer.class, stateless));
+                simple.maxAttemptsSupplier(this.supplier(maxAttExpression, Integer.class, stateless));
         }
         Class<? extends Throwable>[] noRecovery = (Class<? extends Throwable>[]) attrs.get("notRecoverable");
         if(noRecovery != null && noRecovery.length > 0)
@@ -427,35 +670,52 @@ public class AnnotationAwareRetryOperationsInterceptor implements IntroductionIn
                 }
             }
         }
-        return this.buildBackOff(min, parsedMinExp, max, parsedMaxExp, multiplier, parsedMultExp, isRandom, parsedRandomExp, stateless);
+        BackOffPolicy policy = this.buildBackOff(min, parsedMinExp, max, parsedMaxExp, multiplier, parsedMultExp,
+                isRandom, parsedRandomExp, backoff.jitter(), stateless);
+        if(backoff.exceptionBackoffs().length == 0)
+            return policy;
+        // 按异常类型选择backoff，没有匹配的使用上面的policy
+        Map<Class<? extends Throwable>, BackOffPolicy> policyMap = new LinkedHashMap<>();
+        for(BackoffFor backoffFor : backoff.exceptionBackoffs()) {
+            BackOffPolicy delegate = this.buildBackOff(backoffFor.delay(), null, backoffFor.maxDelay(), null,
+                    backoffFor.multiplier(), null, backoffFor.random(), null, backoffFor.jitter(), stateless);
+            for(Class<? extends Throwable> type : backoffFor.value())
+                policyMap.put(type, delegate);
+        }
+        ExceptionClassifierBackOffPolicy classifierPolicy = new ExceptionClassifierBackOffPolicy();
+        classifierPolicy.setDefaultPolicy(policy);
+        classifierPolicy.setPolicyMap(policyMap);
+        return classifierPolicy;
     }
 
     /**
      * 根据各参数值，生成最终的BackOff实现实例
      */
     private BackOffPolicy buildBackOff(long min, Expression minExp, long max, Expression maxExp, double multiplier,
-                                       Expression multExp, boolean isRandom, Expression randomExp, boolean stateless) {
+                                       Expression multExp, boolean isRandom, Expression randomExp, Jitter jitter,
+                                       boolean stateless) {
         BackOffPolicyBuilder builder = BackOffPolicyBuilder.newBuilder();
         if(minExp != null)
-            builder.delaySupplier(() -> this.evaluate(minExp, Long.class, stateless));
+            builder.delaySupplier(this.supplier(minExp, Long.class, stateless));
         else
             builder.delay(min);
 
         if(maxExp != null)
-            builder.maxDelaySupplier(() -> this.evaluate(maxExp, Long.class, stateless));
+            builder.maxDelaySupplier(this.supplier(maxExp, Long.class, stateless));
         else
             builder.maxDelay(max);
 
         if(multExp != null)
-            builder.multiplierSupplier(() -> this.evaluate(multExp, Double.class, stateless));
+            builder.multiplierSupplier(this.supplier(multExp, Double.class, stateless));
         else
             builder.multiplier(multiplier);
 
         if(randomExp != null)
-            builder.randomSupplier(() -> this.evaluate(randomExp, Boolean.class, stateless));
+            builder.randomSupplier(this.supplier(randomExp, Boolean.class, stateless));
         else
             builder.random(isRandom);
 
+        builder.jitter(jitter);
         builder.sleeper(this.sleeper);
         return builder.build();
     }
@@ -490,13 +750,104 @@ public class AnnotationAwareRetryOperationsInterceptor implements IntroductionIn
         if(stateless) {
             RetryContext context = RetrySynchronizationManager.getContext();
             if(context != null)
-                args = (Args)context.getAttribute("ARGS");
+                args = (Args)context.getAttribute(RetryOperationsInterceptor.METHOD_ARGS);
             if(args == null)
                 args = Args.NO_ARGS;
         }
         return expression.getValue(this.evaluationContext, args, type);
     }
 
+    /**
+     * 把运行时表达式包装成带缓存的Supplier，policy的getter每次调用都会用到它，不能每次都计算一遍SpEL：
+     * 1、引用了args的表达式：结果和本次执行的参数有关，在当前RetryContext里缓存，本次执行内只计算1次。
+     * 2、其它表达式：最多每expressionRefreshInterval毫秒计算1次，收到配置变更事件时立即失效
+     */
+    private <T> Supplier<T> supplier(Expression expression, Class<T> type, boolean stateless) {
+        if(stateless && referencesArgs(expression))
+            return new ExecutionCachedExpressionSupplier<>(expression, type,
+                    "retry.expression." + this.expressionIds.incrementAndGet());
+        return new RefreshingExpressionSupplier<>(expression, type, stateless);
+    }
+
+    /**
+     * 根据解析后的AST判断表达式是否引用了args（例如args[0]、#root.args），字符串里碰巧包含args的不算
+     */
+    private static boolean referencesArgs(Expression expression) {
+        if(expression instanceof SpelExpression spel)
+            return referencesArgs(spel.getAST());
+        return expression.getExpressionString().contains("args");   // 不是SpEL，只能保守判断
+    }
+
+    private static boolean referencesArgs(SpelNode node) {
+        if(node instanceof PropertyOrFieldReference reference && "args".equals(reference.getName()))
+            return true;
+        if(node instanceof MethodReference reference && "getArgs".equals(reference.getName()))
+            return true;
+        for(int i = 0; i < node.getChildCount(); i++) {
+            if(referencesArgs(node.getChild(i)))
+                return true;
+        }
+        return false;
+    }
+
+    private final class RefreshingExpressionSupplier<T> implements Supplier<T> {
+        private final Expression expression;
+        private final Class<T> type;
+        private final boolean stateless;
+        private volatile Snapshot<T> snapshot;
+
+        private RefreshingExpressionSupplier(Expression expression, Class<T> type, boolean stateless) {
+            this.expression = expression;
+            this.type = type;
+            this.stateless = stateless;
+        }
+
+        @Override
+        public T get() {
+            long refreshNanos = expressionRefreshNanos;
+            long generation = expressionGeneration.get();
+            long now = System.nanoTime();
+            Snapshot<T> current = this.snapshot;
+            if(refreshNanos > 0 && current != null && current.generation == generation
+                    && now - current.evaluatedAt < refreshNanos)
+                return current.value;
+            T value = evaluate(this.expression, this.type, this.stateless);
+            this.snapshot = new Snapshot<>(value, now, generation);
+            return value;
+        }
+    }
+
+    private record Snapshot<T>(T value, long evaluatedAt, long generation) {
+
+    }
+
+    private final class ExecutionCachedExpressionSupplier<T> implements Supplier<T> {
+        private final Expression expression;
+        private final Class<T> type;
+        private final String attribute;
+
+        private ExecutionCachedExpressionSupplier(Expression expression, Class<T> type, String attribute) {
+            this.expression = expression;
+            this.type = type;
+            this.attribute = attribute;
+        }
+
+        @Override
+        public T get() {
+            RetryContext context = RetrySynchronizationManager.getContext();
+            // 参数还不可用（例如第一次尝试之前的getMaxAttempts），按没有参数计算，但不能缓存
+            if(context == null || !context.hasAttribute(RetryOperationsInterceptor.METHOD_ARGS))
+                return evaluate(this.expression, this.type, true);
+            Object cached = context.getAttribute(this.attribute);
+            if(cached != null)
+                return this.type.cast(cached);
+            T value = evaluate(this.expression, this.type, true);
+            if(value != null)
+                context.setAttribute(this.attribute, value);
+            return value;
+        }
+    }
+
     /**
      * 解析特定的value，就是把表达式里面的${...}给替换掉
      */
@@ -1,5 +1,6 @@
 package com.github.liyibo1110.spring.retry.annotation;
 
+import com.github.liyibo1110.spring.retry.backoff.Jitter;
 import org.springframework.core.annotation.AliasFor;
 
 import java.lang.annotation.Documented;
@@ -15,6 +16,8 @@ import java.lang.annotation.Target;
  * 3、当设置了delay和maxDelay时，backoff会在两个值之间均匀分布
  * 4、使用了delay、maxDelay和multiplier函数，backoff时间会呈指数级增长，直到达到最大值
  * 5、如果设置了random，则每个延迟的乘数将从[1, 乘数-1]中的均匀分布中选取
+ * 6、如果设置了jitter，则按对应的抖动算法随机化每次的延迟
+ * 7、如果设置了exceptionBackoffs，则按最近一次异常的类型选择对应的backoff
  * @author liyibo
  * @date 2026-01-22 00:34
  */
@@ -60,4 +63,15 @@ public @interface Backoff {
     boolean random() default false;
 
     String randomExpression() default "";
+
+    /**
+     * 抖动算法，不为NONE时使用带抖动的指数backoff（delay为初始值，maxDelay为上限，multiplier未设置时为2），
+     * 此时random相关的配置被忽略
+     */
+    Jitter jitter() default Jitter.NONE;
+
+    /**
+     * 按异常类型单独指定的backoff（匹配最近一次异常，子类也算），没有匹配的使用本注解的配置
+     */
+    BackoffFor[] exceptionBackoffs() default {};
 }
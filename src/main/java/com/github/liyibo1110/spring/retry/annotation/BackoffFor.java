@@ -0,0 +1,34 @@
+package com.github.liyibo1110.spring.retry.annotation;
+
+import com.github.liyibo1110.spring.retry.backoff.Jitter;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 只能用在@Backoff的exceptionBackoffs里面，为特定的异常类型（及其子类）单独指定backoff，
+ * 各字段的含义和@Backoff里面的同名字段相同，没有匹配的异常使用@Backoff本身的配置
+ * @author liyibo
+ * @date 2026-10-19 23:45
+ */
+@Target({})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface BackoffFor {
+    /**
+     * 适用的异常类型
+     */
+    Class<? extends Throwable>[] value();
+
+    long delay() default 1000;
+
+    long maxDelay() default 0;
+
+    double multiplier() default 0;
+
+    boolean random() default false;
+
+    Jitter jitter() default Jitter.NONE;
+}
@@ -1,5 +1,6 @@
 package com.github.liyibo1110.spring.retry.annotation;
 
+import com.github.liyibo1110.spring.retry.policy.RampUpStrategy;
 import org.springframework.core.annotation.AliasFor;
 
 import java.lang.annotation.Documented;
@@ -62,9 +63,53 @@ public @interface CircuitBreaker {
 
     String openTimeoutExpression() default "";
 
+    /**
+     * 耗时超过这个值（毫秒）的调用算作慢调用，默认0表示不开启慢调用熔断
+     */
+    long slowCallDurationThreshold() default 0;
+
+    String slowCallDurationThresholdExpression() default "";
+
+    /**
+     * 统计窗口（openTimeout）内慢调用比例达到这个值（取值(0, 1]），就要开启熔断，
+     * 默认1.0（只有全部调用都慢才熔断），和CircuitBreakerRetryPolicy的默认值一致
+     */
+    double slowCallRateThreshold() default 1.0;
+
+    /**
+     * 统计窗口内至少要有这么多次调用，才会按慢调用比例判断是否熔断
+     */
+    int slowCallMinimumCalls() default 10;
+
     @AliasFor(annotation = Retryable.class)
     String exceptionExpression() default "";
 
+    /**
+     * 共享熔断器的名称，同一个CircuitBreakerRegistry中同名的所有方法（以及使用同一个注册表的RetryTemplateBuilder.circuitBreaker(name)）
+     * 共享同一个熔断器，熔断参数以第一个注册该名称的配置为准，默认为空，表示每个方法独立熔断
+     */
+    String name() default "";
+
+    /**
+     * 熔断关闭后的流量爬坡窗口（毫秒），窗口内按rampUpStrategy逐步提高放行比例，
+     * 没被放行的调用按熔断开启处理，默认0表示关闭后立刻全量放行
+     */
+    long rampUpWindow() default 0;
+
+    RampUpStrategy rampUpStrategy() default RampUpStrategy.LINEAR;
+
+    /**
+     * 区分熔断器的SpEL表达式，根对象是Args，也可以用#args变量，例如"#args[0].host"，
+     * 每个不同的计算结果对应一个独立的熔断器，默认为空，表示整个方法只有1个熔断器
+     */
+    String key() default "";
+
+    /**
+     * 配置了key时，最多同时保留多少个熔断器的状态，超出后淘汰最久未被访问的，-1表示使用LruRetryContextCache.DEFAULT_CAPACITY。
+     * 不能和name一起使用（显式写上任何值都会报错），具名熔断器的状态放在CircuitBreakerRegistry的cache里，容量由注册表决定
+     */
+    int maxKeys() default -1;
+
     /**
      * 当触发exhausted状态时，是否封装成ExhaustedException（为true则不封装）
      */
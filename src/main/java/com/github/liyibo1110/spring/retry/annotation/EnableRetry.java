@@ -33,4 +33,27 @@ public @interface EnableRetry {
     boolean proxyTargetClass() default false;
 
     int order() default Ordered.LOWEST_PRECEDENCE - 1;
+
+    /**
+     * 运行时（非template）表达式计算结果的缓存时间（毫秒），小于等于0表示每次使用都重新计算，
+     * 引用了args的表达式不受影响，它们的结果只在一次执行内缓存
+     */
+    long expressionRefreshInterval() default 1000;
+
+    /**
+     * 是否在所有单例创建完成之后，就预先为所有被代理bean的@Retryable方法解析好拦截器，
+     * 避免部署后的第一批请求承担注解合并、SpEL解析以及@Recover查找的开销
+     */
+    boolean eagerInitialization() default false;
+
+    /**
+     * 异步返回值方法重试时，负责backoff计时的ScheduledExecutorService的bean名称，
+     * 为空时使用内置的单线程调度器（不会按类型随便取容器里的某个ScheduledExecutorService）
+     */
+    String asyncScheduler() default "";
+
+    /**
+     * 异步返回值方法重试时，backoff到期之后执行下一次尝试的Executor的bean名称，为空时使用ForkJoinPool.commonPool()
+     */
+    String asyncExecutor() default "";
 }
@@ -4,21 +4,35 @@ import com.github.liyibo1110.spring.classify.SubclassClassifier;
 import com.github.liyibo1110.spring.retry.ExhaustedRetryException;
 import com.github.liyibo1110.spring.retry.RetryContext;
 import com.github.liyibo1110.spring.retry.interceptor.MethodInvocationRecoverer;
+import com.github.liyibo1110.spring.retry.interceptor.RetryOperationsInterceptor;
 import com.github.liyibo1110.spring.retry.support.RetrySynchronizationManager;
 import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
 
 /**
  * 基于Recover注解的recoverer实现
  * 职责是在可能多个Recover注解的方法中，选择最正确的那个（方法选择器）
+ * 只按类构造的实例不绑定target，可以被同一个类的所有实例共享，由拦截器在recover时传入本次调用的target。
+ * 选择结果只取决于异常类型和各个参数值的类型，所以按（异常类型，参数类型列表）缓存选中的方法和预先绑定的MethodHandle，
+ * 同一种失败反复recover时不再重复遍历候选方法和反射调用
  * @author liyibo
  * @date 2026-01-30 17:56
  */
@@ -29,10 +43,17 @@ public class RecoverAnnotationRecoveryHandler<T> implements MethodInvocationReco
     private final Map<Method, SimpleMetadata> methods = new HashMap<>();
     private final Object target;
     private String recoverMethodName;
+    /** (异常类型, 参数类型列表) -> 选中的recover方法 */
+    private final ConcurrentMap<RecoveryKey, Recovery> recoveries = new ConcurrentHashMap<>();
 
     public RecoverAnnotationRecoveryHandler(Object target, Method method) {
         this.target = target;
-        this.init(target, method);
+        this.init(target.getClass(), method);
+    }
+
+    public RecoverAnnotationRecoveryHandler(Class<?> targetClass, Method method) {
+        this.target = null;
+        this.init(targetClass, method);
     }
 
     /**
@@ -40,44 +61,72 @@ public class RecoverAnnotationRecoveryHandler<T> implements MethodInvocationReco
      */
     @Override
     public T recover(Object[] args, Throwable cause) {
-        Method method = this.findClosestMatch(args, cause.getClass());
-        if(method == null)
+        return this.recover(this.target, args, cause);
+    }
+
+    /**
+     * target为null时使用构造时绑定的target
+     */
+    @Override
+    public T recover(Object target, Object[] args, Throwable cause) {
+        Recovery recovery = this.recoveries.computeIfAbsent(new RecoveryKey(cause.getClass(), args),
+                key -> this.resolve(args, key.cause()));
+        if(recovery == Recovery.NONE)
             throw new ExhaustedRetryException("Cannot locate recovery method", cause);
-        SimpleMetadata meta = this.methods.get(method);
         // 拼出完整的参数值列表
-        Object[] argsToUse = meta.getArgs(cause, args);
-        ReflectionUtils.makeAccessible(method);
+        Object[] argsToUse = recovery.meta.getArgs(cause, args);
         RetryContext context = RetrySynchronizationManager.getContext();
 
+        MethodHandle handle = null;
         Object proxy = null;
         if(context != null) {
-            proxy = context.getAttribute("___proxy___");
+            proxy = context.getAttribute(RetryOperationsInterceptor.PROXY);
             if(proxy != null) {
-                Method proxyMethod = this.findMethodOnProxy(method, proxy);
-                if(proxyMethod == null)
+                handle = recovery.getProxyHandle(proxy.getClass());
+                if(handle == null)
                     proxy = null;
-                else
-                    method = proxyMethod;
             }
         }
-        if(proxy == null)   // 没找到代理，只能用原始的实例了
-            proxy = this.target;
-        T result = (T)ReflectionUtils.invokeMethod(method, proxy, argsToUse);
-        return result;
+        if(proxy == null) { // 没找到代理，只能用原始的实例了
+            proxy = target != null ? target : this.target;
+            handle = recovery.handle;
+        }
+        return (T)invoke(handle, proxy, argsToUse);
+    }
+
+    private Recovery resolve(Object[] args, Class<? extends Throwable> cause) {
+        Method method = this.findClosestMatch(args, cause);
+        if(method == null)
+            return Recovery.NONE;
+        ReflectionUtils.makeAccessible(method);
+        return new Recovery(method, this.methods.get(method), toHandle(method));
     }
 
     /**
-     * 确认Method是否在proxy实例上确实有，没有则返回null
-     * 例如：
-     * 1、method是个private。
-     * 2、不是接口里的方法。
-     * 3、proxy来自JDK动态代理。
+     * 和ReflectionUtils.invokeMethod的异常处理保持一致：运行时异常和Error原样抛出，受检异常包装成UndeclaredThrowableException
      */
-    private Method findMethodOnProxy(Method method, Object proxy) {
+    private static Object invoke(MethodHandle handle, Object target, Object[] args) {
         try {
-            return proxy.getClass().getMethod(method.getName(), method.getParameterTypes());
-        } catch (NoSuchMethodException | SecurityException e) {
-            return null;
+            return (Object)handle.invokeExact(target, args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    /**
+     * 转换成统一的(Object target, Object[] args)Object形式，static方法忽略target
+     */
+    private static MethodHandle toHandle(Method method) {
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            if(Modifier.isStatic(method.getModifiers()))
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            handle = handle.asType(handle.type().generic());
+            return handle.asSpreader(Object[].class, method.getParameterCount());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access recovery method " + method, e);
         }
     }
 
@@ -156,7 +205,7 @@ public class RecoverAnnotationRecoveryHandler<T> implements MethodInvocationReco
         return false;
     }
 
-    private void init(final Object target, Method method) {
+    private void init(final Class<?> targetClass, Method method) {
         final Map<Class<? extends Throwable>, Method> types = new HashMap<>();
         final Method failingMethod = method;
         // 优先找Retryable注解上的recover字段值
@@ -164,11 +213,11 @@ public class RecoverAnnotationRecoveryHandler<T> implements MethodInvocationReco
         if(retryable != null)
             this.recoverMethodName = retryable.recover();
 
-        ReflectionUtils.doWithMethods(target.getClass(), candidate -> {
+        Consumer<Method> callback = candidate -> {
             // 寻找带有Recover注解的Method
             Recover recover = AnnotatedElementUtils.findMergedAnnotation(candidate, Recover.class);
             if(recover == null) // 找不到就在代理目标类再找
-                recover = this.findAnnotationOnTarget(target, candidate);
+                recover = this.findAnnotationOnTarget(targetClass, candidate);
             if(recover != null && failingMethod.getGenericReturnType() instanceof ParameterizedType
                 && candidate.getGenericReturnType() instanceof ParameterizedType) {
                 // 要判断retryable方法和recover方法的返回值要一致（要符合recover的语义）
@@ -179,7 +228,15 @@ public class RecoverAnnotationRecoveryHandler<T> implements MethodInvocationReco
             }else if(recover != null && candidate.getReturnType().isAssignableFrom(failingMethod.getReturnType())) {
                 this.putToMethodsMap(candidate, types);
             }
-        });
+        };
+        // 有编译期索引时只处理索引中的@Recover方法，否则反射扫描所有方法
+        List<Method> indexed = RetryIndex.get(targetClass).findRecoverMethods(targetClass);
+        if(indexed != null) {
+            for(Method candidate : indexed)
+                callback.accept(candidate);
+        }else {
+            ReflectionUtils.doWithMethods(targetClass, callback::accept);
+        }
         this.classifier.setTypeMap(types);
         this.optionallyFilterMethodsBy(failingMethod.getReturnType());
     }
@@ -231,9 +288,9 @@ public class RecoverAnnotationRecoveryHandler<T> implements MethodInvocationReco
         }
     }
 
-    private Recover findAnnotationOnTarget(Object target, Method method) {
+    private Recover findAnnotationOnTarget(Class<?> targetClass, Method method) {
         try {
-            Method targetMethod = target.getClass().getMethod(method.getName(), method.getParameterTypes());
+            Method targetMethod = targetClass.getMethod(method.getName(), method.getParameterTypes());
             return AnnotatedElementUtils.findMergedAnnotation(targetMethod, Recover.class);
         }
         catch (Exception e) {
@@ -260,6 +317,68 @@ public class RecoverAnnotationRecoveryHandler<T> implements MethodInvocationReco
         }
     }
 
+    /**
+     * recover方法选择的缓存key，参数值只保留类型（null值保留为null，和compareParameters跳过null的逻辑一致）
+     */
+    private record RecoveryKey(Class<? extends Throwable> cause, Class<?>[] argTypes) {
+        RecoveryKey(Class<? extends Throwable> cause, Object[] args) {
+            this(cause, argTypes(args));
+        }
+
+        private static Class<?>[] argTypes(Object[] args) {
+            Class<?>[] result = new Class<?>[args.length];
+            for(int i = 0; i < args.length; i++)
+                result[i] = args[i] == null ? null : args[i].getClass();
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof RecoveryKey key && this.cause == key.cause && Arrays.equals(this.argTypes, key.argTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.cause.hashCode() + Arrays.hashCode(this.argTypes);
+        }
+    }
+
+    /**
+     * 选中的recover方法，以及在原始实例和各种代理类上调用它的MethodHandle
+     */
+    private static class Recovery {
+        static final Recovery NONE = new Recovery(null, null, null);
+
+        private final Method method;
+        private final SimpleMetadata meta;
+        private final MethodHandle handle;
+        /** 代理类 -> 代理类上的同名方法，代理类上没有该方法时为empty */
+        private final ConcurrentMap<Class<?>, Optional<MethodHandle>> proxyHandles = new ConcurrentHashMap<>();
+
+        Recovery(Method method, SimpleMetadata meta, MethodHandle handle) {
+            this.method = method;
+            this.meta = meta;
+            this.handle = handle;
+        }
+
+        /**
+         * 确认Method是否在代理类上确实有，没有则返回null
+         * 例如：
+         * 1、method是个private。
+         * 2、不是接口里的方法。
+         * 3、proxy来自JDK动态代理。
+         */
+        MethodHandle getProxyHandle(Class<?> proxyClass) {
+            return this.proxyHandles.computeIfAbsent(proxyClass, c -> {
+                try {
+                    return Optional.of(toHandle(c.getMethod(this.method.getName(), this.method.getParameterTypes())));
+                } catch (NoSuchMethodException | SecurityException e) {
+                    return Optional.empty();
+                }
+            }).orElse(null);
+        }
+    }
+
     /**
      * Recover注解标注的method的参数情况
      */
@@ -5,11 +5,17 @@ import com.github.liyibo1110.spring.retry.backoff.Sleeper;
 import com.github.liyibo1110.spring.retry.interceptor.MethodArgumentsKeyGenerator;
 import com.github.liyibo1110.spring.retry.interceptor.NewMethodArgumentsIdentifier;
 import com.github.liyibo1110.spring.retry.policy.RetryContextCache;
+import com.github.liyibo1110.spring.retry.support.CircuitBreakerRegistry;
+import com.github.liyibo1110.spring.retry.support.ThrottleGateRegistry;
 import org.aopalliance.aop.Advice;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.springframework.aop.ClassFilter;
 import org.springframework.aop.IntroductionAdvisor;
 import org.springframework.aop.MethodMatcher;
 import org.springframework.aop.Pointcut;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.aop.support.AbstractPointcutAdvisor;
 import org.springframework.aop.support.ComposablePointcut;
 import org.springframework.aop.support.StaticMethodMatcherPointcut;
@@ -21,6 +27,7 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.ListableBeanFactory;
 import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.ImportAware;
 import org.springframework.context.annotation.Role;
 import org.springframework.core.OrderComparator;
@@ -30,13 +37,19 @@ import org.springframework.core.type.AnnotationMetadata;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -47,13 +60,17 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * 4、InitializingBean接口：自身作为被bean生成可以进行一些初始化任务。
  * 5、SmartInitializingSingleton接口：所有单例实例都创建好了，可以做收尾任务。
  * 3、ImportAware接口：用来读取EnableRetry注解里面的字段（因为它里面Import了RetryConfiguration）。
+ * 开启了EnableRetry.eagerInitialization时，在afterSingletonsInstantiated中预先解析所有被拦截方法的拦截器。
  * @author liyibo
  * @date 2026-01-31 17:32
  */
 @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
 @Component
 public class RetryConfiguration extends AbstractPointcutAdvisor
-        implements IntroductionAdvisor, BeanFactoryAware, InitializingBean, SmartInitializingSingleton, ImportAware {
+        implements IntroductionAdvisor, BeanFactoryAware, InitializingBean, SmartInitializingSingleton, ImportAware,
+        ApplicationListener<RetryConfigurationChangedEvent> {
+    private static final Log logger = LogFactory.getLog(RetryConfiguration.class);
+
     protected AnnotationAttributes enableRetry;
     private AnnotationAwareRetryOperationsInterceptor advice;
     private Pointcut pointcut;
@@ -62,6 +79,10 @@ public class RetryConfiguration extends AbstractPointcutAdvisor
     private MethodArgumentsKeyGenerator methodArgumentsKeyGenerator;
     private NewMethodArgumentsIdentifier newMethodArgumentsIdentifier;
     private Sleeper sleeper;
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private ThrottleGateRegistry throttleGateRegistry;
+    private ScheduledExecutorService asyncScheduler;
+    private Executor asyncExecutor;
     private BeanFactory beanFactory;
 
     /**
@@ -82,13 +103,32 @@ public class RetryConfiguration extends AbstractPointcutAdvisor
         this.methodArgumentsKeyGenerator = this.findBean(MethodArgumentsKeyGenerator.class);
         this.newMethodArgumentsIdentifier = this.findBean(NewMethodArgumentsIdentifier.class);
         this.sleeper = this.findBean(Sleeper.class);
+        this.circuitBreakerRegistry = this.findBean(CircuitBreakerRegistry.class);
+        if(this.circuitBreakerRegistry == null) // 没有声明的话，本配置独享一个，不和其它容器共享熔断状态
+            this.circuitBreakerRegistry = new CircuitBreakerRegistry();
+        this.throttleGateRegistry = this.findBean(ThrottleGateRegistry.class);
+        if(this.enableRetry != null) {  // 只使用显式指定的bean，容器里的ScheduledExecutorService可能是业务自己的
+            this.asyncScheduler = this.findNamedBean(this.enableRetry.getString("asyncScheduler"), ScheduledExecutorService.class);
+            this.asyncExecutor = this.findNamedBean(this.enableRetry.getString("asyncExecutor"), Executor.class);
+        }
         Set<Class<? extends Annotation>> retryableAnnotationTypes = new LinkedHashSet<>(1);
         retryableAnnotationTypes.add(Retryable.class);
         this.pointcut = this.buildPointcut(retryableAnnotationTypes);
         this.advice = this.buildAdvice();
         this.advice.setBeanFactory(this.beanFactory);
-        if(this.enableRetry != null)
+        if(this.enableRetry != null) {
             setOrder(this.enableRetry.getNumber("order"));
+            this.advice.setExpressionRefreshInterval(this.enableRetry.<Long>getNumber("expressionRefreshInterval"));
+        }
+    }
+
+    /**
+     * 配置变更时，让所有缓存的表达式结果失效
+     */
+    @Override
+    public void onApplicationEvent(RetryConfigurationChangedEvent event) {
+        if(this.advice != null)
+            this.advice.refreshExpressions();
     }
 
     @Override
@@ -96,6 +136,47 @@ public class RetryConfiguration extends AbstractPointcutAdvisor
         this.retryListeners = this.findBeans(RetryListener.class);
         if(this.retryListeners != null)
             this.advice.setListeners(this.retryListeners);
+        if(this.enableRetry != null && this.enableRetry.getBoolean("eagerInitialization"))
+            this.resolveInterceptors();
+    }
+
+    /**
+     * 为所有应用了本advisor的单例代理，预先解析每个被拦截方法的拦截器（必须在设置完listeners之后），
+     * JDK代理调用时传入的是接口上的method，CGLIB代理则是类上的method，所以两者都要解析
+     */
+    private void resolveInterceptors() {
+        if(!(this.beanFactory instanceof ListableBeanFactory listable))
+            return;
+        long start = System.nanoTime();
+        int beans = 0;
+        int methods = 0;
+        for(Map.Entry<String, Advised> entry : listable.getBeansOfType(Advised.class, false, false).entrySet()) {
+            Advised advised = entry.getValue();
+            if(!Arrays.asList(advised.getAdvisors()).contains(this) || !advised.getTargetSource().isStatic())
+                continue;
+            try {
+                Object target = advised.getTargetSource().getTarget();
+                if(target == null)
+                    continue;
+                Class<?> targetClass = AopUtils.getTargetClass(target);
+                Set<Method> candidates = new LinkedHashSet<>();
+                for(Class<?> proxiedInterface : advised.getProxiedInterfaces())
+                    candidates.addAll(Arrays.asList(proxiedInterface.getMethods()));
+                if(advised.isProxyTargetClass())
+                    candidates.addAll(Arrays.asList(ReflectionUtils.getUniqueDeclaredMethods(targetClass, ReflectionUtils.USER_DECLARED_METHODS)));
+                MethodMatcher matcher = this.pointcut.getMethodMatcher();
+                for(Method method : candidates) {
+                    if(matcher.matches(method, targetClass) && this.advice.resolveDelegate(target, method))
+                        methods++;
+                }
+                beans++;
+            } catch (Exception e) {
+                logger.warn("Cannot resolve retry interceptors for bean '" + entry.getKey() + "', falling back to first-call resolution", e);
+            }
+        }
+        if(logger.isInfoEnabled())
+            logger.info("Resolved retry interceptors for " + methods + " methods on " + beans + " beans in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
     }
 
     /**
@@ -125,6 +206,15 @@ public class RetryConfiguration extends AbstractPointcutAdvisor
         return null;
     }
 
+    /**
+     * 根据bean名称找bean，名称为空返回null
+     */
+    private <T> T findNamedBean(String name, Class<T> type) {
+        if(!StringUtils.hasText(name))
+            return null;
+        return this.beanFactory.getBean(name, type);
+    }
+
     @Override
     public void setBeanFactory(BeanFactory beanFactory) {
         this.beanFactory = beanFactory;
@@ -172,6 +262,13 @@ public class RetryConfiguration extends AbstractPointcutAdvisor
             interceptor.setNewItemIdentifier(this.newMethodArgumentsIdentifier);
         if(this.sleeper != null)
             interceptor.setSleeper(this.sleeper);
+        interceptor.setCircuitBreakerRegistry(this.circuitBreakerRegistry);
+        if(this.throttleGateRegistry != null)
+            interceptor.setThrottleGateRegistry(this.throttleGateRegistry);
+        if(this.asyncScheduler != null)
+            interceptor.setAsyncScheduler(this.asyncScheduler);
+        if(this.asyncExecutor != null)
+            interceptor.setAsyncExecutor(this.asyncExecutor);
         return interceptor;
     }
 
@@ -213,7 +310,7 @@ public class RetryConfiguration extends AbstractPointcutAdvisor
             if(!(other instanceof AnnotationClassOrMethodPointcut))
                 return false;
             AnnotationClassOrMethodPointcut otherAdvisor = (AnnotationClassOrMethodPointcut)other;
-            return ObjectUtils.nullSafeEquals(this.methodResolver, otherAdvisor.methodResolver)
+            return ObjectUtils.nullSafeEquals(this.methodResolver, otherAdvisor.methodResolver);
         }
     }
 
@@ -230,6 +327,11 @@ public class RetryConfiguration extends AbstractPointcutAdvisor
 
         @Override
         public boolean matches(Class<?> clazz) {
+            if(this.methodResolver.annotationType == Retryable.class) { // 有编译期索引时直接使用，不再反射扫描
+                Boolean indexed = RetryIndex.get(clazz).hasRetryable(clazz);
+                if(indexed != null)
+                    return indexed;
+            }
             return super.matches(clazz) || this.methodResolver.hasAnnotatedMethods(clazz);
         }
     }
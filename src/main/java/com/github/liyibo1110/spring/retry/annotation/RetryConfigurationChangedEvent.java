@@ -0,0 +1,16 @@
+package com.github.liyibo1110.spring.retry.annotation;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * retry相关的配置（例如@Backoff、@Retryable、@CircuitBreaker表达式引用的属性或者bean）发生了变化，
+ * 发布这个事件后，所有缓存的运行时表达式结果会立即失效，下次使用时重新计算
+ * @author liyibo
+ * @date 2026-10-19 22:10
+ */
+public class RetryConfigurationChangedEvent extends ApplicationEvent {
+
+    public RetryConfigurationChangedEvent(Object source) {
+        super(source);
+    }
+}
@@ -0,0 +1,202 @@
+package com.github.liyibo1110.spring.retry.annotation;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 由RetryIndexProcessor在编译期生成的@Retryable / @Recover索引（classpath中所有的META-INF/spring-retry.index），
+ * 用来在启动时跳过对bean类型的反射扫描：
+ * 1、类型及其所有父类、接口都被索引过时，直接按索引回答“是否有@Retryable”和“有哪些@Recover方法”。
+ * 2、只要有一个类型没有被索引（例如来自没有使用处理器的jar），就返回null，调用方退回到原来的反射扫描。
+ * 设置系统属性spring.retry.ignore-index=true可以完全忽略索引
+ * @author liyibo
+ * @date 2026-10-20 02:10
+ */
+public final class RetryIndex {
+    private static final Log logger = LogFactory.getLog(RetryIndex.class);
+
+    public static final String LOCATION = "META-INF/spring-retry.index";
+
+    public static final String IGNORE_PROPERTY = "spring.retry.ignore-index";
+
+    static final String TYPE = "type";
+
+    static final String RETRYABLE = "retryable";
+
+    static final String RECOVER = "recover";
+
+    /** 表示类级别的注解 */
+    static final String CLASS_LEVEL = "*";
+
+    private static final RetryIndex EMPTY = new RetryIndex(new HashMap<>());
+
+    private static final Map<ClassLoader, RetryIndex> CACHE = new ConcurrentReferenceHashMap<>();
+
+    /** 类型的binary name -> 索引内容 */
+    private final Map<String, Entry> entries;
+
+    private RetryIndex(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * 加载classLoader可见的所有索引（结果按classLoader缓存）
+     */
+    public static RetryIndex get(ClassLoader classLoader) {
+        if(Boolean.getBoolean(IGNORE_PROPERTY) || classLoader == null)
+            return EMPTY;
+        return CACHE.computeIfAbsent(classLoader, RetryIndex::load);
+    }
+
+    public static RetryIndex get(Class<?> type) {
+        return get(type.getClassLoader());
+    }
+
+    private static RetryIndex load(ClassLoader classLoader) {
+        Map<String, Entry> entries = new HashMap<>();
+        try {
+            Enumeration<URL> urls = classLoader.getResources(LOCATION);
+            while(urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                try(BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while((line = reader.readLine()) != null)
+                        parse(line.trim(), entries);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot load " + LOCATION + ", falling back to reflective scanning", e);
+            return EMPTY;
+        }
+        return entries.isEmpty() ? EMPTY : new RetryIndex(entries);
+    }
+
+    private static void parse(String line, Map<String, Entry> entries) {
+        String[] parts = line.split("\\|");
+        if(parts.length < 2)
+            return;
+        Entry entry = entries.computeIfAbsent(parts[1], name -> new Entry());
+        if(parts.length < 3)
+            return;
+        if(RETRYABLE.equals(parts[0])) {
+            if(CLASS_LEVEL.equals(parts[2]))
+                entry.classLevel = true;
+            else
+                entry.retryableMethods.add(parts[2]);
+        }else if(RECOVER.equals(parts[0])) {
+            entry.recoverMethods.add(parts[2]);
+        }
+    }
+
+    /**
+     * 索引中是否有任何类型
+     */
+    public boolean isEmpty() {
+        return this.entries.isEmpty();
+    }
+
+    /**
+     * type本身或者它的父类、接口上是否有@Retryable（类级别或者方法级别），
+     * 有类型没有被索引时返回null
+     */
+    public Boolean hasRetryable(Class<?> type) {
+        if(this.entries.isEmpty())
+            return null;
+        boolean found = false;
+        for(Class<?> current : hierarchy(type)) {
+            Entry entry = this.entries.get(current.getName());
+            if(entry == null)
+                return null;
+            found |= entry.classLevel || !entry.retryableMethods.isEmpty();
+        }
+        return found;
+    }
+
+    /**
+     * type及其父类中带有@Recover的方法，有类型没有被索引时返回null
+     */
+    public List<Method> findRecoverMethods(Class<?> type) {
+        if(this.entries.isEmpty())
+            return null;
+        List<Method> methods = new ArrayList<>();
+        for(Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            if(!this.addRecoverMethods(current, false, methods))
+                return null;
+            // 和ReflectionUtils.doWithMethods一致，直接实现的接口上的default方法也算
+            for(Class<?> ifc : current.getInterfaces()) {
+                if(!ifc.getName().startsWith("java.") && !this.addRecoverMethods(ifc, true, methods))
+                    return null;
+            }
+        }
+        return methods;
+    }
+
+    private boolean addRecoverMethods(Class<?> type, boolean defaultOnly, List<Method> methods) {
+        Entry entry = this.entries.get(type.getName());
+        if(entry == null)
+            return false;
+        if(entry.recoverMethods.isEmpty())
+            return true;
+        for(Method method : type.getDeclaredMethods()) {
+            if((!defaultOnly || method.isDefault()) && entry.recoverMethods.contains(signature(method)))
+                methods.add(method);
+        }
+        return true;
+    }
+
+    /**
+     * type、它的所有父类和接口（不包括java.*下的类型，它们不可能被索引）
+     */
+    private static Set<Class<?>> hierarchy(Class<?> type) {
+        Set<Class<?>> result = new HashSet<>();
+        collect(type, result);
+        return result;
+    }
+
+    private static void collect(Class<?> type, Set<Class<?>> result) {
+        if(type == null || type.getName().startsWith("java.") || !result.add(type))
+            return;
+        collect(type.getSuperclass(), result);
+        for(Class<?> ifc : type.getInterfaces())
+            collect(ifc, result);
+    }
+
+    /**
+     * 和RetryIndexProcessor生成的格式一致：名称(参数类型的binary name，数组以[]结尾)
+     */
+    static String signature(Method method) {
+        StringBuilder builder = new StringBuilder(method.getName()).append('(');
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for(int i = 0; i < parameterTypes.length; i++) {
+            if(i > 0)
+                builder.append(',');
+            builder.append(typeName(parameterTypes[i]));
+        }
+        return builder.append(')').toString();
+    }
+
+    private static String typeName(Class<?> type) {
+        return type.isArray() ? typeName(type.getComponentType()) + "[]" : type.getName();
+    }
+
+    private static final class Entry {
+        private boolean classLevel;
+        private final Set<String> retryableMethods = new HashSet<>();
+        private final Set<String> recoverMethods = new HashSet<>();
+    }
+}
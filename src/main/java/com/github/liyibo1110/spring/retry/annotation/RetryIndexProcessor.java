@@ -0,0 +1,135 @@
+package com.github.liyibo1110.spring.retry.annotation;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 编译期生成RetryIndex的注解处理器（可选，不会自动注册），需要在编译时显式指定，例如：
+ * javac -processor com.github.liyibo1110.spring.retry.annotation.RetryIndexProcessor，
+ * 或者在maven-compiler-plugin的annotationProcessorPaths / annotationProcessors中配置。
+ * 本轮编译的每个类型都会写入索引（即使没有任何注解），这样运行时才能区分“被索引过但没有注解”和“没有被索引”。
+ * 只记录哪些类型和方法带有@Retryable（包括以它为元注解的注解，例如@CircuitBreaker）和@Recover，
+ * 注解的属性仍然在运行时从这些方法上读取，省掉的是对所有类型和方法的反射扫描
+ * @author liyibo
+ * @date 2026-10-20 02:00
+ */
+@SupportedAnnotationTypes("*")
+public class RetryIndexProcessor extends AbstractProcessor {
+    private static final String RETRYABLE = Retryable.class.getName();
+
+    private static final String RECOVER = Recover.class.getName();
+
+    /** 按行排序，保证相同的源码生成相同的索引文件 */
+    private final Set<String> lines = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for(Element element : roundEnv.getRootElements())
+            this.index(element);
+        if(roundEnv.processingOver())
+            this.write();
+        return false;   // 不认领任何注解，不影响其它处理器
+    }
+
+    private void index(Element element) {
+        if(!(element instanceof TypeElement type))
+            return;
+        String name = this.processingEnv.getElementUtils().getBinaryName(type).toString();
+        this.lines.add(RetryIndex.TYPE + "|" + name);
+        if(this.isAnnotated(type, RETRYABLE))
+            this.lines.add(RetryIndex.RETRYABLE + "|" + name + "|" + RetryIndex.CLASS_LEVEL);
+        for(Element enclosed : type.getEnclosedElements()) {
+            if(enclosed.getKind() == ElementKind.METHOD) {
+                ExecutableElement method = (ExecutableElement)enclosed;
+                if(this.isAnnotated(method, RETRYABLE))
+                    this.lines.add(RetryIndex.RETRYABLE + "|" + name + "|" + this.signature(method));
+                if(this.isAnnotated(method, RECOVER))
+                    this.lines.add(RetryIndex.RECOVER + "|" + name + "|" + this.signature(method));
+            }else if(enclosed instanceof TypeElement) {  // 嵌套类型
+                this.index(enclosed);
+            }
+        }
+    }
+
+    /**
+     * element上是否有指定注解，或者以它为元注解的注解
+     */
+    private boolean isAnnotated(Element element, String annotation) {
+        return this.isAnnotated(element, annotation, new HashSet<>());
+    }
+
+    private boolean isAnnotated(Element element, String annotation, Set<String> visited) {
+        for(AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement)mirror.getAnnotationType().asElement();
+            String name = type.getQualifiedName().toString();
+            if(name.equals(annotation))
+                return true;
+            if(!name.startsWith("java.") && visited.add(name) && this.isAnnotated(type, annotation, visited))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * 方法签名：名称(参数类型的擦除后binary name，逗号分隔)，和RetryIndex.signature(Method)的格式一致
+     */
+    private String signature(ExecutableElement method) {
+        StringBuilder builder = new StringBuilder(method.getSimpleName()).append('(');
+        int i = 0;
+        for(VariableElement parameter : method.getParameters()) {
+            if(i++ > 0)
+                builder.append(',');
+            builder.append(this.typeName(this.processingEnv.getTypeUtils().erasure(parameter.asType())));
+        }
+        return builder.append(')').toString();
+    }
+
+    private String typeName(TypeMirror type) {
+        if(type.getKind() == TypeKind.ARRAY)
+            return this.typeName(((ArrayType)type).getComponentType()) + "[]";
+        if(type.getKind() == TypeKind.DECLARED)
+            return this.processingEnv.getElementUtils().getBinaryName((TypeElement)((DeclaredType)type).asElement()).toString();
+        return type.toString();
+    }
+
+    private void write() {
+        if(this.lines.isEmpty())
+            return;
+        try {
+            FileObject file = this.processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    RetryIndex.LOCATION);
+            try(Writer writer = file.openWriter()) {
+                for(String line : this.lines)
+                    writer.write(line + "\n");
+            }
+        } catch (IOException e) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Cannot write " + RetryIndex.LOCATION + ": " + e);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import com.github.liyibo1110.spring.retry.RetryCallback;
+import com.github.liyibo1110.spring.retry.RetryContext;
+import com.github.liyibo1110.spring.retry.RetryListener;
+import com.github.liyibo1110.spring.retry.stats.RecoveryCurve;
+import com.github.liyibo1110.spring.retry.stats.RecoveryTimeHistogram;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 根据观察到的恢复时间自适应的BackOffPolicy实现，同时也是RetryListener（必须注册到同一个RetryTemplate上）：
+ * 1、作为listener：按label（RetryContext.NAME，没有则为default）记录首次失败到最终成功的时间，以及最终失败的次数。
+ * 2、作为backoff：设e为首次失败到现在的时间，F为学习到的恢复曲线，在候选的重试时间点t中，
+ * 选择(F(t) - F(e)) / ((1 - F(e)) * (t - e))最大的那个，即单位等待时间内成功概率最高的点，等待时间限制在[minInterval, maxInterval]。
+ * 样本不足minSamples时，按minInterval开始的2倍指数增长等待。
+ * 学习到的曲线会放到RetryContext的RECOVERY_CURVE属性中，StatisticsListener会把它带到RetryStatistics里
+ * @author liyibo
+ * @date 2026-10-19 23:00
+ */
+public class AdaptiveBackOffPolicy implements SleepingBackOffPolicy<AdaptiveBackOffPolicy>, RetryListener {
+    /** 当前label学习到的恢复曲线（RecoveryCurve） */
+    public static final String RECOVERY_CURVE = "backoff.recoveryCurve";
+
+    private static final String FIRST_FAILURE = "backoff.adaptive.firstFailure";
+
+    private static final String DEFAULT_LABEL = "default";
+
+    private final ConcurrentMap<String, RecoveryTimeHistogram> histograms;
+
+    private long minInterval = 100;
+
+    private long maxInterval = 30000;
+
+    private int minSamples = 20;
+
+    private Sleeper sleeper = new ThreadWaitSleeper();
+
+    public AdaptiveBackOffPolicy() {
+        this(new ConcurrentHashMap<>());
+    }
+
+    private AdaptiveBackOffPolicy(ConcurrentMap<String, RecoveryTimeHistogram> histograms) {
+        this.histograms = histograms;
+    }
+
+    @Override
+    public AdaptiveBackOffPolicy withSleeper(Sleeper sleeper) {
+        // 共享学习到的数据
+        AdaptiveBackOffPolicy res = new AdaptiveBackOffPolicy(this.histograms);
+        res.setMinInterval(this.minInterval);
+        res.setMaxInterval(this.maxInterval);
+        res.setMinSamples(this.minSamples);
+        res.setSleeper(sleeper);
+        return res;
+    }
+
+    public void setSleeper(Sleeper sleeper) {
+        this.sleeper = sleeper;
+    }
+
+    public void setMinInterval(long minInterval) {
+        this.minInterval = Math.max(minInterval, 1);
+    }
+
+    public void setMaxInterval(long maxInterval) {
+        Assert.isTrue(maxInterval >= this.minInterval, "'maxInterval' must not be less than 'minInterval'");
+        this.maxInterval = maxInterval;
+    }
+
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+
+    /**
+     * 指定label当前学习到的恢复曲线
+     */
+    public RecoveryCurve getRecoveryCurve(String label) {
+        return histogram(label).snapshot();
+    }
+
+    @Override
+    public BackOffContext start(RetryContext context) {
+        return new AdaptiveBackOffContext(context);
+    }
+
+    @Override
+    public void backOff(BackOffContext backOffContext) throws BackOffInterruptedException {
+        AdaptiveBackOffContext context = (AdaptiveBackOffContext)backOffContext;
+        try {
+            this.sleeper.sleep(nextInterval(context));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BackOffInterruptedException("Thread interrupted while sleeping", e);
+        }
+    }
+
+    private long nextInterval(AdaptiveBackOffContext context) {
+        RetryContext retryContext = context.retryContext;
+        RecoveryCurve curve = histogram(label(retryContext)).snapshot();
+        retryContext.setAttribute(RECOVERY_CURVE, curve);
+        if(curve.samples() < this.minSamples) { // 还没学到足够的数据，指数增长
+            int shift = Math.min(Math.max(retryContext.getRetryCount() - 1, 0), 30);
+            return Math.min(this.minInterval << shift, this.maxInterval);
+        }
+        long elapsed = elapsedSinceFirstFailure(retryContext);
+        double recovered = curve.probability(elapsed);
+        double remaining = 1 - recovered;
+        long best = this.maxInterval;
+        double bestScore = 0;
+        if(remaining > 0) {
+            long[] bounds = curve.bounds();
+            double[] probabilities = curve.probabilities();
+            for(int i = 0; i < bounds.length; i++) {
+                long wait = bounds[i] - elapsed;
+                if(wait < this.minInterval)
+                    continue;
+                if(wait > this.maxInterval)
+                    break;
+                double score = (probabilities[i] - recovered) / (remaining * wait);
+                if(score > bestScore) {
+                    bestScore = score;
+                    best = wait;
+                }
+            }
+        }
+        return best;
+    }
+
+    /* ---------------- RetryListener -------------- */
+
+    @Override
+    public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+        if(!context.hasAttribute(FIRST_FAILURE))
+            context.setAttribute(FIRST_FAILURE, System.nanoTime());
+    }
+
+    @Override
+    public <T, E extends Throwable> void onSuccess(RetryContext context, RetryCallback<T, E> callback, T result) {
+        if(context.hasAttribute(FIRST_FAILURE)) {
+            histogram(label(context)).recordRecovery(elapsedSinceFirstFailure(context));
+            context.removeAttribute(FIRST_FAILURE);
+        }
+    }
+
+    @Override
+    public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+        if(throwable != null && context.hasAttribute(FIRST_FAILURE) && context.hasAttribute(RetryContext.EXHAUSTED))
+            histogram(label(context)).recordFailure();
+    }
+
+    private long elapsedSinceFirstFailure(RetryContext context) {
+        Object firstFailure = context.getAttribute(FIRST_FAILURE);
+        if(!(firstFailure instanceof Long start))
+            return 0;
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private RecoveryTimeHistogram histogram(String label) {
+        return this.histograms.computeIfAbsent(label, l -> new RecoveryTimeHistogram());
+    }
+
+    private String label(RetryContext context) {
+        Object name = context.getAttribute(RetryContext.NAME);
+        return name != null ? name.toString() : DEFAULT_LABEL;
+    }
+
+    static class AdaptiveBackOffContext implements BackOffContext {
+        private final RetryContext retryContext;
+
+        AdaptiveBackOffContext(RetryContext retryContext) {
+            this.retryContext = retryContext;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveBackOffPolicy[minInterval=" + this.minInterval + ", maxInterval=" + this.maxInterval
+                + ", labels=" + this.histograms.keySet() + "]";
+    }
+}
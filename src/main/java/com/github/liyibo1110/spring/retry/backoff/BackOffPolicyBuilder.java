@@ -12,6 +12,7 @@ public class BackOffPolicyBuilder {
     private Long maxDelay;
     private Double multiplier;
     private Boolean random;
+    private Jitter jitter;
     private Sleeper sleeper;
     private Supplier<Long> delaySupplier;
 
@@ -51,6 +52,14 @@ public class BackOffPolicyBuilder {
         return this;
     }
 
+    /**
+     * 使用带抖动的指数backoff（multiplier未设置时为2），Jitter.NONE表示不抖动
+     */
+    public BackOffPolicyBuilder jitter(Jitter jitter) {
+        this.jitter = jitter;
+        return this;
+    }
+
     public BackOffPolicyBuilder sleeper(Sleeper sleeper) {
         this.sleeper = sleeper;
         return this;
@@ -77,6 +86,26 @@ public class BackOffPolicyBuilder {
     }
 
     public BackOffPolicy build() {
+        // 抖动系列实现
+        if(jitter != null && jitter != Jitter.NONE) {
+            JitterBackOffPolicy policy = new JitterBackOffPolicy();
+            policy.setJitter(jitter);
+            if(delay != null)
+                policy.setInitialInterval(delay);
+            if(delaySupplier != null)
+                policy.initialIntervalSupplier(delaySupplier);
+            if(multiplier != null && multiplier > 1)
+                policy.setMultiplier(multiplier);
+            if(multiplierSupplier != null)
+                policy.multiplierSupplier(multiplierSupplier);
+            if(maxDelay != null && delay != null && maxDelay > delay)
+                policy.setMaxInterval(maxDelay);
+            if(maxDelaySupplier != null)
+                policy.maxIntervalSupplier(maxDelaySupplier);
+            if(sleeper != null)
+                policy.setSleeper(sleeper);
+            return policy;
+        }
         // Exponential系列实现
         if(multiplier != null && (multiplier > 0 || multiplierSupplier != null)) {
             ExponentialBackOffPolicy policy;
@@ -0,0 +1,89 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import org.springframework.util.Assert;
+
+import java.util.Arrays;
+
+/**
+ * 不可变的backoff时间表，所有等待时间在创建时就计算好，可以在任意多的policy和线程之间共享。
+ * 第n次backoff（从0开始）使用第n个值，超出表的长度之后一直使用最后一个值
+ * @author liyibo
+ * @date 2026-10-19 21:20
+ */
+public final class BackOffSchedule {
+    /** 计算指数、Fibonacci表时的最大长度，到达上限之前通常早就被maxInterval截断了 */
+    private static final int MAX_LENGTH = 64;
+
+    private final long[] intervals;
+
+    private BackOffSchedule(long[] intervals) {
+        this.intervals = intervals;
+    }
+
+    /**
+     * 指数增长的时间表：initial, initial * multiplier, ...，到maxInterval为止
+     */
+    public static BackOffSchedule exponential(long initialInterval, double multiplier, long maxInterval) {
+        Assert.isTrue(initialInterval >= 1, "Initial interval should be >= 1");
+        Assert.isTrue(multiplier > 1, "Multiplier should be > 1");
+        long[] intervals = new long[MAX_LENGTH];
+        int length = 0;
+        long next = initialInterval;
+        while(length < MAX_LENGTH) {
+            long interval = Math.min(next, maxInterval);
+            intervals[length++] = interval;
+            if(interval >= maxInterval)
+                break;
+            next = (long)(next * multiplier);   // 和ExponentialBackOffContext的取整方式保持一致
+        }
+        return new BackOffSchedule(Arrays.copyOf(intervals, length));
+    }
+
+    /**
+     * Fibonacci增长的时间表：initial, initial, 2 * initial, 3 * initial, 5 * initial, ...，到maxInterval为止，
+     * 比倍数为2的指数增长平缓
+     */
+    public static BackOffSchedule fibonacci(long initialInterval, long maxInterval) {
+        Assert.isTrue(initialInterval >= 1, "Initial interval should be >= 1");
+        long[] intervals = new long[MAX_LENGTH];
+        int length = 0;
+        long previous = 0;
+        long current = initialInterval;
+        while(length < MAX_LENGTH) {
+            long interval = Math.min(current, maxInterval);
+            intervals[length++] = interval;
+            if(interval >= maxInterval)
+                break;
+            long next = previous + current;
+            previous = current;
+            current = next;
+        }
+        return new BackOffSchedule(Arrays.copyOf(intervals, length));
+    }
+
+    /**
+     * 直接指定的时间表
+     */
+    public static BackOffSchedule of(long... intervals) {
+        Assert.isTrue(intervals != null && intervals.length > 0, "Intervals must not be empty");
+        for(long interval : intervals)
+            Assert.isTrue(interval >= 0, "Intervals must not be negative");
+        return new BackOffSchedule(intervals.clone());
+    }
+
+    /**
+     * 第index次backoff（从0开始）的等待时间
+     */
+    public long intervalAt(int index) {
+        return this.intervals[Math.max(0, Math.min(index, this.intervals.length - 1))];
+    }
+
+    public int length() {
+        return this.intervals.length;
+    }
+
+    @Override
+    public String toString() {
+        return "BackOffSchedule" + Arrays.toString(this.intervals);
+    }
+}
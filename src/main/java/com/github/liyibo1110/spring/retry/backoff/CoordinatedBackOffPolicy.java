@@ -0,0 +1,83 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import com.github.liyibo1110.spring.retry.RetryContext;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import java.util.function.Supplier;
+
+/**
+ * 通过共享的RetrySlotCalendar协调重试时间的BackOffPolicy实现，
+ * 指数部分和ExponentialBackOffPolicy一致，得出的等待时间只是最早的重试时间，
+ * 实际时间在[最早时间, 最早时间 + 等待时间 * spread]范围内预约一个没满的桶，
+ * 所以同一时刻失败的大量调用会被均匀地分散在这个范围内，而不是形成同步的重试波峰。
+ * 多个RetryTemplate要按同一label协调时，使用同一个calendar即可
+ * @author liyibo
+ * @date 2026-10-19 20:45
+ */
+public class CoordinatedBackOffPolicy extends ExponentialBackOffPolicy {
+    private RetrySlotCalendar calendar = new RetrySlotCalendar();
+
+    /** 分散范围相对于等待时间的比例 */
+    private double spread = 1.0;
+
+    public void setCalendar(RetrySlotCalendar calendar) {
+        Assert.notNull(calendar, "'calendar' cannot be null");
+        this.calendar = calendar;
+    }
+
+    public RetrySlotCalendar getCalendar() {
+        return this.calendar;
+    }
+
+    public void setSpread(double spread) {
+        Assert.isTrue(spread >= 0, "'spread' must not be negative");
+        this.spread = spread;
+    }
+
+    @Override
+    public BackOffContext start(RetryContext context) {
+        return new CoordinatedBackOffContext(getInitialInterval(), getMultiplier(), getMaxInterval(),
+                getInitialIntervalSupplier(), getMultiplierSupplier(), getMaxIntervalSupplier(), this.calendar, this.spread);
+    }
+
+    @Override
+    protected ExponentialBackOffPolicy newInstance() {
+        return new CoordinatedBackOffPolicy();
+    }
+
+    @Override
+    protected void cloneValues(ExponentialBackOffPolicy target) {
+        super.cloneValues(target);
+        CoordinatedBackOffPolicy policy = (CoordinatedBackOffPolicy)target;
+        policy.setCalendar(this.calendar);
+        policy.setSpread(this.spread);
+    }
+
+    static class CoordinatedBackOffContext extends ExponentialBackOffPolicy.ExponentialBackOffContext {
+        private final RetrySlotCalendar calendar;
+        private final double spread;
+
+        public CoordinatedBackOffContext(long expSeed, double multiplier, long maxInterval, Supplier<Long> expSeedSupplier,
+                                         Supplier<Double> multiplierSupplier, Supplier<Long> maxIntervalSupplier,
+                                         RetrySlotCalendar calendar, double spread) {
+            super(expSeed, multiplier, maxInterval, expSeedSupplier, multiplierSupplier, maxIntervalSupplier);
+            this.calendar = calendar;
+            this.spread = spread;
+        }
+
+        @Override
+        public long getSleepAndIncrement() {
+            long sleep = super.getSleepAndIncrement();
+            long now = System.currentTimeMillis();
+            long window = Math.max((long)(sleep * this.spread), this.calendar.getBucketWidth());
+            return this.calendar.reserve(now + sleep, window) - now;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return ClassUtils.getShortName(getClass()) + "[initialInterval=" + getInitialInterval() + ", multiplier="
+                + getMultiplier() + ", maxInterval=" + getMaxInterval() + ", spread=" + this.spread + "]";
+    }
+}
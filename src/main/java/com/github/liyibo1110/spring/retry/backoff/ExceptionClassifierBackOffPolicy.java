@@ -0,0 +1,97 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import com.github.liyibo1110.spring.classify.SubclassClassifier;
+import com.github.liyibo1110.spring.retry.RetryContext;
+import org.springframework.util.Assert;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 根据最近一次异常的类型，动态选择一组已注入BackOffPolicy中的一个（和ExceptionClassifierRetryPolicy对应），
+ * 例如连接被重置时5毫秒后就重试，被限流时则等待几秒。
+ * 每个delegate在第一次被选中时才start，各自维护自己的BackOffContext，所以不同异常交替出现时，各自的指数增长互不影响
+ * @author liyibo
+ * @date 2026-10-19 23:40
+ */
+public class ExceptionClassifierBackOffPolicy implements SleepingBackOffPolicy<ExceptionClassifierBackOffPolicy> {
+    private Map<Class<? extends Throwable>, BackOffPolicy> policyMap = new LinkedHashMap<>();
+
+    private BackOffPolicy defaultPolicy = new NoBackOffPolicy();
+
+    private SubclassClassifier<Throwable, BackOffPolicy> classifier = new SubclassClassifier<>(this.defaultPolicy);
+
+    public void setPolicyMap(Map<Class<? extends Throwable>, BackOffPolicy> policyMap) {
+        Assert.notNull(policyMap, "'policyMap' cannot be null");
+        this.policyMap = new LinkedHashMap<>(policyMap);
+        this.classifier = new SubclassClassifier<>(this.policyMap, this.defaultPolicy);
+    }
+
+    /**
+     * 没有匹配任何异常类型（或者还没有异常）时使用的policy，默认不等待
+     */
+    public void setDefaultPolicy(BackOffPolicy defaultPolicy) {
+        Assert.notNull(defaultPolicy, "'defaultPolicy' cannot be null");
+        this.defaultPolicy = defaultPolicy;
+        this.classifier = new SubclassClassifier<>(this.policyMap, this.defaultPolicy);
+    }
+
+    /**
+     * 复制一份，所有支持Sleeper的delegate也都换成附带sleeper的副本
+     */
+    @Override
+    public ExceptionClassifierBackOffPolicy withSleeper(Sleeper sleeper) {
+        ExceptionClassifierBackOffPolicy res = new ExceptionClassifierBackOffPolicy();
+        Map<Class<? extends Throwable>, BackOffPolicy> map = new LinkedHashMap<>();
+        for(Map.Entry<Class<? extends Throwable>, BackOffPolicy> entry : this.policyMap.entrySet())
+            map.put(entry.getKey(), withSleeper(entry.getValue(), sleeper));
+        res.setDefaultPolicy(withSleeper(this.defaultPolicy, sleeper));
+        res.setPolicyMap(map);
+        return res;
+    }
+
+    private static BackOffPolicy withSleeper(BackOffPolicy policy, Sleeper sleeper) {
+        if(policy instanceof SleepingBackOffPolicy<?> sleeping)
+            return sleeping.withSleeper(sleeper);
+        return policy;
+    }
+
+    @Override
+    public BackOffContext start(RetryContext context) {
+        return new ExceptionClassifierBackOffContext(context);
+    }
+
+    @Override
+    public void backOff(BackOffContext backOffContext) throws BackOffInterruptedException {
+        ExceptionClassifierBackOffContext context = (ExceptionClassifierBackOffContext)backOffContext;
+        Throwable throwable = context.retryContext.getLastThrowable();
+        BackOffPolicy policy = throwable == null ? this.defaultPolicy : this.classifier.classify(throwable);
+        Assert.notNull(policy, "Could not locate backoff policy for exception=[" + throwable + "].");
+        policy.backOff(context.getContext(policy));
+    }
+
+    /**
+     * 保存每个已选中过的delegate对应的BackOffContext（StatelessBackOffPolicy的context是null，所以用containsKey判断）
+     */
+    static class ExceptionClassifierBackOffContext implements BackOffContext {
+        private final RetryContext retryContext;
+
+        private final Map<BackOffPolicy, BackOffContext> contexts = new HashMap<>();
+
+        ExceptionClassifierBackOffContext(RetryContext retryContext) {
+            this.retryContext = retryContext;
+        }
+
+        BackOffContext getContext(BackOffPolicy policy) {
+            if(!this.contexts.containsKey(policy))
+                this.contexts.put(policy, policy.start(this.retryContext));
+            return this.contexts.get(policy);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ExceptionClassifierBackOffPolicy[policies=" + this.policyMap + ", default=" + this.defaultPolicy + "]";
+    }
+}
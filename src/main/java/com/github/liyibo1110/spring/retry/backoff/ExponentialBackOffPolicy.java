@@ -147,6 +147,14 @@ public class ExponentialBackOffPolicy implements SleepingBackOffPolicy<Exponenti
          * 获取此轮要暂停的时间间隔，以后自动出下一轮的时间间隔
          */
         public synchronized long getSleepAndIncrement() {
+            return nextExponential();
+        }
+
+        /**
+         * getSleepAndIncrement的无锁版本，子类在确定context不会被并发使用时（每次执行独享一个context）直接调用，
+         * 不必进入父类的monitor
+         */
+        protected long nextExponential() {
             long sleep = getInterval();
             long max = getMaxInterval();
             if(sleep > max)
@@ -2,7 +2,7 @@ package com.github.liyibo1110.spring.retry.backoff;
 
 import com.github.liyibo1110.spring.retry.RetryContext;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Supplier;
 
 /**
@@ -28,15 +28,13 @@ public class ExponentialRandomBackOffPolicy extends ExponentialBackOffPolicy {
     }
 
     static class ExponentialRandomBackOffContext extends ExponentialBackOffPolicy.ExponentialBackOffContext {
-        private final Random r = new Random();
-
         public ExponentialRandomBackOffContext(long expSeed, double multiplier, long maxInterval, Supplier<Long> expSeedSupplier, Supplier<Double> multiplierSupplier, Supplier<Long> maxIntervalSupplier) {
             super(expSeed, multiplier, maxInterval, expSeedSupplier, multiplierSupplier, maxIntervalSupplier);
         }
         @Override
-        public synchronized long getSleepAndIncrement() {
-            long next = super.getSleepAndIncrement();
-            next = (long)(next * (1 + r.nextFloat() * (getMultiplier() - 1)));
+        public long getSleepAndIncrement() {
+            long next = nextExponential();   // 每次执行独享一个context，不需要父类的锁
+            next = (long)(next * (1 + ThreadLocalRandom.current().nextFloat() * (getMultiplier() - 1)));
             if(next > super.getMaxInterval())
                 next = super.getMaxInterval();
             return next;
@@ -19,7 +19,7 @@ public class FixedBackOffPolicy extends StatelessBackOffPolicy implements Sleepi
         FixedBackOffPolicy res = new FixedBackOffPolicy();
         res.backOffPeriodSupplier(backOffPeriod);
         res.setSleeper(sleeper);
-        return null;
+        return res;
     }
 
     public void setSleeper(Sleeper sleeper) {
@@ -0,0 +1,60 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * 能感知ForkJoinPool的实现，在ForkJoinWorkerThread上（例如parallel stream、CompletableFuture的默认executor）
+ * 通过ForkJoinPool.managedBlock来等待，线程池会在等待期间补充一个线程，
+ * 不会因为大量backoff占住worker而降低并行度，甚至把common pool饿死。
+ * 其它线程上直接委托给delegate（默认ThreadWaitSleeper）
+ * @author liyibo
+ * @date 2026-10-20 00:10
+ */
+public class ForkJoinAwareSleeper implements Sleeper {
+    private final Sleeper delegate;
+
+    public ForkJoinAwareSleeper() {
+        this(new ThreadWaitSleeper());
+    }
+
+    public ForkJoinAwareSleeper(Sleeper delegate) {
+        Assert.notNull(delegate, "'delegate' cannot be null");
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void sleep(long backOffPeriod) throws InterruptedException {
+        if(backOffPeriod > 0 && Thread.currentThread() instanceof ForkJoinWorkerThread)
+            ForkJoinPool.managedBlock(new SleepBlocker(this.delegate, backOffPeriod));
+        else
+            this.delegate.sleep(backOffPeriod);
+    }
+
+    private static final class SleepBlocker implements ForkJoinPool.ManagedBlocker {
+        private final Sleeper delegate;
+        private final long backOffPeriod;
+        private boolean done;
+
+        private SleepBlocker(Sleeper delegate, long backOffPeriod) {
+            this.delegate = delegate;
+            this.backOffPeriod = backOffPeriod;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            if(!this.done) {
+                this.delegate.sleep(this.backOffPeriod);
+                this.done = true;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return this.done;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 哈希时间轮定时器，用1个ticker线程管理大量（百万级）等待中的backoff，
+ * 相比每个等待占用1个线程sleep，或者ScheduledThreadPoolExecutor的堆（插入和取消都是O(log n)），插入和取消都是O(1)。
+ * 1、newTimeout只是把任务放进无锁队列，ticker线程每个tick把它们挂到对应的bucket（bucket是双向链表）。
+ * 2、cancel只是CAS修改状态并放进取消队列，ticker线程下一个tick从bucket中摘除。
+ * 3、精度是tickDuration，任务在ticker线程上执行，必须很快（例如唤醒等待的线程，或者提交到别的executor）
+ * @author liyibo
+ * @date 2026-10-19 17:00
+ */
+public class HashedWheelTimer {
+    private static final Log logger = LogFactory.getLog(HashedWheelTimer.class);
+
+    private static final int STATE_INIT = 0;
+    private static final int STATE_STARTED = 1;
+    private static final int STATE_STOPPED = 2;
+
+    private static final AtomicInteger INSTANCE_COUNT = new AtomicInteger();
+
+    private final long tickDuration;
+
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+
+    private final Thread worker;
+
+    /** 等待中的任务数（包括还在pending队列中的） */
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    /** ticker线程启动的时间（纳秒），所有deadline都是相对于它的 */
+    private volatile long startTime;
+
+    public HashedWheelTimer() {
+        this(10, TimeUnit.MILLISECONDS, 512);
+    }
+
+    public HashedWheelTimer(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        Assert.isTrue(tickDuration > 0, "'tickDuration' must be positive");
+        Assert.isTrue(ticksPerWheel > 0 && ticksPerWheel <= (1 << 30), "'ticksPerWheel' must be in (0, 2^30]");
+        int size = Integer.highestOneBit(ticksPerWheel - 1) << 1;   // 向上取2的幂，用位运算定位bucket
+        size = Math.max(size, 1);
+        this.wheel = new Bucket[size];
+        for(int i = 0; i < size; i++)
+            this.wheel[i] = new Bucket();
+        this.mask = size - 1;
+        this.tickDuration = Math.max(unit.toNanos(tickDuration), TimeUnit.MILLISECONDS.toNanos(1));
+        this.worker = new Thread(this::run, "retry-timer-" + INSTANCE_COUNT.incrementAndGet());
+        this.worker.setDaemon(true);
+    }
+
+    /**
+     * 在delay之后执行task（在ticker线程上），返回的Timeout可以用来取消
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        Assert.notNull(task, "'task' cannot be null");
+        start();
+        long deadline = System.nanoTime() + unit.toNanos(Math.max(delay, 0)) - this.startTime;
+        if(delay > 0 && deadline < 0)   // 溢出了（例如delay非常大），不处理的话负的deadline会被当成已经到期而立即执行
+            deadline = Long.MAX_VALUE;
+        Timeout timeout = new Timeout(this, task, deadline);
+        this.pendingCount.incrementAndGet();
+        this.pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * 当前等待中的任务数量
+     */
+    public int pendingTimeouts() {
+        return this.pendingCount.get();
+    }
+
+    /**
+     * 停止ticker线程，返回还没有执行、也没有取消的任务
+     */
+    public List<Timeout> stop() {
+        if(this.state.getAndSet(STATE_STOPPED) != STATE_STARTED)
+            return new ArrayList<>();
+        this.worker.interrupt();
+        boolean interrupted = false;
+        while(this.worker.isAlive()) {
+            try {
+                this.worker.join(100);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted)
+            Thread.currentThread().interrupt();
+        List<Timeout> unprocessed = new ArrayList<>();
+        for(Bucket bucket : this.wheel)
+            bucket.drainTo(unprocessed);
+        Timeout timeout;
+        while((timeout = this.pendingTimeouts.poll()) != null) {
+            if(!timeout.isCancelled())
+                unprocessed.add(timeout);
+        }
+        return unprocessed;
+    }
+
+    private void start() {
+        int current = this.state.get();
+        if(current == STATE_INIT) {
+            if(this.state.compareAndSet(STATE_INIT, STATE_STARTED)) {
+                this.startTime = System.nanoTime();
+                this.worker.start();
+            }
+        }else if(current == STATE_STOPPED) {
+            throw new IllegalStateException("Timer has been stopped");
+        }
+        while(this.startTime == 0)  // 等待启动线程设置好startTime
+            Thread.onSpinWait();
+    }
+
+    private void run() {
+        long tick = 0;
+        while(this.state.get() == STATE_STARTED) {
+            long deadline = waitForNextTick(tick);
+            if(deadline < 0)
+                continue;
+            processCancelled();
+            transferPending(tick);
+            this.wheel[(int)(tick & this.mask)].expire(deadline);
+            tick++;
+        }
+    }
+
+    /**
+     * 等到第tick+1个tick开始，返回当前相对于startTime的时间，被stop中断则返回-1
+     */
+    private long waitForNextTick(long tick) {
+        long deadline = this.tickDuration * (tick + 1);
+        while(true) {
+            long current = System.nanoTime() - this.startTime;
+            long sleepNanos = deadline - current;
+            if(sleepNanos <= 0)
+                return current;
+            LockSupport.parkNanos(this, sleepNanos);
+            if(this.state.get() != STATE_STARTED)
+                return -1;
+        }
+    }
+
+    /**
+     * 把pending队列中的任务挂到对应的bucket，每个tick最多转移100000个，避免ticker线程被大量插入拖慢
+     */
+    private void transferPending(long tick) {
+        for(int i = 0; i < 100000; i++) {
+            Timeout timeout = this.pendingTimeouts.poll();
+            if(timeout == null)
+                return;
+            if(timeout.isCancelled())
+                continue;
+            long calculated = timeout.deadline / this.tickDuration;
+            timeout.remainingRounds = (calculated - tick) / this.wheel.length;
+            long ticks = Math.max(calculated, tick);    // 已经过期的任务放到当前tick，马上执行
+            this.wheel[(int)(ticks & this.mask)].add(timeout);
+        }
+    }
+
+    private void processCancelled() {
+        Timeout timeout;
+        while((timeout = this.cancelledTimeouts.poll()) != null) {
+            if(timeout.bucket != null)
+                timeout.bucket.remove(timeout);
+        }
+    }
+
+    /**
+     * 一个定时任务的句柄，字段除了state之外都只由ticker线程访问
+     */
+    public static final class Timeout {
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+        private volatile int state = ST_INIT;
+        private long remainingRounds;
+        private Timeout next;
+        private Timeout prev;
+        private Bucket bucket;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * 取消任务，已经执行或者已经取消的返回false
+         */
+        public boolean cancel() {
+            if(!STATE.compareAndSet(this, ST_INIT, ST_CANCELLED))
+                return false;
+            this.timer.pendingCount.decrementAndGet();
+            this.timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return this.state == ST_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return this.state == ST_EXPIRED;
+        }
+
+        private void expire() {
+            if(!STATE.compareAndSet(this, ST_INIT, ST_EXPIRED))
+                return;
+            this.timer.pendingCount.decrementAndGet();
+            try {
+                this.task.run();
+            } catch (Throwable e) {
+                logger.warn("An exception was thrown by timer task", e);
+            }
+        }
+    }
+
+    /**
+     * 时间轮中的一格，双向链表，只由ticker线程访问，所以不需要同步
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if(this.head == null) {
+                this.head = this.tail = timeout;
+            }else {
+                this.tail.next = timeout;
+                timeout.prev = this.tail;
+                this.tail = timeout;
+            }
+        }
+
+        /**
+         * 执行所有到期的任务，还没到期的（圈数大于0）减少1圈
+         */
+        void expire(long deadline) {
+            Timeout timeout = this.head;
+            while(timeout != null) {
+                Timeout next = timeout.next;
+                if(timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    if(timeout.deadline <= deadline)
+                        timeout.expire();
+                    else    // 不应该出现，说明放错了bucket
+                        throw new IllegalStateException("timeout.deadline (" + timeout.deadline + ") > deadline (" + deadline + ")");
+                }else if(timeout.isCancelled()) {
+                    remove(timeout);
+                }else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if(timeout.bucket != this)
+                return;
+            Timeout next = timeout.next;
+            if(timeout.prev != null)
+                timeout.prev.next = next;
+            if(next != null)
+                next.prev = timeout.prev;
+            if(timeout == this.head)
+                this.head = next;
+            if(timeout == this.tail)
+                this.tail = timeout.prev;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        void drainTo(List<Timeout> unprocessed) {
+            Timeout timeout = this.head;
+            while(timeout != null) {
+                Timeout next = timeout.next;
+                if(!timeout.isExpired() && !timeout.isCancelled())
+                    unprocessed.add(timeout);
+                remove(timeout);
+                timeout = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * backoff的抖动算法（参考AWS关于Exponential Backoff And Jitter的分析），
+ * 目的是让同一时刻一起失败的大量调用，在重试时错开，而不是再一起打到刚恢复的下游。
+ * 随机数都来自ThreadLocalRandom，不需要任何锁
+ * @author liyibo
+ * @date 2026-10-19 18:10
+ */
+public enum Jitter {
+    /**
+     * 不抖动，就是指数backoff本身：min(cap, base * multiplier ^ n)
+     */
+    NONE {
+        @Override
+        long next(long exponential, long base, long cap, long previous) {
+            return exponential;
+        }
+    },
+
+    /**
+     * 完全抖动：random(0, exponential)，分散效果最好，但单次可能等待很短
+     */
+    FULL {
+        @Override
+        long next(long exponential, long base, long cap, long previous) {
+            return random(0, exponential);
+        }
+    },
+
+    /**
+     * 等值抖动：exponential / 2 + random(0, exponential / 2)，保证至少等待一半
+     */
+    EQUAL {
+        @Override
+        long next(long exponential, long base, long cap, long previous) {
+            long half = exponential / 2;
+            return half + random(0, exponential - half);
+        }
+    },
+
+    /**
+     * 去相关抖动：min(cap, random(base, previous * 3))，下一次只和上一次的实际等待有关，不需要指数计数
+     */
+    DECORRELATED {
+        @Override
+        long next(long exponential, long base, long cap, long previous) {
+            long upper = previous > Long.MAX_VALUE / 3 ? Long.MAX_VALUE : previous * 3;
+            return Math.min(cap, random(base, Math.max(base, upper)));
+        }
+    };
+
+    /**
+     * 计算本次要等待的时间
+     * @param exponential 不抖动时本次的等待时间（已经被cap限制）
+     * @param base 初始等待时间
+     * @param cap 最大等待时间
+     * @param previous 上一次实际的等待时间，第一次为base
+     */
+    abstract long next(long exponential, long base, long cap, long previous);
+
+    /**
+     * [min, max]范围内均匀分布的随机数
+     */
+    static long random(long min, long max) {
+        if(max <= min)
+            return min;
+        if(max == Long.MAX_VALUE)
+            return ThreadLocalRandom.current().nextLong(min, max);
+        return ThreadLocalRandom.current().nextLong(min, max + 1);
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import com.github.liyibo1110.spring.retry.RetryContext;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import java.util.function.Supplier;
+
+/**
+ * 带抖动的指数BackOffPolicy实现，指数部分（initialInterval、multiplier、maxInterval以及对应的supplier）和
+ * ExponentialBackOffPolicy完全一致，在此基础上按Jitter算法随机化每次的等待时间
+ * @author liyibo
+ * @date 2026-10-19 18:20
+ */
+public class JitterBackOffPolicy extends ExponentialBackOffPolicy {
+    private Jitter jitter = Jitter.FULL;
+
+    public void setJitter(Jitter jitter) {
+        Assert.notNull(jitter, "'jitter' cannot be null");
+        this.jitter = jitter;
+    }
+
+    public Jitter getJitter() {
+        return this.jitter;
+    }
+
+    @Override
+    public BackOffContext start(RetryContext context) {
+        return new JitterBackOffContext(getInitialInterval(), getMultiplier(), getMaxInterval(),
+                getInitialIntervalSupplier(), getMultiplierSupplier(), getMaxIntervalSupplier(), this.jitter);
+    }
+
+    @Override
+    protected ExponentialBackOffPolicy newInstance() {
+        return new JitterBackOffPolicy();
+    }
+
+    @Override
+    protected void cloneValues(ExponentialBackOffPolicy target) {
+        super.cloneValues(target);
+        ((JitterBackOffPolicy)target).setJitter(this.jitter);
+    }
+
+    /**
+     * 每次执行独享一个context，所以这里的状态不会有竞争，指数部分也用父类的无锁版本计算，不进入monitor
+     */
+    static class JitterBackOffContext extends ExponentialBackOffPolicy.ExponentialBackOffContext {
+        private final Jitter jitter;
+        /** 初始等待时间（第1次的指数等待时间），为-1表示还没有开始 */
+        private long base = -1;
+        /** 上一次实际等待的时间，去相关抖动使用 */
+        private long previous;
+
+        public JitterBackOffContext(long expSeed, double multiplier, long maxInterval, Supplier<Long> expSeedSupplier,
+                                    Supplier<Double> multiplierSupplier, Supplier<Long> maxIntervalSupplier, Jitter jitter) {
+            super(expSeed, multiplier, maxInterval, expSeedSupplier, multiplierSupplier, maxIntervalSupplier);
+            this.jitter = jitter;
+        }
+
+        @Override
+        public long getSleepAndIncrement() {
+            long exponential = nextExponential();
+            if(this.base < 0) {
+                this.base = exponential;
+                this.previous = exponential;
+            }
+            long next = this.jitter.next(exponential, this.base, getMaxInterval(), this.previous);
+            this.previous = next;
+            return next;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return ClassUtils.getShortName(getClass()) + "[initialInterval=" + getInitialInterval() + ", multiplier="
+                + getMultiplier() + ", maxInterval=" + getMaxInterval() + ", jitter=" + this.jitter + "]";
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import com.github.liyibo1110.spring.retry.RetryContext;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 优先使用下游给出的重试时间的BackOffPolicy实现，例如HTTP 429/503的Retry-After，或者携带了等待时间的限流异常。
+ * 1、用extractor从RetryContext.getLastThrowable()中提取等待时间，提取不到（返回null）则按ExponentialBackOffPolicy的指数规则计算。
+ * 2、无论哪种来源，都会被限制在maxInterval以内，也不会超过retry的剩余时间（RetryContext.DEADLINE）。
+ * 使用下游给出的等待时间时，指数规则不会前进
+ * @author liyibo
+ * @date 2026-10-19 19:10
+ */
+public class RetryAfterBackOffPolicy extends ExponentialBackOffPolicy {
+    private Function<Throwable, Duration> extractor = t -> null;
+
+    public RetryAfterBackOffPolicy() {
+
+    }
+
+    public RetryAfterBackOffPolicy(Function<Throwable, Duration> extractor) {
+        setExtractor(extractor);
+    }
+
+    public void setExtractor(Function<Throwable, Duration> extractor) {
+        Assert.notNull(extractor, "'extractor' cannot be null");
+        this.extractor = extractor;
+    }
+
+    /**
+     * 解析HTTP的Retry-After头，支持delta-seconds（例如"120"）和HTTP-date（例如"Wed, 21 Oct 2026 07:28:00 GMT"）两种格式，
+     * 日期已经过去返回Duration.ZERO，无法解析返回null（即按指数规则退避），可以直接在extractor中使用
+     */
+    public static Duration parseRetryAfter(String value) {
+        if(!StringUtils.hasText(value))
+            return null;
+        String text = value.trim();
+        try {
+            long seconds = Long.parseLong(text);
+            return seconds < 0 ? null : Duration.ofSeconds(seconds);
+        } catch (NumberFormatException e) {
+            // 不是delta-seconds，继续按HTTP-date解析
+        }
+        try {
+            Instant date = ZonedDateTime.parse(text, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            Duration duration = Duration.between(Instant.now(), date);
+            return duration.isNegative() ? Duration.ZERO : duration;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public BackOffContext start(RetryContext context) {
+        return new RetryAfterBackOffContext(getInitialInterval(), getMultiplier(), getMaxInterval(),
+                getInitialIntervalSupplier(), getMultiplierSupplier(), getMaxIntervalSupplier(), context, this.extractor);
+    }
+
+    @Override
+    protected ExponentialBackOffPolicy newInstance() {
+        return new RetryAfterBackOffPolicy();
+    }
+
+    @Override
+    protected void cloneValues(ExponentialBackOffPolicy target) {
+        super.cloneValues(target);
+        ((RetryAfterBackOffPolicy)target).setExtractor(this.extractor);
+    }
+
+    static class RetryAfterBackOffContext extends ExponentialBackOffPolicy.ExponentialBackOffContext {
+        private final RetryContext retryContext;
+        private final Function<Throwable, Duration> extractor;
+
+        public RetryAfterBackOffContext(long expSeed, double multiplier, long maxInterval, Supplier<Long> expSeedSupplier,
+                                        Supplier<Double> multiplierSupplier, Supplier<Long> maxIntervalSupplier,
+                                        RetryContext retryContext, Function<Throwable, Duration> extractor) {
+            super(expSeed, multiplier, maxInterval, expSeedSupplier, multiplierSupplier, maxIntervalSupplier);
+            this.retryContext = retryContext;
+            this.extractor = extractor;
+        }
+
+        @Override
+        public long getSleepAndIncrement() {
+            Duration hint = null;
+            Throwable throwable = this.retryContext != null ? this.retryContext.getLastThrowable() : null;
+            if(throwable != null)
+                hint = this.extractor.apply(throwable);
+            long sleep = hint != null ? Math.max(hint.toMillis(), 0) : super.getSleepAndIncrement();
+            sleep = Math.min(sleep, getMaxInterval());
+            if(this.retryContext != null && this.retryContext.getAttribute(RetryContext.DEADLINE) instanceof Long deadline)
+                sleep = Math.min(sleep, Math.max(deadline - System.currentTimeMillis(), 0));
+            return sleep;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return ClassUtils.getShortName(getClass()) + "[initialInterval=" + getInitialInterval() + ", multiplier="
+                + getMultiplier() + ", maxInterval=" + getMaxInterval() + "]";
+    }
+}
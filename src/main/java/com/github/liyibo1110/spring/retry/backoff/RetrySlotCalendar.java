@@ -0,0 +1,89 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 按时间分桶的重试日历，每个桶（bucketWidth毫秒）最多接纳capacity次重试，
+ * 同一label的调用方共享一个日历，各自在里面预约重试时间，这样同一时刻失败的大量调用不会在同一时刻一起重试。
+ * 桶是一个环形的AtomicLongArray，每个元素打包了[桶的绝对编号（高48位）| 已预约数（低16位）]，
+ * 编号过期的元素视为空桶，预约只用CAS，不需要锁
+ * @author liyibo
+ * @date 2026-10-19 20:30
+ */
+public class RetrySlotCalendar {
+    private static final int COUNT_BITS = 16;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final long bucketWidth;
+
+    private final int capacity;
+
+    private final AtomicLongArray buckets;
+
+    public RetrySlotCalendar() {
+        this(10, 20, 8192);
+    }
+
+    /**
+     * @param bucketWidth 每个桶的宽度（毫秒）
+     * @param capacity 每个桶最多接纳的重试次数
+     * @param size 环的大小，size * bucketWidth就是能预约的最远时间，超过的部分不再协调
+     */
+    public RetrySlotCalendar(long bucketWidth, int capacity, int size) {
+        Assert.isTrue(bucketWidth > 0, "'bucketWidth' must be positive");
+        Assert.isTrue(capacity > 0 && capacity <= COUNT_MASK, "'capacity' must be in (0, 65535]");
+        Assert.isTrue(size > 0, "'size' must be positive");
+        this.bucketWidth = bucketWidth;
+        this.capacity = capacity;
+        this.buckets = new AtomicLongArray(size);
+    }
+
+    public long getBucketWidth() {
+        return this.bucketWidth;
+    }
+
+    /**
+     * 在[earliest, earliest + window]范围内预约一个重试时间（System.currentTimeMillis），
+     * 从范围内随机的一个桶开始（环绕）找没满的桶，避免所有调用方都先去抢最早的那个桶；
+     * 范围内都满了（或者超出了环的范围），就随机落在紧接着的下一个window里，而不是全部挤到范围的终点
+     */
+    public long reserve(long earliest, long window) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long span = Math.max(window, 0);
+        long first = earliest / this.bucketWidth;
+        long last = (earliest + span) / this.bucketWidth;
+        long limit = Math.min(last, first + this.buckets.length() - 1);
+        long count = limit - first + 1;
+        long offset = random.nextLong(count);
+        for(long i = 0; i < count; i++) {
+            long bucket = first + (offset + i) % count;
+            if(tryReserve(bucket)) {
+                long start = Math.max(bucket * this.bucketWidth, earliest);
+                long end = Math.min((bucket + 1) * this.bucketWidth, earliest + span + 1);
+                return start + random.nextLong(Math.max(end - start, 1));
+            }
+        }
+        return earliest + span + random.nextLong(Math.max(span, 1));
+    }
+
+    private boolean tryReserve(long bucket) {
+        int index = (int)Math.floorMod(bucket, (long)this.buckets.length());
+        while(true) {
+            long value = this.buckets.get(index);
+            long epoch = value >>> COUNT_BITS;
+            long count = value & COUNT_MASK;
+            long next;
+            if(epoch < bucket)  // 过期的桶，重新开始计数
+                next = (bucket << COUNT_BITS) | 1;
+            else if(epoch == bucket && count < this.capacity)
+                next = value + 1;
+            else    // 已满，或者被更远的时间占用了
+                return false;
+            if(this.buckets.compareAndSet(index, value, next))
+                return true;
+        }
+    }
+}
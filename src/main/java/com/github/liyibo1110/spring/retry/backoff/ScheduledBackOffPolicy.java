@@ -0,0 +1,66 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import com.github.liyibo1110.spring.retry.RetryContext;
+import org.springframework.util.Assert;
+
+/**
+ * 按BackOffSchedule时间表等待的BackOffPolicy实现，时间表在创建时就已经算好，policy本身没有任何可变状态，
+ * 每次执行只需要一个记录下一次使用第几个值的BackOffContext（只有一个int游标）。
+ * 游标只属于本policy，不能直接用RetryContext.getRetryCount()，因为作为委托（例如按异常类型选择、分级backoff）时，
+ * 本policy只负责其中一部分重试
+ * @author liyibo
+ * @date 2026-10-19 21:35
+ */
+public class ScheduledBackOffPolicy implements SleepingBackOffPolicy<ScheduledBackOffPolicy> {
+    private final BackOffSchedule schedule;
+
+    private Sleeper sleeper = new ThreadWaitSleeper();
+
+    public ScheduledBackOffPolicy(BackOffSchedule schedule) {
+        Assert.notNull(schedule, "'schedule' cannot be null");
+        this.schedule = schedule;
+    }
+
+    @Override
+    public ScheduledBackOffPolicy withSleeper(Sleeper sleeper) {
+        ScheduledBackOffPolicy res = new ScheduledBackOffPolicy(this.schedule);
+        res.setSleeper(sleeper);
+        return res;
+    }
+
+    public void setSleeper(Sleeper sleeper) {
+        this.sleeper = sleeper;
+    }
+
+    public BackOffSchedule getSchedule() {
+        return this.schedule;
+    }
+
+    @Override
+    public BackOffContext start(RetryContext context) {
+        return new ScheduledBackOffContext();
+    }
+
+    @Override
+    public void backOff(BackOffContext backOffContext) throws BackOffInterruptedException {
+        ScheduledBackOffContext context = (ScheduledBackOffContext)backOffContext;
+        try {
+            this.sleeper.sleep(this.schedule.intervalAt(context.cursor++));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BackOffInterruptedException("Thread interrupted while sleeping", e);
+        }
+    }
+
+    /**
+     * 一次执行内下一次backoff使用时间表的第几个值，同一次执行的backoff不会并发
+     */
+    static class ScheduledBackOffContext implements BackOffContext {
+        private int cursor;
+    }
+
+    @Override
+    public String toString() {
+        return "ScheduledBackOffPolicy[schedule=" + this.schedule + "]";
+    }
+}
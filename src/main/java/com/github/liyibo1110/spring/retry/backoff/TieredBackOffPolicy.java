@@ -0,0 +1,83 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import com.github.liyibo1110.spring.retry.RetryContext;
+import org.springframework.util.Assert;
+
+/**
+ * 分级的BackOffPolicy实现（和TieredRetryPolicy配对使用），每一级有自己的重试次数和backoff，
+ * 第r次backoff由r落在哪一级决定（超出所有级别的按最后一级），r由本policy自己的context计数，
+ * 不使用全局的RetryContext.getRetryCount()，这样作为其它policy的delegate时也能正确分级。
+ * 每一级的delegate在第一次用到时才start，所以指数增长等状态在每一级内独立计算
+ * @author liyibo
+ * @date 2026-10-20 00:40
+ */
+public class TieredBackOffPolicy implements SleepingBackOffPolicy<TieredBackOffPolicy> {
+    /** 每一级的重试次数 */
+    private final int[] retries;
+
+    private final BackOffPolicy[] policies;
+
+    public TieredBackOffPolicy(int[] retries, BackOffPolicy[] policies) {
+        Assert.isTrue(retries.length > 0 && retries.length == policies.length,
+                "'retries' and 'policies' must be non-empty and of the same length");
+        this.retries = retries.clone();
+        this.policies = policies.clone();
+    }
+
+    @Override
+    public TieredBackOffPolicy withSleeper(Sleeper sleeper) {
+        BackOffPolicy[] policies = new BackOffPolicy[this.policies.length];
+        for(int i = 0; i < policies.length; i++) {
+            policies[i] = this.policies[i] instanceof SleepingBackOffPolicy<?> sleeping
+                    ? sleeping.withSleeper(sleeper) : this.policies[i];
+        }
+        return new TieredBackOffPolicy(this.retries, policies);
+    }
+
+    @Override
+    public BackOffContext start(RetryContext context) {
+        return new TieredBackOffContext(context, this.policies.length);
+    }
+
+    @Override
+    public void backOff(BackOffContext backOffContext) throws BackOffInterruptedException {
+        TieredBackOffContext context = (TieredBackOffContext)backOffContext;
+        int tier = tierOf(++context.backOffs);
+        if(!context.started[tier]) {
+            context.contexts[tier] = this.policies[tier].start(context.retryContext);
+            context.started[tier] = true;
+        }
+        this.policies[tier].backOff(context.contexts[tier]);
+    }
+
+    /**
+     * 第retry次backoff属于哪一级（从1开始计数）
+     */
+    int tierOf(int retry) {
+        int cumulative = 0;
+        for(int i = 0; i < this.retries.length; i++) {
+            cumulative += this.retries[i];
+            if(retry <= cumulative)
+                return i;
+        }
+        return this.retries.length - 1;
+    }
+
+    static class TieredBackOffContext implements BackOffContext {
+        private final RetryContext retryContext;
+
+        private final BackOffContext[] contexts;
+
+        /** StatelessBackOffPolicy的context是null，所以单独记录是否已经start过 */
+        private final boolean[] started;
+
+        /** 本policy已经执行过的backoff次数 */
+        private int backOffs;
+
+        TieredBackOffContext(RetryContext retryContext, int tiers) {
+            this.retryContext = retryContext;
+            this.contexts = new BackOffContext[tiers];
+            this.started = new boolean[tiers];
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基于HashedWheelTimer的实现，等待的线程只是park，由时间轮的ticker线程到期唤醒，
+ * 和虚拟线程配合时，大量等待中的backoff不会占用任何平台线程，精度是时间轮的tickDuration。
+ * 不指定timer时使用进程内共享的默认时间轮
+ * @author liyibo
+ * @date 2026-10-19 17:30
+ */
+public class TimerWheelSleeper implements Sleeper {
+    private transient HashedWheelTimer timer;
+
+    public TimerWheelSleeper() {
+
+    }
+
+    public TimerWheelSleeper(HashedWheelTimer timer) {
+        this.timer = timer;
+    }
+
+    @Override
+    public void sleep(long backOffPeriod) throws InterruptedException {
+        if(Thread.interrupted())
+            throw new InterruptedException();
+        if(backOffPeriod <= 0)
+            return;
+        Wakeup wakeup = new Wakeup(Thread.currentThread());
+        HashedWheelTimer.Timeout timeout = getTimer().newTimeout(wakeup, backOffPeriod, TimeUnit.MILLISECONDS);
+        while(!wakeup.done) {
+            LockSupport.park(this);
+            if(Thread.interrupted()) {
+                timeout.cancel();
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    private HashedWheelTimer getTimer() {
+        HashedWheelTimer timer = this.timer;
+        return timer != null ? timer : DefaultTimerHolder.TIMER;
+    }
+
+    private static final class Wakeup implements Runnable {
+        private final Thread thread;
+        private volatile boolean done;
+
+        private Wakeup(Thread thread) {
+            this.thread = thread;
+        }
+
+        @Override
+        public void run() {
+            this.done = true;
+            LockSupport.unpark(this.thread);
+        }
+    }
+
+    /**
+     * 延迟创建默认时间轮（ticker线程在第一次使用时才启动）
+     */
+    private static final class DefaultTimerHolder {
+        private static final HashedWheelTimer TIMER = new HashedWheelTimer();
+    }
+}
@@ -2,7 +2,7 @@ package com.github.liyibo1110.spring.retry.backoff;
 
 import org.springframework.util.Assert;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Supplier;
 
 /**
@@ -16,7 +16,6 @@ public class UniformRandomBackOffPolicy extends StatelessBackOffPolicy implement
     private static final long DEFAULT_BACK_OFF_MAX_PERIOD = 1500L;
     private Supplier<Long> minBackOffPeriod = () -> DEFAULT_BACK_OFF_MIN_PERIOD;
     private Supplier<Long> maxBackOffPeriod = () -> DEFAULT_BACK_OFF_MAX_PERIOD;
-    private final Random random = new Random(System.currentTimeMillis());
     private Sleeper sleeper = new ThreadWaitSleeper();
 
     @Override
@@ -63,7 +62,7 @@ public class UniformRandomBackOffPolicy extends StatelessBackOffPolicy implement
         try {
             Long min = minBackOffPeriod.get();
             Long max = maxBackOffPeriod.get();
-            long delta = max <= min ? 0 : random.nextInt((int)(max - min));
+            long delta = max <= min ? 0 : ThreadLocalRandom.current().nextLong(max - min);
             sleeper.sleep(min + delta);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
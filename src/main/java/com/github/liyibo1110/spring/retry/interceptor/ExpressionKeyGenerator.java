@@ -0,0 +1,37 @@
+package com.github.liyibo1110.spring.retry.interceptor;
+
+import com.github.liyibo1110.spring.retry.support.Args;
+import org.springframework.expression.BeanResolver;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.util.Assert;
+
+/**
+ * 根据SpEL表达式从方法参数值中计算key的实现，例如"#args[0].host"或者"args[0].host"
+ * 根对象是Args，同时把参数数组注册成了args变量，表达式计算结果为null时使用defaultKey
+ * @author liyibo
+ * @date 2026-10-19 11:12
+ */
+public class ExpressionKeyGenerator implements MethodArgumentsKeyGenerator {
+    private final Expression expression;
+    private final BeanResolver beanResolver;
+    private final Object defaultKey;
+
+    public ExpressionKeyGenerator(Expression expression, BeanResolver beanResolver, Object defaultKey) {
+        Assert.notNull(expression, "'expression' cannot be null");
+        this.expression = expression;
+        this.beanResolver = beanResolver;
+        this.defaultKey = defaultKey;
+    }
+
+    @Override
+    public Object getKey(Object[] item) {
+        // 每次都要新建EvaluationContext，因为变量是和本次调用绑定的，共享会有并发问题
+        StandardEvaluationContext context = new StandardEvaluationContext(new Args(item));
+        context.setVariable("args", item);
+        if(this.beanResolver != null)
+            context.setBeanResolver(this.beanResolver);
+        Object key = this.expression.getValue(context);
+        return key != null ? key : this.defaultKey;
+    }
+}
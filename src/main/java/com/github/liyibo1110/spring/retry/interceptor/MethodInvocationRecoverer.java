@@ -10,4 +10,12 @@ public interface MethodInvocationRecoverer<T> {
      * 尝试恢复错误或继续抛出异常
      */
     T recover(Object[] args, Throwable cause);
+
+    /**
+     * 在指定的target上恢复，拦截器会传入本次调用的target，同一个recoverer因此可以被同一个类的多个实例共享，
+     * 默认忽略target
+     */
+    default T recover(Object target, Object[] args, Throwable cause) {
+        return this.recover(args, cause);
+    }
 }
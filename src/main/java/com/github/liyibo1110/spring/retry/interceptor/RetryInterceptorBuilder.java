@@ -205,6 +205,7 @@ public abstract class RetryInterceptorBuilder<T extends MethodInterceptor> {
     public static class CircuitBreakerInterceptorBuilder extends RetryInterceptorBuilder<StatefulRetryOperationsInterceptor> {
         private final StatefulRetryOperationsInterceptor interceptor = new StatefulRetryOperationsInterceptor();
         private MethodArgumentsKeyGenerator keyGenerator;
+        private boolean useRawKey;
 
         @Override
         public CircuitBreakerInterceptorBuilder retryOperations(RetryOperations retryOperations) {
@@ -229,6 +230,14 @@ public abstract class RetryInterceptorBuilder<T extends MethodInterceptor> {
             return this;
         }
 
+        /**
+         * 直接使用keyGenerator生成的key，不再追加label（多个方法共享同一个熔断器时需要）
+         */
+        public CircuitBreakerInterceptorBuilder useRawKey(boolean useRawKey) {
+            this.useRawKey = useRawKey;
+            return this;
+        }
+
         @Override
         public CircuitBreakerInterceptorBuilder recoverer(MethodInvocationRecoverer<?> recoverer) {
             super.recoverer(recoverer);
@@ -247,6 +256,7 @@ public abstract class RetryInterceptorBuilder<T extends MethodInterceptor> {
                 this.interceptor.setKeyGenerator(this.keyGenerator);
             if(this.label != null)
                 this.interceptor.setLabel(this.label);
+            this.interceptor.setUseRawKey(this.useRawKey);
             this.interceptor.setRollbackClassifier(new BinaryExceptionClassifier(false));
             return this.interceptor;
         }
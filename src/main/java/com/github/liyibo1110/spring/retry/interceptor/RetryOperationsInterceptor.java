@@ -5,12 +5,25 @@ import com.github.liyibo1110.spring.retry.RetryCallback;
 import com.github.liyibo1110.spring.retry.RetryContext;
 import com.github.liyibo1110.spring.retry.RetryOperations;
 import com.github.liyibo1110.spring.retry.support.Args;
-import com.github.liyibo1110.spring.retry.support.RetrySynchronizationManager;
 import com.github.liyibo1110.spring.retry.support.RetryTemplate;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.springframework.aop.ProxyMethodInvocation;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * 一个MethodInterceptor的实现类，用于在业务方法调用失败时自动retry。
@@ -20,6 +33,9 @@ import org.springframework.util.Assert;
  * 此外，此方法的参数还作为Args实例暴露到methodArgs属性中
  *
  * 通俗地说，这个类作用是：把普通方法调用包装成RetryTemplate.execute()调用。
+ * 设置了asyncScheduler并且方法返回CompletableFuture / CompletionStage / Future时，
+ * 改为调用RetryTemplate.executeAsync()，按返回的future的完成结果重试，backoff由asyncScheduler延迟调度，不阻塞调用线程，
+ * 到期后的尝试在asyncExecutor上执行（默认ForkJoinPool.commonPool()），不占用调度线程
  * @author liyibo
  * @date 2026-01-28 14:25
  */
@@ -30,14 +46,25 @@ public class RetryOperationsInterceptor implements MethodInterceptor {
     /** 对应RetryContext里面的attribute name，即对应MethodInvocation.getArguments() */
     public static final String METHOD_ARGS = "methodArgs";
 
+    /** 对应RetryContext里面的attribute name，即本次调用的代理对象，recover时优先在代理上调用，执行结束后移除 */
+    public static final String PROXY = "___proxy___";
+
     private RetryOperations retryOperations = new RetryTemplate();
 
     private MethodInvocationRecoverer<?> recoverer;
 
     private String label;
 
+    private ScheduledExecutorService asyncScheduler;
+
+    private Executor asyncExecutor = ForkJoinPool.commonPool();
+
+    /** Method -> 方法级别不变的信息 */
+    private final ConcurrentMap<Method, InvocationPlan> plans = new ConcurrentHashMap<>();
+
     public void setLabel(String label) {
         this.label = label;
+        this.plans.clear();
     }
 
     public void setRetryOperations(RetryOperations retryTemplate) {
@@ -49,57 +76,144 @@ public class RetryOperationsInterceptor implements MethodInterceptor {
         this.recoverer = recoverer;
     }
 
+    /**
+     * 设置后对异步返回值的方法启用异步重试（retryOperations必须是RetryTemplate）
+     */
+    public void setAsyncScheduler(ScheduledExecutorService asyncScheduler) {
+        this.asyncScheduler = asyncScheduler;
+    }
+
+    /**
+     * 异步重试中，backoff到期之后执行下一次尝试的executor
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        Assert.notNull(asyncExecutor, "asyncExecutor cannot be null.");
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    /**
+     * 返回值类型能否用CompletableFuture表示（CompletableFuture、CompletionStage、Future）
+     */
+    public static boolean isAsyncReturnType(Class<?> returnType) {
+        return (Future.class.isAssignableFrom(returnType) || CompletionStage.class.isAssignableFrom(returnType))
+                && returnType.isAssignableFrom(CompletableFuture.class);
+    }
+
     /**
      * MethodInvocation.proceed() -> RetryCallback.doWithRetry() -> RetryTemplate.execute()
      */
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
-        /* 1、把MethodInvocation包装成RetryCallback */
-        RetryCallback<Object, Throwable> retryCallback = new MethodInvocationRetryCallback<>(invocation, this.label) {
-            @Override
-            public Object doWithRetry(RetryContext context) throws Exception {
-                context.setAttribute(RetryContext.NAME, this.label);
-                Args args = new Args(invocation.getArguments());
-                context.setAttribute(METHOD, invocation.getMethod());
-                context.setAttribute(METHOD_ARGS, args);
-
-                if(this.invocation instanceof ProxyMethodInvocation) {
-                    context.setAttribute("___proxy___", ((ProxyMethodInvocation)this.invocation).getProxy());
-                    try {
-                        // 用invocableClone目的是每次调用，会返回全新的MethodInvocation，因为proceed方法不能重复调用
-                        return ((ProxyMethodInvocation)this.invocation).invocableClone().proceed();
-                    } catch (Exception | Error e) {
-                        throw e;
-                    } catch (Throwable e) {
-                        throw new IllegalStateException(e);
-                    }
-                }else {
-                    throw new IllegalStateException(
-                            "MethodInvocation of the wrong type detected - this should not happen with Spring AOP, "
-                                    + "so please raise an issue if you see this exception");
-                }
-            }
-        };
+        /* 1、取出方法级别不变的信息，再把MethodInvocation包装成RetryCallback（同时也是RecoveryCallback） */
+        InvocationPlan plan = this.plans.computeIfAbsent(invocation.getMethod(), this::createPlan);
+        InvocationRetryCallback callback = new InvocationRetryCallback(invocation, plan.label, this.recoverer);
+        RecoveryCallback<Object> recoveryCallback = this.recoverer != null ? callback : null;
 
-        /* 2、构造RecoveryCallback（可选） */
-        RecoveryCallback<Object> recoveryCallback = this.recoverer != null
-                ? new ItemRecovererCallback(invocation.getArguments(), this.recoverer) : null;
+        /* 2、异步返回值：按future的完成结果重试，全部结束后才能清理proxy */
+        if(plan.async && this.asyncScheduler != null && this.retryOperations instanceof RetryTemplate template) {
+            RetryCallback<CompletionStage<Object>, Throwable> asyncCallback = new MethodInvocationRetryCallback<>(invocation, plan.label) {
+                @Override
+                public CompletionStage<Object> doWithRetry(RetryContext context) throws Throwable {
+                    return toCompletionStage(callback.doWithRetry(context));
+                }
+            };
+            RecoveryCallback<CompletionStage<Object>> asyncRecoveryCallback = recoveryCallback == null ? null
+                    : context -> toCompletionStage(callback.recover(context));
+            return template.executeAsync(asyncCallback, asyncRecoveryCallback, this.asyncScheduler, this.asyncExecutor)
+                    .whenComplete((result, error) -> callback.release());
+        }
 
         /* 3、交给RetryTemplate执行 */
         try {
-            return this.retryOperations.execute(retryCallback, recoveryCallback);
+            return this.retryOperations.execute(callback, recoveryCallback);
         } finally {
-            RetryContext context = RetrySynchronizationManager.getContext();
-            if(context != null)
-                context.removeAttribute("__proxy__");
+            callback.release();
         }
     }
 
-    private record ItemRecovererCallback(Object[] args, MethodInvocationRecoverer<?> recoverer)
+    private InvocationPlan createPlan(Method method) {
+        String label = StringUtils.hasText(this.label) ? this.label : ClassUtils.getQualifiedMethodName(method);
+        return new InvocationPlan(label, isAsyncReturnType(method.getReturnType()));
+    }
+
+    /**
+     * 普通的Future没有完成回调，只能在公共线程池里等待它的结果
+     */
+    private static CompletionStage<Object> toCompletionStage(Object value) {
+        if(value instanceof CompletionStage<?> stage)
+            return (CompletionStage<Object>)stage;
+        if(value instanceof Future<?> future) {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return future.get();
+                } catch (ExecutionException e) {
+                    throw new CompletionException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CompletionException(e);
+                }
+            });
+        }
+        return CompletableFuture.completedFuture(value);
+    }
+
+    /**
+     * 方法级别不变的信息，每个方法只计算1次
+     */
+    private record InvocationPlan(String label, boolean async) {
+
+    }
+
+    /**
+     * 1次调用对应的callback，重试和recover共用同一个实例。
+     * label、method、参数和proxy在同一次执行的多次尝试之间不会变化，只在第1次尝试时写入RetryContext
+     */
+    private static final class InvocationRetryCallback extends MethodInvocationRetryCallback<Object, Throwable>
             implements RecoveryCallback<Object> {
+        private final MethodInvocationRecoverer<?> recoverer;
+        /** 已经写入了不变属性的context */
+        private RetryContext context;
+
+        private InvocationRetryCallback(MethodInvocation invocation, String label, MethodInvocationRecoverer<?> recoverer) {
+            super(invocation, label);
+            this.recoverer = recoverer;
+        }
+
+        @Override
+        public Object doWithRetry(RetryContext context) throws Exception {
+            if(!(this.invocation instanceof ProxyMethodInvocation proxyInvocation)) {
+                throw new IllegalStateException(
+                        "MethodInvocation of the wrong type detected - this should not happen with Spring AOP, "
+                                + "so please raise an issue if you see this exception");
+            }
+            if(context != this.context) {
+                context.setAttribute(RetryContext.NAME, this.label);
+                context.setAttribute(METHOD, this.invocation.getMethod());
+                context.setAttribute(METHOD_ARGS, new Args(this.invocation.getArguments()));
+                context.setAttribute(PROXY, proxyInvocation.getProxy());
+                this.context = context;
+            }
+            try {
+                // 用invocableClone目的是每次调用，会返回全新的MethodInvocation，因为proceed方法不能重复调用
+                return proxyInvocation.invocableClone().proceed();
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
         @Override
         public Object recover(RetryContext context) {
-            return this.recoverer.recover(this.args, context.getLastThrowable());
+            return this.recoverer.recover(this.invocation.getThis(), this.invocation.getArguments(), context.getLastThrowable());
+        }
+
+        /**
+         * 执行结束后不再持有proxy的引用
+         */
+        void release() {
+            if(this.context != null)
+                this.context.removeAttribute(PROXY);
         }
     }
 }
@@ -88,7 +88,8 @@ public class StatefulRetryOperationsInterceptor implements MethodInterceptor {
 
         // 开始干活
         Object result = this.retryOperations.execute(new StatefulMethodInvocationRetryCallback(invocation, this.label),
-                this.recoverer != null ? new ItemRecovererCallback(args, this.recoverer) : null, retryState);
+                this.recoverer != null ? new ItemRecovererCallback(invocation.getThis(), args, this.recoverer) : null,
+                retryState);
 
         if(this.logger.isDebugEnabled())
             this.logger.debug("Exiting proxied method in stateful retry with result: (" + result + ")");
@@ -135,17 +136,19 @@ public class StatefulRetryOperationsInterceptor implements MethodInterceptor {
     }
 
     private static final class ItemRecovererCallback implements RecoveryCallback<Object> {
+        private final Object target;
         private final Object[] args;
         private final MethodInvocationRecoverer<?> recoverer;
 
-        private ItemRecovererCallback(Object[] args, MethodInvocationRecoverer<?> recoverer) {
+        private ItemRecovererCallback(Object target, Object[] args, MethodInvocationRecoverer<?> recoverer) {
+            this.target = target;
             this.args = Arrays.asList(args).toArray();  // copy???
             this.recoverer = recoverer;
         }
 
         @Override
         public Object recover(RetryContext context) throws Exception {
-            return this.recoverer.recover(this.args, context.getLastThrowable());
+            return this.recoverer.recover(this.target, this.args, context.getLastThrowable());
         }
     }
 }
@@ -5,8 +5,13 @@ import com.github.liyibo1110.spring.retry.RetryPolicy;
 import com.github.liyibo1110.spring.retry.context.RetryContextSupport;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.util.Assert;
 
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
 /**
@@ -19,6 +24,13 @@ public class CircuitBreakerRetryPolicy implements RetryPolicy {
     /** 熔断器状态1 -- 开启熔断 */
     public static final String CIRCUIT_OPEN = "circuit.open";
     public static final String CIRCUIT_SHORT_COUNT = "circuit.shortCount";
+    /** 当前统计窗口内的慢调用比例（只有开启了慢调用熔断才会设置） */
+    public static final String CIRCUIT_SLOW_CALL_RATE = "circuit.slowCallRate";
+    /**
+     * 当前线程上刚刚登记了失败的熔断器context，RetryTemplate在登记失败之后还会再调用1次canRetry（决定是否backoff），
+     * 这次检查属于同一次执行，调用已经被放行并执行过了，不能重新抽签，也不能计为短路
+     */
+    private static final ThreadLocal<CircuitBreakerRetryContext> FAILED_ATTEMPT = new ThreadLocal<>();
     /** 实际的retry policy */
     private final RetryPolicy delegate;
     /** 开始熔断20秒之后，允许一次尝试（切换到half-open状态） */
@@ -28,6 +40,18 @@ public class CircuitBreakerRetryPolicy implements RetryPolicy {
     private Supplier<Long> resetTimeoutSupplier;
 
     private Supplier<Long> openTimeoutSupplier;
+    /** 耗时超过这个值（毫秒）的调用算作慢调用，小于等于0表示不开启慢调用熔断 */
+    private long slowCallDurationThreshold = 0;
+    private Supplier<Long> slowCallDurationThresholdSupplier;
+    /** 统计窗口内慢调用比例达到这个值，就要开启熔断 */
+    private double slowCallRateThreshold = 1.0;
+    /** 统计窗口内至少要有这么多次调用，慢调用比例才有意义 */
+    private int slowCallMinimumCalls = 10;
+    /** 熔断关闭后的流量爬坡窗口（毫秒），小于等于0表示关闭后立刻全量放行 */
+    private long rampUpWindow = 0;
+    private RampUpStrategy rampUpStrategy = RampUpStrategy.LINEAR;
+    /** 跨进程共享的开启状态中本熔断器的句柄（名称已经解析好），默认不共享 */
+    private CircuitBreakerSharedState.Handle sharedState;
 
     public CircuitBreakerRetryPolicy() {
         this(new SimpleRetryPolicy());
@@ -53,10 +77,54 @@ public class CircuitBreakerRetryPolicy implements RetryPolicy {
         this.openTimeoutSupplier = timeoutSupplier;
     }
 
+    public void setSlowCallDurationThreshold(long threshold) {
+        this.slowCallDurationThreshold = threshold;
+    }
+
+    public void slowCallDurationThresholdSupplier(Supplier<Long> thresholdSupplier) {
+        this.slowCallDurationThresholdSupplier = thresholdSupplier;
+    }
+
+    public void setSlowCallRateThreshold(double rate) {
+        Assert.isTrue(rate > 0 && rate <= 1.0, "'slowCallRateThreshold' must be in (0, 1]");
+        this.slowCallRateThreshold = rate;
+    }
+
+    public void setSlowCallMinimumCalls(int minimumCalls) {
+        Assert.isTrue(minimumCalls > 0, "'slowCallMinimumCalls' must be positive");
+        this.slowCallMinimumCalls = minimumCalls;
+    }
+
+    public void setRampUpWindow(long rampUpWindow) {
+        this.rampUpWindow = rampUpWindow;
+    }
+
+    public void setRampUpStrategy(RampUpStrategy rampUpStrategy) {
+        Assert.notNull(rampUpStrategy, "'rampUpStrategy' cannot be null");
+        this.rampUpStrategy = rampUpStrategy;
+    }
+
+    /**
+     * 使用共享的开启状态（例如同一台机器上多个JVM共享的内存映射文件），name需要在所有进程中保持一致
+     */
+    public void setSharedState(CircuitBreakerSharedState sharedState, String name) {
+        Assert.notNull(sharedState, "'sharedState' cannot be null");
+        Assert.hasText(name, "'name' must not be empty");
+        this.sharedState = sharedState.handle(name);
+    }
+
     @Override
     public boolean canRetry(RetryContext context) {
         CircuitBreakerRetryContext circuit = (CircuitBreakerRetryContext)context;
-        if(circuit.isOpen()) {  // 熔断器如果开着，直接false
+        // 爬坡期的放行在每次执行开始时只决定1次，失败之后的检查沿用这个结果
+        boolean afterFailure = FAILED_ATTEMPT.get() == circuit;
+        if(afterFailure)
+            FAILED_ATTEMPT.remove();
+        if(circuit.isOpen()) {  // 熔断器如果开着，直接false（只有真正被拒绝的调用才算短路）
+            if(!afterFailure)
+                circuit.incrementShortCircuitCount();
+            return false;
+        }else if(!afterFailure && !circuit.isAdmitted()) {   // 刚关闭处于爬坡期，没被放行的调用和熔断开着时一样处理
             circuit.incrementShortCircuitCount();
             return false;
         }else {
@@ -74,22 +142,62 @@ public class CircuitBreakerRetryPolicy implements RetryPolicy {
         long openTimeout = this.openTimeout;
         if(this.openTimeoutSupplier != null)
             openTimeout = this.openTimeoutSupplier.get();
-        return new CircuitBreakerRetryContext(parent, this.delegate, resetTimeout, openTimeout);
+        long slowCallDurationThreshold = this.slowCallDurationThreshold;
+        if(this.slowCallDurationThresholdSupplier != null)
+            slowCallDurationThreshold = this.slowCallDurationThresholdSupplier.get();
+        CircuitBreakerRetryContext circuit = new CircuitBreakerRetryContext(parent, this.delegate, resetTimeout, openTimeout);
+        if(slowCallDurationThreshold > 0)
+            circuit.enableSlowCallDetection(TimeUnit.MILLISECONDS.toNanos(slowCallDurationThreshold),
+                    this.slowCallRateThreshold, this.slowCallMinimumCalls);
+        if(this.rampUpWindow > 0)
+            circuit.enableRampUp(TimeUnit.MILLISECONDS.toNanos(this.rampUpWindow), this.rampUpStrategy);
+        if(this.sharedState != null)
+            circuit.enableSharedState(this.sharedState);
+        return circuit;
+    }
+
+    /**
+     * 根据快照重建熔断器的context，快照是开启状态的话，恢复后在resetTimeout内直接拒绝调用，不需要重新经历失败。
+     * 注意delegate自身的context（例如失败计数）无法通用地序列化，所以总是以全新的状态开始
+     */
+    public RetryContext restore(RetryContext parent, CircuitBreakerSnapshot snapshot) {
+        CircuitBreakerRetryContext circuit = (CircuitBreakerRetryContext)open(parent);
+        circuit.restore(snapshot);
+        return circuit;
+    }
+
+    /**
+     * 生成熔断器context当前状态的快照，不是熔断器的context则返回null
+     */
+    public static CircuitBreakerSnapshot snapshot(RetryContext context) {
+        if(!(context instanceof CircuitBreakerRetryContext circuit))
+            return null;
+        return circuit.snapshot();
     }
 
     @Override
     public void close(RetryContext context) {
         CircuitBreakerRetryContext circuit = (CircuitBreakerRetryContext)context;
+        if(FAILED_ATTEMPT.get() == circuit)
+            FAILED_ATTEMPT.remove();
         this.delegate.close(circuit.context);
     }
 
     @Override
     public void registerThrowable(RetryContext context, Throwable throwable) {
         CircuitBreakerRetryContext circuit = (CircuitBreakerRetryContext)context;
+        FAILED_ATTEMPT.set(circuit);
         circuit.registerThrowable(throwable);
         this.delegate.registerThrowable(circuit.context, throwable);
     }
 
+    @Override
+    public void registerDuration(RetryContext context, long durationNanos) {
+        CircuitBreakerRetryContext circuit = (CircuitBreakerRetryContext)context;
+        circuit.registerDuration(durationNanos);
+        this.delegate.registerDuration(circuit.context, durationNanos);
+    }
+
     /**
      * 封装了一层内部的RetryContext和RetryPolicy
      */
@@ -101,6 +209,26 @@ public class CircuitBreakerRetryPolicy implements RetryPolicy {
         private final long openWindow;
         /** 记录熔断期间被直接拒绝的次数，仅用于监控/诊断，不参与状态判断 */
         private final AtomicInteger shortCircuitCount = new AtomicInteger();
+        /** 慢调用阈值（纳秒），为0表示未开启慢调用熔断 */
+        private long slowCallThresholdNanos;
+        private double slowCallRateThreshold;
+        private int slowCallMinimumCalls;
+        /** 当前统计窗口内的调用总数和慢调用数，窗口随start一起重置 */
+        private final AtomicInteger callCount = new AtomicInteger();
+        private final AtomicInteger slowCallCount = new AtomicInteger();
+        /** 爬坡窗口（纳秒），为0表示未开启 */
+        private long rampUpWindowNanos;
+        private RampUpStrategy rampUpStrategy;
+        /** 当前的爬坡状态，为null表示不在爬坡期（读路径只有1次volatile读） */
+        private final AtomicReference<RampUp> rampUp = new AtomicReference<>();
+        /** 从快照恢复的开启状态，delegate的context是全新的，所以要单独记录，直到熔断期结束 */
+        private volatile boolean restoredOpen;
+        /** 跨进程共享的开启状态，为null表示不共享 */
+        private CircuitBreakerSharedState.Handle sharedState;
+        /** 本进程发布出去的开启时间，为0表示没有发布 */
+        private volatile long publishedOpenedAt;
+        /** 正在遵从的其它进程发布的开启时间，为0表示没有 */
+        private volatile long observedOpenedAt;
 
         public CircuitBreakerRetryContext(RetryContext parent, RetryPolicy policy, long timeout, long openWindow) {
             super(parent);
@@ -111,6 +239,113 @@ public class CircuitBreakerRetryPolicy implements RetryPolicy {
             setAttribute("state.global", true);
         }
 
+        void enableSlowCallDetection(long thresholdNanos, double rateThreshold, int minimumCalls) {
+            this.slowCallThresholdNanos = thresholdNanos;
+            this.slowCallRateThreshold = rateThreshold;
+            this.slowCallMinimumCalls = minimumCalls;
+        }
+
+        void enableRampUp(long windowNanos, RampUpStrategy strategy) {
+            this.rampUpWindowNanos = windowNanos;
+            this.rampUpStrategy = strategy;
+        }
+
+        void enableSharedState(CircuitBreakerSharedState.Handle sharedState) {
+            this.sharedState = sharedState;
+        }
+
+        /**
+         * 其它进程发布的开启状态是否还在熔断期内（本进程自己发布的不算，由本地状态机处理）
+         */
+        private boolean isSharedOpen() {
+            if(this.sharedState == null)
+                return false;
+            long openedAt = this.sharedState.getOpenedAt();
+            if(openedAt > 0 && openedAt != this.publishedOpenedAt
+                    && System.currentTimeMillis() - openedAt <= this.timeout) {
+                this.observedOpenedAt = openedAt;
+                return true;
+            }
+            if(this.observedOpenedAt != 0) {    // 共享的熔断期结束，交回本地状态机重新计算
+                this.observedOpenedAt = 0;
+                setAttribute(CIRCUIT_OPEN, false);
+            }
+            return false;
+        }
+
+        CircuitBreakerSnapshot snapshot() {
+            boolean open = Boolean.TRUE.equals(getAttribute(CIRCUIT_OPEN));
+            return new CircuitBreakerSnapshot(open, this.start, this.callCount.get(), this.slowCallCount.get(),
+                    this.shortCircuitCount.get(), System.currentTimeMillis());
+        }
+
+        void restore(CircuitBreakerSnapshot snapshot) {
+            this.start = snapshot.openedAt();
+            this.callCount.set(snapshot.callCount());
+            this.slowCallCount.set(snapshot.slowCallCount());
+            this.shortCircuitCount.set(snapshot.shortCircuitCount());
+            setAttribute(CIRCUIT_SHORT_COUNT, snapshot.shortCircuitCount());
+            this.restoredOpen = snapshot.open();
+            setAttribute(CIRCUIT_OPEN, snapshot.open());
+        }
+
+        /**
+         * 判断熔断关闭后的爬坡期内，本次调用是否被放行（不在爬坡期则一律放行）。
+         * 爬坡期的第1次调用就是触发关闭的那次探测调用，必须放行，之后按策略给出的比例随机放行
+         */
+        boolean isAdmitted() {
+            RampUp current = this.rampUp.get();
+            if(current == null)
+                return true;
+            long elapsed = System.nanoTime() - current.start;
+            if(elapsed >= this.rampUpWindowNanos) {  // 爬坡结束，恢复全量放行
+                this.rampUp.compareAndSet(current, null);
+                return true;
+            }
+            if(!current.probeAdmitted.get() && current.probeAdmitted.compareAndSet(false, true))
+                return true;
+            double fraction = this.rampUpStrategy.admittedFraction((double)elapsed / this.rampUpWindowNanos);
+            return ThreadLocalRandom.current().nextDouble() < fraction;
+        }
+
+        /**
+         * 记录一次调用的耗时，超过阈值则计为慢调用（未开启慢调用熔断时直接忽略）
+         */
+        void registerDuration(long durationNanos) {
+            if(this.slowCallThresholdNanos <= 0)
+                return;
+            this.callCount.incrementAndGet();
+            if(durationNanos >= this.slowCallThresholdNanos)
+                this.slowCallCount.incrementAndGet();
+        }
+
+        /**
+         * 当前窗口内的慢调用比例，调用次数不足slowCallMinimumCalls时返回0
+         */
+        double getSlowCallRate() {
+            int calls = this.callCount.get();
+            if(calls == 0 || calls < this.slowCallMinimumCalls)
+                return 0;
+            return (double)this.slowCallCount.get() / calls;
+        }
+
+        private boolean isSlowCallRateExceeded() {
+            if(this.slowCallThresholdNanos <= 0)
+                return false;
+            double rate = getSlowCallRate();
+            setAttribute(CIRCUIT_SLOW_CALL_RATE, rate);
+            return rate > 0 && rate >= this.slowCallRateThreshold;
+        }
+
+        /**
+         * 开启新的统计窗口（重建delegate的context，并清空慢调用计数）
+         */
+        private void resetWindow() {
+            this.context = createDelegateContext(policy, getParent());
+            this.callCount.set(0);
+            this.slowCallCount.set(0);
+        }
+
         /**
          * 重置熔断状态（即关闭熔断）
          */
@@ -136,24 +371,46 @@ public class CircuitBreakerRetryPolicy implements RetryPolicy {
          */
         public boolean isOpen() {
             long time = System.currentTimeMillis() - this.start;    // context的生存时间
-            Boolean retryable = this.policy.canRetry(this.context);
+            if(this.restoredOpen) {
+                if(time <= this.timeout)    // 恢复的开启状态还在熔断期内，直接拒绝
+                    return true;
+                // 熔断期结束，和正常的Closing一样进入半开，delegate的context本来就是全新的
+                logger.trace("Closing restored circuit");
+                this.restoredOpen = false;
+                this.start = System.currentTimeMillis();
+                if(this.rampUpWindowNanos > 0)
+                    this.rampUp.set(new RampUp(System.nanoTime()));
+                time = 0;
+            }
+            if(isSharedOpen()) {
+                setAttribute(CIRCUIT_OPEN, true);
+                return true;
+            }
+            // 失败次数耗尽，或者慢调用比例超标，都视为本身policy不能再retry
+            boolean retryable = this.policy.canRetry(this.context) && !isSlowCallRateExceeded();
             if(retryable) { // 本身的policy就可以retry，肯定要放行，不会开启熔断
                 if(time > this.openWindow) {    // 如果context存活时间已超过熔断阈值时间，要重置熔断计数器
                     logger.trace("Resetting context");
                     this.start = System.currentTimeMillis();
-                    this.context = createDelegateContext(policy, getParent());
+                    resetWindow();
                 }
             }else { // 本身policy已经不能再retry，要判断2次失败的时间差，是否小于熔断阈值时间
                 if(time > this.timeout) {   // 2次失败的时间差，大于熔断阈值时间，即熔断期结束了，允许重新尝试
                     logger.trace("Closing");
-                    this.context = createDelegateContext(policy, getParent());  // 半开状态，没有设计相关的字段，通过重建delegate的context来间接实现
+                    resetWindow();  // 半开状态，没有设计相关的字段，通过重建delegate的context来间接实现
                     this.start = System.currentTimeMillis();
+                    if(this.rampUpWindowNanos > 0)  // 开始爬坡，不要让刚恢复的下游立刻承受全部流量
+                        this.rampUp.set(new RampUp(System.nanoTime()));
                     retryable = this.policy.canRetry(this.context);
                 }else if(time < this.openWindow) {  // 2次失败的时间差，小于熔断阈值时间，要开启熔断即不允许canRetry
                     if(!hasAttribute(CIRCUIT_OPEN) || (Boolean)getAttribute(CIRCUIT_OPEN) == false) {
                         logger.trace("Opening circuit");
                         setAttribute(CIRCUIT_OPEN, true);
                         this.start = System.currentTimeMillis();
+                        if(this.sharedState != null) {  // 通知其它进程，它们不用再自己经历失败
+                            this.publishedOpenedAt = this.start;
+                            this.sharedState.publishOpen(this.start);
+                        }
                     }
                     return true;
                 }
@@ -161,6 +418,11 @@ public class CircuitBreakerRetryPolicy implements RetryPolicy {
             if(logger.isTraceEnabled())
                 logger.trace("Open: " + !retryable);
             setAttribute(CIRCUIT_OPEN, !retryable);
+            long published = this.publishedOpenedAt;
+            if(retryable && published != 0) {
+                this.publishedOpenedAt = 0;
+                this.sharedState.publishClosed(published);
+            }
             return !retryable;
         }
 
@@ -169,6 +431,18 @@ public class CircuitBreakerRetryPolicy implements RetryPolicy {
             return this.context.getRetryCount();
         }
 
+        /**
+         * 一次爬坡的状态，创建后只有probeAdmitted会变化（且只会从false变成true）
+         */
+        private static final class RampUp {
+            private final long start;
+            private final AtomicBoolean probeAdmitted = new AtomicBoolean();
+
+            private RampUp(long start) {
+                this.start = start;
+            }
+        }
+
         @Override
         public String toString() {
             return this.context.toString();
@@ -0,0 +1,59 @@
+package com.github.liyibo1110.spring.retry.policy;
+
+/**
+ * 具名熔断器在多个进程之间共享的开启状态，某个进程开启了熔断，其它进程在熔断期内也会直接拒绝调用。
+ * 只共享"何时开启"这一个事实，失败计数等仍然由各个进程自己统计
+ * @author liyibo
+ * @date 2026-10-19 16:05
+ */
+public interface CircuitBreakerSharedState {
+
+    /**
+     * 返回指定熔断器最近一次开启的时间（System.currentTimeMillis），没有开启则返回0
+     */
+    long getOpenedAt(String name);
+
+    /**
+     * 发布熔断器在openedAt时刻开启了
+     */
+    void publishOpen(String name, long openedAt);
+
+    /**
+     * 发布熔断器已经关闭，只有当前共享的开启时间仍然是openedAt时才生效（避免覆盖其它进程更新的开启）
+     */
+    void publishClosed(String name, long openedAt);
+
+    /**
+     * 返回指定熔断器的句柄，熔断器在调用路径上只通过句柄读写，
+     * 实现可以在这里把名称解析好（例如定位存储位置），之后的每次读写不用再按名称查找
+     */
+    default Handle handle(String name) {
+        return new Handle() {
+            @Override
+            public long getOpenedAt() {
+                return CircuitBreakerSharedState.this.getOpenedAt(name);
+            }
+
+            @Override
+            public void publishOpen(long openedAt) {
+                CircuitBreakerSharedState.this.publishOpen(name, openedAt);
+            }
+
+            @Override
+            public void publishClosed(long openedAt) {
+                CircuitBreakerSharedState.this.publishClosed(name, openedAt);
+            }
+        };
+    }
+
+    /**
+     * 绑定到某个熔断器名称的共享状态，方法语义和外部接口的同名方法相同
+     */
+    interface Handle {
+        long getOpenedAt();
+
+        void publishOpen(long openedAt);
+
+        void publishClosed(long openedAt);
+    }
+}
@@ -0,0 +1,17 @@
+package com.github.liyibo1110.spring.retry.policy;
+
+/**
+ * 熔断器状态的快照，用于持久化之后在重启时恢复（时间戳都是System.currentTimeMillis，跨进程有意义）
+ * @param open 是否处于开启状态
+ * @param openedAt 开启（或者当前统计窗口开始）的时间
+ * @param callCount 当前统计窗口内的调用数（仅慢调用熔断使用）
+ * @param slowCallCount 当前统计窗口内的慢调用数
+ * @param shortCircuitCount 熔断期间被直接拒绝的次数
+ * @param takenAt 快照生成的时间，用于判断快照是否过期
+ * @author liyibo
+ * @date 2026-10-19 15:10
+ */
+public record CircuitBreakerSnapshot(boolean open, long openedAt, int callCount, int slowCallCount,
+                                     int shortCircuitCount, long takenAt) {
+
+}
@@ -55,7 +55,15 @@ public class CompositeRetryPolicy implements RetryPolicy {
         List<RetryContext> list = new ArrayList<>();
         for(RetryPolicy policy : this.policies)
             list.add(policy.open(parent));
-        return new CompositeRetryContext(parent, list, this.policies);
+        CompositeRetryContext context = new CompositeRetryContext(parent, list, this.policies);
+        // 子context的截止时间，取最早的那个暴露出去
+        for(RetryContext child : list) {
+            Object deadline = child.getAttribute(RetryContext.DEADLINE);
+            Object current = context.getAttribute(RetryContext.DEADLINE);
+            if(deadline instanceof Long && (current == null || (Long)deadline < (Long)current))
+                context.setAttribute(RetryContext.DEADLINE, deadline);
+        }
+        return context;
     }
 
     @Override
@@ -98,6 +106,14 @@ public class CompositeRetryPolicy implements RetryPolicy {
         ((RetryContextSupport)context).registerThrowable(throwable);
     }
 
+    @Override
+    public void registerDuration(RetryContext context, long durationNanos) {
+        RetryContext[] contexts = ((CompositeRetryContext)context).contexts;
+        RetryPolicy[] policies = ((CompositeRetryContext)context).policies;
+        for(int i = 0; i < contexts.length; i++)
+            policies[i].registerDuration(contexts[i], durationNanos);
+    }
+
     private static class CompositeRetryContext extends RetryContextSupport {
         RetryContext[] contexts;
         RetryPolicy[] policies;
@@ -7,8 +7,11 @@ import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.context.expression.BeanFactoryResolver;
+import org.springframework.expression.BeanResolver;
 import org.springframework.expression.Expression;
 import org.springframework.expression.common.TemplateParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.util.Assert;
@@ -16,7 +19,9 @@ import org.springframework.util.Assert;
 import java.util.Map;
 
 /**
- * SimpleRetryPolicy的特殊扩展policy，主要区别在canRetry中，最终判断将由一个SpEL表达式来决定
+ * SimpleRetryPolicy的特殊扩展policy，主要区别在canRetry中，最终判断将由一个SpEL表达式来决定。
+ * 由字符串解析的表达式使用MIXED编译模式：先解释执行，达到阈值后编译成字节码，编译失败或类型变化时退回解释执行。
+ * EvaluationContext在配置完成后不再修改，多线程并发计算时只读，不需要加锁
  * @author liyibo
  * @date 2026-01-30 15:41
  */
@@ -25,9 +30,12 @@ public class ExpressionRetryPolicy extends SimpleRetryPolicy implements BeanFact
 
     private static final TemplateParserContext PARSER_CONTEXT = new TemplateParserContext();
 
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, ExpressionRetryPolicy.class.getClassLoader()));
+
     private final Expression expression;
 
-    private final StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
+    private volatile StandardEvaluationContext evaluationContext = createEvaluationContext(null);
 
     public ExpressionRetryPolicy(Expression expression) {
         Assert.notNull(expression, "expression cannot be null");
@@ -58,7 +66,25 @@ public class ExpressionRetryPolicy extends SimpleRetryPolicy implements BeanFact
      */
     @Override
     public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
-        this.evaluationContext.setBeanResolver(new BeanFactoryResolver(beanFactory));
+        this.evaluationContext = createEvaluationContext(new BeanFactoryResolver(beanFactory));
+    }
+
+    /**
+     * 创建配置好的EvaluationContext，并提前初始化StandardEvaluationContext里延迟创建的组件，
+     * 之后只替换引用而不修改内容，保证并发计算时是只读的
+     */
+    public static StandardEvaluationContext createEvaluationContext(BeanResolver beanResolver) {
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        if(beanResolver != null)
+            context.setBeanResolver(beanResolver);
+        context.getPropertyAccessors();
+        context.getConstructorResolvers();
+        context.getMethodResolvers();
+        context.getTypeLocator();
+        context.getTypeConverter();
+        context.getTypeComparator();
+        context.getOperatorOverloader();
+        return context;
     }
 
     public ExpressionRetryPolicy withBeanFactory(BeanFactory beanFactory) {
@@ -81,9 +107,9 @@ public class ExpressionRetryPolicy extends SimpleRetryPolicy implements BeanFact
         if(isTemplate(expression)) {
             logger.warn("#{...} syntax is not required for this run-time expression "
                     + "and is deprecated in favor of a simple expression string");
-            return new SpelExpressionParser().parseExpression(expression, PARSER_CONTEXT);
+            return PARSER.parseExpression(expression, PARSER_CONTEXT);
         }
-        return new SpelExpressionParser().parseExpression(expression);
+        return PARSER.parseExpression(expression);
     }
 
     public static boolean isTemplate(String expression) {
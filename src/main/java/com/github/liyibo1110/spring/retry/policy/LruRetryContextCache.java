@@ -0,0 +1,57 @@
+package com.github.liyibo1110.spring.retry.policy;
+
+import com.github.liyibo1110.spring.retry.RetryContext;
+import org.springframework.util.Assert;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 基于LinkedHashMap（访问顺序）的同步实现类，容量满了会淘汰最久未被访问的context，而不是抛出RetryCacheCapacityExceededException。
+ * 适合key数量不可控的场景（例如按host区分的熔断器），被淘汰的熔断器下次访问时会以关闭状态重新创建
+ * @author liyibo
+ * @date 2026-10-19 11:05
+ */
+public class LruRetryContextCache implements RetryContextCache {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final Map<Object, RetryContext> map;
+
+    public LruRetryContextCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LruRetryContextCache(int capacity) {
+        Assert.isTrue(capacity > 0, "'capacity' must be positive");
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, RetryContext> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        return this.map.containsKey(key);
+    }
+
+    @Override
+    public synchronized RetryContext get(Object key) {
+        return this.map.get(key);
+    }
+
+    @Override
+    public synchronized void put(Object key, RetryContext context) {
+        this.map.put(key, context);
+    }
+
+    @Override
+    public synchronized void remove(Object key) {
+        this.map.remove(key);
+    }
+
+    public synchronized int size() {
+        return this.map.size();
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.liyibo1110.spring.retry.policy;
+
+/**
+ * 熔断器从开启切换回关闭之后，放行流量比例的增长方式（slow start）
+ * @author liyibo
+ * @date 2026-10-19 13:40
+ */
+public enum RampUpStrategy {
+    /**
+     * 放行比例随时间线性增长：0 -> 1
+     */
+    LINEAR {
+        @Override
+        public double admittedFraction(double progress) {
+            return clamp(progress);
+        }
+    },
+
+    /**
+     * 放行比例随时间指数增长（每经过1/6个窗口翻一倍）：1/64 -> 1，前期更保守
+     */
+    EXPONENTIAL {
+        @Override
+        public double admittedFraction(double progress) {
+            return Math.pow(2, 6 * (clamp(progress) - 1));
+        }
+    };
+
+    /**
+     * 根据ramp-up窗口的进度（0到1），返回应该放行的调用比例（0到1）
+     */
+    public abstract double admittedFraction(double progress);
+
+    private static double clamp(double progress) {
+        return progress < 0 ? 0 : Math.min(progress, 1);
+    }
+}
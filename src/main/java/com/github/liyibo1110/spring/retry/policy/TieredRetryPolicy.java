@@ -0,0 +1,101 @@
+package com.github.liyibo1110.spring.retry.policy;
+
+import com.github.liyibo1110.spring.retry.RetryContext;
+import com.github.liyibo1110.spring.retry.RetryPolicy;
+import com.github.liyibo1110.spring.retry.backoff.BackOffPolicy;
+import com.github.liyibo1110.spring.retry.backoff.TieredBackOffPolicy;
+import com.github.liyibo1110.spring.retry.context.RetryContextSupport;
+import com.github.liyibo1110.spring.retry.support.RetrySynchronizationManager;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分级升级的retry policy，例如“原地以10毫秒间隔重试3次，再以1秒间隔重试2次，最后交给延迟队列”：
+ * new TieredRetryPolicy().tier(3, fast).tier(2, slow).thenDefer()
+ * 1、每一级有自己的重试次数和backoff，backoff部分由getBackOffPolicy返回的TieredBackOffPolicy负责，两者要一起使用。
+ * 2、所有级别的重试都用完时，如果设置了thenDefer，会在最外层的RetryContext上标记DEFERRED，
+ * RetryTemplate据此抛出DeferredRetryException（而不是recover），释放调用线程，由DeferredRetryHandler之类的组件稍后重新提交
+ * @author liyibo
+ * @date 2026-10-20 00:50
+ */
+public class TieredRetryPolicy implements RetryPolicy {
+    private final List<Integer> retries = new ArrayList<>();
+
+    private final List<BackOffPolicy> backOffPolicies = new ArrayList<>();
+
+    private boolean deferred;
+
+    /**
+     * 增加一级：重试retries次，每次之前按backOffPolicy等待
+     */
+    public TieredRetryPolicy tier(int retries, BackOffPolicy backOffPolicy) {
+        Assert.isTrue(retries > 0, "'retries' must be positive");
+        Assert.notNull(backOffPolicy, "'backOffPolicy' cannot be null");
+        this.retries.add(retries);
+        this.backOffPolicies.add(backOffPolicy);
+        return this;
+    }
+
+    /**
+     * 所有级别都用完之后，交给延迟重试（抛出DeferredRetryException）
+     */
+    public TieredRetryPolicy thenDefer() {
+        this.deferred = true;
+        return this;
+    }
+
+    public boolean isDeferred() {
+        return this.deferred;
+    }
+
+    /**
+     * 和本policy配对的backoff
+     */
+    public BackOffPolicy getBackOffPolicy() {
+        Assert.state(!this.retries.isEmpty(), "At least one tier is required");
+        return new TieredBackOffPolicy(this.retries.stream().mapToInt(Integer::intValue).toArray(),
+                this.backOffPolicies.toArray(new BackOffPolicy[0]));
+    }
+
+    /**
+     * 原地执行的最大次数（首次调用 + 所有级别的重试）
+     */
+    @Override
+    public int getMaxAttempts() {
+        return 1 + totalRetries();
+    }
+
+    @Override
+    public boolean canRetry(RetryContext context) {
+        return context.getRetryCount() <= totalRetries();
+    }
+
+    @Override
+    public RetryContext open(RetryContext parent) {
+        return new RetryContextSupport(parent);
+    }
+
+    @Override
+    public void close(RetryContext context) {
+        // nothing to do
+    }
+
+    @Override
+    public void registerThrowable(RetryContext context, Throwable throwable) {
+        ((RetryContextSupport)context).registerThrowable(throwable);
+        if(this.deferred && context.getRetryCount() > totalRetries()) {
+            // 本policy可能被CompositeRetryPolicy包装，标记要打在RetryTemplate使用的最外层context上
+            RetryContext root = RetrySynchronizationManager.getContext();
+            (root != null ? root : context).setAttribute(RetryContext.DEFERRED, true);
+        }
+    }
+
+    private int totalRetries() {
+        int total = 0;
+        for(int retries : this.retries)
+            total += retries;
+        return total;
+    }
+}
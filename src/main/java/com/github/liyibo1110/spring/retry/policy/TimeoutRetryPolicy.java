@@ -60,6 +60,7 @@ public class TimeoutRetryPolicy implements RetryPolicy {
             super(parent);
             this.timeout = timeout;
             this.start = System.currentTimeMillis();
+            setAttribute(DEADLINE, this.start + timeout);
         }
 
         public boolean isAlive() {
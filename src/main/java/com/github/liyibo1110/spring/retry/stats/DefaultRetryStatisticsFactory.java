@@ -14,6 +14,8 @@ public class DefaultRetryStatisticsFactory implements RetryStatisticsFactory {
 
     @Override
     public MutableRetryStatistics create(String name) {
-        return null;
+        ExponentialAverageRetryStatistics stats = new ExponentialAverageRetryStatistics(name);
+        stats.setWindow(this.window);
+        return stats;
     }
 }
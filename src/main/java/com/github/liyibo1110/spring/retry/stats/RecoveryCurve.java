@@ -0,0 +1,44 @@
+package com.github.liyibo1110.spring.retry.stats;
+
+import java.util.Arrays;
+
+/**
+ * 学习到的恢复曲线：首次失败之后bounds[i]毫秒以内恢复成功的概率为probabilities[i]（经验分布函数）
+ * @author liyibo
+ * @date 2026-10-19 22:50
+ */
+public record RecoveryCurve(long[] bounds, double[] probabilities, long samples) {
+
+    /**
+     * 首次失败之后millis毫秒以内恢复成功的概率
+     */
+    public double probability(long millis) {
+        double probability = 0;
+        for(int i = 0; i < this.bounds.length && this.bounds[i] <= millis; i++)
+            probability = this.probabilities[i];
+        return probability;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("RecoveryCurve[samples=").append(this.samples);
+        double previous = 0;
+        for(int i = 0; i < this.bounds.length; i++) {
+            if(this.probabilities[i] != previous)   // 只输出有变化的点
+                builder.append(", ").append(this.bounds[i]).append("ms=").append(String.format("%.3f", this.probabilities[i]));
+            previous = this.probabilities[i];
+        }
+        return builder.append("]").toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof RecoveryCurve other && this.samples == other.samples
+                && Arrays.equals(this.bounds, other.bounds) && Arrays.equals(this.probabilities, other.probabilities);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(this.bounds) + Arrays.hashCode(this.probabilities);
+    }
+}
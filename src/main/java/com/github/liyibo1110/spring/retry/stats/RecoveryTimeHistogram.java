@@ -0,0 +1,79 @@
+package com.github.liyibo1110.spring.retry.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 首次失败到最终成功所经历时间（毫秒）的直方图，按对数分桶（每翻一倍分成4个桶，最大约18小时），
+ * 记录只是对应桶的1次原子加，不需要锁。重试耗尽也没有成功的执行单独计数，计算成功概率时作为分母的一部分
+ * @author liyibo
+ * @date 2026-10-19 22:40
+ */
+public class RecoveryTimeHistogram {
+    private static final int SUB_BUCKETS = 4;
+
+    private static final int BUCKETS = 26 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * 记录一次在首次失败后millis毫秒成功的执行
+     */
+    public void recordRecovery(long millis) {
+        this.counts.incrementAndGet(index(millis));
+    }
+
+    /**
+     * 记录一次最终也没有成功的执行
+     */
+    public void recordFailure() {
+        this.failures.increment();
+    }
+
+    /**
+     * 所有样本数（成功 + 失败）
+     */
+    public long getSampleCount() {
+        long total = this.failures.sum();
+        for(int i = 0; i < BUCKETS; i++)
+            total += this.counts.get(i);
+        return total;
+    }
+
+    /**
+     * 当前学习到的恢复曲线（快照），后续的记录不会影响它
+     */
+    public RecoveryCurve snapshot() {
+        long[] bounds = new long[BUCKETS];
+        double[] probabilities = new double[BUCKETS];
+        long[] values = new long[BUCKETS];
+        long total = this.failures.sum();
+        for(int i = 0; i < BUCKETS; i++) {
+            values[i] = this.counts.get(i);
+            total += values[i];
+        }
+        long cumulative = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            cumulative += values[i];
+            bounds[i] = upperBound(i);
+            probabilities[i] = total == 0 ? 0 : (double)cumulative / total;
+        }
+        return new RecoveryCurve(bounds, probabilities, total);
+    }
+
+    /**
+     * 满足upperBound(i) >= millis的最小的桶
+     */
+    static int index(long millis) {
+        if(millis <= 1)
+            return 0;
+        int index = (int)Math.ceil(Math.log(millis) / Math.log(2) * SUB_BUCKETS);
+        return Math.min(index, BUCKETS - 1);
+    }
+
+    static long upperBound(int index) {
+        return (long)Math.ceil(Math.pow(2, (double)index / SUB_BUCKETS));
+    }
+}
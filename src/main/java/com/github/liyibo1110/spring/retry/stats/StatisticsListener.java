@@ -4,6 +4,7 @@ import com.github.liyibo1110.spring.retry.RetryCallback;
 import com.github.liyibo1110.spring.retry.RetryContext;
 import com.github.liyibo1110.spring.retry.RetryListener;
 import com.github.liyibo1110.spring.retry.RetryStatistics;
+import com.github.liyibo1110.spring.retry.backoff.AdaptiveBackOffPolicy;
 import com.github.liyibo1110.spring.retry.policy.CircuitBreakerRetryPolicy;
 import org.springframework.core.AttributeAccessor;
 
@@ -37,7 +38,8 @@ public class StatisticsListener implements RetryListener {
             if(stats instanceof AttributeAccessor) {
                 AttributeAccessor accessor = (AttributeAccessor)stats;
                 for(String key : new String[] { CircuitBreakerRetryPolicy.CIRCUIT_OPEN,
-                        CircuitBreakerRetryPolicy.CIRCUIT_SHORT_COUNT }) {
+                        CircuitBreakerRetryPolicy.CIRCUIT_SHORT_COUNT, CircuitBreakerRetryPolicy.CIRCUIT_SLOW_CALL_RATE,
+                        AdaptiveBackOffPolicy.RECOVERY_CURVE }) {
                     if(context.hasAttribute(key))
                         accessor.setAttribute(key, context.getAttribute(key));
                 }
@@ -0,0 +1,173 @@
+package com.github.liyibo1110.spring.retry.support;
+
+import com.github.liyibo1110.spring.classify.BinaryExceptionClassifier;
+import com.github.liyibo1110.spring.retry.RetryContext;
+import com.github.liyibo1110.spring.retry.RetryState;
+import com.github.liyibo1110.spring.retry.policy.CircuitBreakerRetryPolicy;
+import com.github.liyibo1110.spring.retry.policy.CircuitBreakerSharedState;
+import com.github.liyibo1110.spring.retry.policy.CircuitBreakerSnapshot;
+import com.github.liyibo1110.spring.retry.policy.LruRetryContextCache;
+import com.github.liyibo1110.spring.retry.policy.RetryContextCache;
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 具名熔断器的注册表，同名的熔断器在多个方法、多个RetryTemplate之间共享同一个policy和同一份状态（RetryContext），
+ * 这样调用同一个下游的任何一处先发现了故障，其它地方也会立刻被熔断保护。
+ * 1、policy：同名的第一次注册生效，后续只是复用。
+ * 2、状态：统一放在自己的RetryContextCache里，key由名称决定，和方法无关。
+ * 容器里声明了这个类型的bean，@CircuitBreaker(name=...)就会使用它，否则每个RetryConfiguration各自创建一个，
+ * 不同的容器之间不会共享熔断状态。要和RetryTemplateBuilder.circuitBreaker(name)共享，需要声明bean并传给builder
+ * @author liyibo
+ * @date 2026-10-19 14:30
+ */
+public class CircuitBreakerRegistry {
+    private static final CircuitBreakerRegistry DEFAULT = new CircuitBreakerRegistry();
+
+    private final ConcurrentMap<String, CircuitBreakerRetryPolicy> breakers = new ConcurrentHashMap<>();
+
+    private final RetryContextCache retryContextCache;
+
+    /** 已经恢复、但对应名称的熔断器还没有注册的快照（注解方法的熔断器要等到第一次调用才会注册） */
+    private final ConcurrentMap<String, CircuitBreakerSnapshot> pendingSnapshots = new ConcurrentHashMap<>();
+
+    /** 跨进程共享的开启状态，设置之后注册的熔断器都会按名称共享，默认不共享 */
+    private volatile CircuitBreakerSharedState sharedState;
+
+    public CircuitBreakerRegistry() {
+        this(LruRetryContextCache.DEFAULT_CAPACITY);
+    }
+
+    public CircuitBreakerRegistry(int capacity) {
+        this.retryContextCache = new LruRetryContextCache(capacity);
+    }
+
+    /**
+     * 进程级的默认实例，只在RetryTemplateBuilder.circuitBreaker(name)没有指定注册表时使用，注解方法不会使用它
+     */
+    public static CircuitBreakerRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 设置跨进程共享的开启状态，需要在熔断器注册之前设置
+     */
+    public void setSharedState(CircuitBreakerSharedState sharedState) {
+        this.sharedState = sharedState;
+    }
+
+    /**
+     * 显式注册（或替换）某个名称的熔断器配置，已经存在的状态不受影响
+     */
+    public void register(String name, CircuitBreakerRetryPolicy policy) {
+        Assert.hasText(name, "'name' must not be empty");
+        Assert.notNull(policy, "'policy' cannot be null");
+        share(name, policy);
+        this.breakers.put(name, policy);
+        applyPendingSnapshot(name, policy);
+    }
+
+    /**
+     * 返回指定名称的熔断器，不存在则用factory创建并注册（同名只有第一次生效）
+     */
+    public CircuitBreakerRetryPolicy circuitBreaker(String name, Supplier<CircuitBreakerRetryPolicy> factory) {
+        Assert.hasText(name, "'name' must not be empty");
+        CircuitBreakerRetryPolicy policy = this.breakers.get(name);
+        if(policy != null)
+            return policy;
+        policy = this.breakers.computeIfAbsent(name, n -> share(n, factory.get()));
+        applyPendingSnapshot(name, policy);
+        return policy;
+    }
+
+    public CircuitBreakerRetryPolicy circuitBreaker(String name) {
+        return circuitBreaker(name, CircuitBreakerRetryPolicy::new);
+    }
+
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(this.breakers.keySet());
+    }
+
+    public RetryContextCache getRetryContextCache() {
+        return this.retryContextCache;
+    }
+
+    /**
+     * 指定名称的熔断器状态，在RetryContextCache中对应的key
+     */
+    public Object getKey(String name) {
+        return new BreakerKey(name);
+    }
+
+    /**
+     * 使用指定名称的熔断器执行时，要传给RetryTemplate的RetryState（失败不回滚，和@CircuitBreaker语义一致）
+     */
+    public RetryState retryState(String name) {
+        return new DefaultRetryState(getKey(name), new BinaryExceptionClassifier(false));
+    }
+
+    /**
+     * 指定名称的熔断器当前是否处于开启状态（还没有任何调用的熔断器视为关闭）
+     */
+    public boolean isOpen(String name) {
+        RetryContext context = this.retryContextCache.get(getKey(name));
+        return context != null && Boolean.TRUE.equals(context.getAttribute(CircuitBreakerRetryPolicy.CIRCUIT_OPEN));
+    }
+
+    /**
+     * 所有已注册、并且已经有状态的熔断器的快照
+     */
+    public Map<String, CircuitBreakerSnapshot> snapshot() {
+        Map<String, CircuitBreakerSnapshot> snapshots = new LinkedHashMap<>();
+        for(String name : this.breakers.keySet()) {
+            CircuitBreakerSnapshot snapshot = CircuitBreakerRetryPolicy.snapshot(this.retryContextCache.get(getKey(name)));
+            if(snapshot != null)
+                snapshots.put(name, snapshot);
+        }
+        return snapshots;
+    }
+
+    /**
+     * 恢复熔断器状态，已注册的名称立即生效，其余的等到该名称注册时再生效
+     */
+    public void restore(Map<String, CircuitBreakerSnapshot> snapshots) {
+        this.pendingSnapshots.putAll(snapshots);
+        for(String name : snapshots.keySet()) {
+            CircuitBreakerRetryPolicy policy = this.breakers.get(name);
+            if(policy != null)
+                applyPendingSnapshot(name, policy);
+        }
+    }
+
+    private CircuitBreakerRetryPolicy share(String name, CircuitBreakerRetryPolicy policy) {
+        CircuitBreakerSharedState sharedState = this.sharedState;
+        if(sharedState != null)
+            policy.setSharedState(sharedState, name);
+        return policy;
+    }
+
+    private void applyPendingSnapshot(String name, CircuitBreakerRetryPolicy policy) {
+        CircuitBreakerSnapshot snapshot = this.pendingSnapshots.remove(name);
+        if(snapshot == null)
+            return;
+        Object key = getKey(name);
+        synchronized(this.retryContextCache) {
+            if(this.retryContextCache.containsKey(key)) // 已经有了实时的状态，快照就没有意义了
+                return;
+            RetryContext context = policy.restore(null, snapshot);
+            context.setAttribute(RetryContext.STATE_KEY, key);
+            this.retryContextCache.put(key, context);
+        }
+    }
+
+    private record BreakerKey(String name) {
+
+    }
+}
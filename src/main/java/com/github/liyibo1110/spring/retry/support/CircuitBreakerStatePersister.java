@@ -0,0 +1,138 @@
+package com.github.liyibo1110.spring.retry.support;
+
+import com.github.liyibo1110.spring.retry.policy.CircuitBreakerSnapshot;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 把CircuitBreakerRegistry中具名熔断器的状态保存到本地文件，并在启动时恢复，
+ * 这样滚动发布后的新实例不用再对已知故障的下游发起一轮失败调用，就能直接熔断。
+ * 1、启动（afterPropertiesSet）：读取文件，丢弃超过maxAge的快照，交给registry恢复。
+ * 2、关闭（destroy）：把当前所有熔断器的快照写入文件（先写临时文件再替换，避免写了一半）。
+ * 只有具名熔断器才会持久化，方法级的熔断器没有跨进程稳定的名称
+ * @author liyibo
+ * @date 2026-10-19 15:30
+ */
+public class CircuitBreakerStatePersister implements InitializingBean, DisposableBean {
+    private static final Log logger = LogFactory.getLog(CircuitBreakerStatePersister.class);
+
+    private static final String PREFIX = "circuit.";
+
+    private final CircuitBreakerRegistry registry;
+
+    private final Path file;
+
+    /** 快照的最大有效期（毫秒），超过了说明实例停了太久，下游的状态已经没有参考价值 */
+    private long maxAge = 600000;
+
+    public CircuitBreakerStatePersister(CircuitBreakerRegistry registry, Path file) {
+        Assert.notNull(registry, "'registry' cannot be null");
+        Assert.notNull(file, "'file' cannot be null");
+        this.registry = registry;
+        this.file = file;
+    }
+
+    public void setMaxAge(long maxAge) {
+        Assert.isTrue(maxAge > 0, "'maxAge' must be positive");
+        this.maxAge = maxAge;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        restore();
+    }
+
+    @Override
+    public void destroy() {
+        save();
+    }
+
+    /**
+     * 从文件恢复熔断器状态，文件不存在或者读取失败都只是以全新状态启动
+     */
+    public void restore() {
+        if(!Files.isReadable(this.file))
+            return;
+        Properties properties = new Properties();
+        try(InputStream in = Files.newInputStream(this.file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.warn("Cannot read circuit breaker state from " + this.file, e);
+            return;
+        }
+        Map<String, CircuitBreakerSnapshot> snapshots = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        for(String property : properties.stringPropertyNames()) {
+            if(!property.startsWith(PREFIX) || !property.endsWith(".takenAt"))
+                continue;
+            String name = property.substring(PREFIX.length(), property.length() - ".takenAt".length());
+            try {
+                CircuitBreakerSnapshot snapshot = read(properties, PREFIX + name + ".");
+                if(now - snapshot.takenAt() <= this.maxAge)
+                    snapshots.put(name, snapshot);
+            } catch (RuntimeException e) {
+                logger.warn("Ignoring malformed circuit breaker state: " + name, e);
+            }
+        }
+        if(logger.isDebugEnabled())
+            logger.debug("Restoring circuit breaker state: " + snapshots.keySet());
+        this.registry.restore(snapshots);
+    }
+
+    /**
+     * 把当前熔断器状态写入文件
+     */
+    public void save() {
+        Properties properties = new Properties();
+        for(Map.Entry<String, CircuitBreakerSnapshot> entry : this.registry.snapshot().entrySet())
+            write(properties, PREFIX + entry.getKey() + ".", entry.getValue());
+        try {
+            Path parent = this.file.toAbsolutePath().getParent();
+            if(parent != null)
+                Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, this.file.getFileName().toString(), ".tmp");
+            try {
+                try(OutputStream out = Files.newOutputStream(temp)) {
+                    properties.store(out, "circuit breaker state");
+                }
+                Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally { // 写入或替换失败时不留下临时文件，原来的文件保持不变
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot write circuit breaker state to " + this.file, e);
+        }
+    }
+
+    private static CircuitBreakerSnapshot read(Properties properties, String prefix) {
+        return new CircuitBreakerSnapshot(
+                Boolean.parseBoolean(properties.getProperty(prefix + "open")),
+                Long.parseLong(properties.getProperty(prefix + "openedAt")),
+                Integer.parseInt(properties.getProperty(prefix + "callCount", "0")),
+                Integer.parseInt(properties.getProperty(prefix + "slowCallCount", "0")),
+                Integer.parseInt(properties.getProperty(prefix + "shortCircuitCount", "0")),
+                Long.parseLong(properties.getProperty(prefix + "takenAt")));
+    }
+
+    private static void write(Properties properties, String prefix, CircuitBreakerSnapshot snapshot) {
+        properties.setProperty(prefix + "open", String.valueOf(snapshot.open()));
+        properties.setProperty(prefix + "openedAt", String.valueOf(snapshot.openedAt()));
+        properties.setProperty(prefix + "callCount", String.valueOf(snapshot.callCount()));
+        properties.setProperty(prefix + "slowCallCount", String.valueOf(snapshot.slowCallCount()));
+        properties.setProperty(prefix + "shortCircuitCount", String.valueOf(snapshot.shortCircuitCount()));
+        properties.setProperty(prefix + "takenAt", String.valueOf(snapshot.takenAt()));
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.liyibo1110.spring.retry.support;
+
+import com.github.liyibo1110.spring.retry.DeferredRetryException;
+import com.github.liyibo1110.spring.retry.RetryCallback;
+import com.github.liyibo1110.spring.retry.RetryOperations;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 接收DeferredRetryException，并通过ScheduledExecutorService稍后重新提交的处理器：
+ * 1、第一轮在调用线程上执行，成功或者最终失败都直接完成返回的future。
+ * 2、收到DeferredRetryException时，调用线程立刻返回（future未完成），delay之后在executor上重新执行一轮（每轮都是全新的RetryContext）。
+ * 3、延迟重试超过maxDeferrals次之后，以最后一次的异常结束
+ * @author liyibo
+ * @date 2026-10-20 01:10
+ */
+public class DeferredRetryHandler {
+    private static final Log logger = LogFactory.getLog(DeferredRetryHandler.class);
+
+    private final ScheduledExecutorService executor;
+
+    private long delay = 30000;
+
+    private int maxDeferrals = 3;
+
+    public DeferredRetryHandler(ScheduledExecutorService executor) {
+        Assert.notNull(executor, "'executor' cannot be null");
+        this.executor = executor;
+    }
+
+    /**
+     * 每次延迟重试之前的等待时间（毫秒）
+     */
+    public void setDelay(long delay) {
+        Assert.isTrue(delay >= 0, "'delay' must not be negative");
+        this.delay = delay;
+    }
+
+    public void setMaxDeferrals(int maxDeferrals) {
+        Assert.isTrue(maxDeferrals >= 0, "'maxDeferrals' must not be negative");
+        this.maxDeferrals = maxDeferrals;
+    }
+
+    public <T, E extends Throwable> CompletableFuture<T> execute(RetryOperations operations, RetryCallback<T, E> callback) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        attempt(operations, callback, future, 0);
+        return future;
+    }
+
+    private <T, E extends Throwable> void attempt(RetryOperations operations, RetryCallback<T, E> callback,
+                                                  CompletableFuture<T> future, int deferrals) {
+        if(future.isDone()) // 调用方已经取消
+            return;
+        try {
+            future.complete(operations.execute(callback));
+        } catch (DeferredRetryException e) {
+            if(deferrals >= this.maxDeferrals) {
+                future.completeExceptionally(e.getCause() != null ? e.getCause() : e);
+                return;
+            }
+            if(logger.isDebugEnabled())
+                logger.debug("Deferring retry " + (deferrals + 1) + " of " + this.maxDeferrals + " after " + e.getAttempts() + " attempts");
+            try {
+                this.executor.schedule(() -> attempt(operations, callback, future, deferrals + 1), this.delay, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException ex) {
+                future.completeExceptionally(ex);
+            }
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.github.liyibo1110.spring.retry.support;
+
+import com.github.liyibo1110.spring.retry.policy.CircuitBreakerSharedState;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.Assert;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于内存映射文件的CircuitBreakerSharedState实现，同一台机器上映射了同一个文件的多个JVM共享熔断器的开启状态，
+ * 某个进程开启熔断后，其它进程在下一次调用时就能看到，不需要网络。
+ * 文件布局（都是long，按本机字节序）：
+ * 1、头部16字节：magic，slot数量（由第一个创建文件的进程决定，后来者以文件中的为准）。
+ * 2、固定数量的slot，每个16字节：名称的64位hash（0表示空），开启时间（0表示关闭）。
+ * slot用开放寻址按hash定位，通过VarHandle在映射区上做volatile读写和CAS，所以不需要任何跨进程的锁。
+ * slot用完之后新的名称不再共享（只记一次警告），本地熔断不受影响
+ * @author liyibo
+ * @date 2026-10-19 16:20
+ */
+public class MappedCircuitBreakerSharedState implements CircuitBreakerSharedState, Closeable {
+    private static final Log logger = LogFactory.getLog(MappedCircuitBreakerSharedState.class);
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final long MAGIC = 0x5245545259434231L;
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final int SLOT_SIZE = 16;
+
+    public static final int DEFAULT_SLOTS = 1024;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private final int slots;
+
+    private volatile boolean fullReported;
+
+    public MappedCircuitBreakerSharedState(Path file) throws IOException {
+        this(file, DEFAULT_SLOTS);
+    }
+
+    public MappedCircuitBreakerSharedState(Path file, int slots) throws IOException {
+        Assert.notNull(file, "'file' cannot be null");
+        Assert.isTrue(slots > 0, "'slots' must be positive");
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // 先只映射头部，确定slot数量之后再映射整个文件
+            MappedByteBuffer header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            LONGS.compareAndSet(header, 8, 0L, (long)slots);
+            this.slots = (int)(long)LONGS.getVolatile(header, 8);
+            this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long)this.slots * SLOT_SIZE);
+            LONGS.compareAndSet(this.buffer, 0, 0L, MAGIC);
+            long magic = (long)LONGS.getVolatile(this.buffer, 0);
+            if(magic != MAGIC)
+                throw new IOException("Not a circuit breaker state file: " + file);
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public long getOpenedAt(String name) {
+        int offset = findSlot(name, false);
+        return offset < 0 ? 0 : (long)LONGS.getVolatile(this.buffer, offset + 8);
+    }
+
+    @Override
+    public void publishOpen(String name, long openedAt) {
+        int offset = findSlot(name, true);
+        if(offset >= 0)
+            LONGS.setVolatile(this.buffer, offset + 8, openedAt);
+    }
+
+    @Override
+    public void publishClosed(String name, long openedAt) {
+        int offset = findSlot(name, false);
+        if(offset >= 0)
+            LONGS.compareAndSet(this.buffer, offset + 8, openedAt, 0L);
+    }
+
+    /**
+     * 注册熔断器时就占好slot，之后每次读写只是在固定偏移量上的1次VarHandle访问，不再计算hash和探测。
+     * slot已经用完时返回的句柄不共享任何状态
+     */
+    @Override
+    public Handle handle(String name) {
+        return new SlotHandle(findSlot(name, true));
+    }
+
+    /**
+     * 按名称hash定位slot（开放寻址，线性探测），claim为true时在空slot上用CAS占位，找不到返回-1
+     */
+    private int findSlot(String name, boolean claim) {
+        long hash = hash(name);
+        int index = (int)Long.remainderUnsigned(hash, this.slots);
+        for(int i = 0; i < this.slots; i++) {
+            int offset = HEADER_SIZE + ((index + i) % this.slots) * SLOT_SIZE;
+            long current = (long)LONGS.getVolatile(this.buffer, offset);
+            if(current == hash)
+                return offset;
+            if(current == 0) {
+                if(!claim)
+                    return -1;
+                if(LONGS.compareAndSet(this.buffer, offset, 0L, hash))
+                    return offset;
+                if((long)LONGS.getVolatile(this.buffer, offset) == hash)    // 其它进程刚好占了同一个名称
+                    return offset;
+            }
+        }
+        if(claim && !this.fullReported) {
+            this.fullReported = true;
+            logger.warn("Circuit breaker state file is full, '" + name + "' will not be shared");
+        }
+        return -1;
+    }
+
+    /**
+     * 名称的64位FNV-1a hash，0被保留用来表示空slot
+     */
+    private static long hash(String name) {
+        long hash = 0xcbf29ce484222325L;
+        for(byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * 绑定到固定slot偏移量的句柄，offset为-1表示没有占到slot
+     */
+    private final class SlotHandle implements Handle {
+        private final int offset;
+
+        private SlotHandle(int offset) {
+            this.offset = offset;
+        }
+
+        @Override
+        public long getOpenedAt() {
+            return this.offset < 0 ? 0 : (long)LONGS.getVolatile(MappedCircuitBreakerSharedState.this.buffer, this.offset + 8);
+        }
+
+        @Override
+        public void publishOpen(long openedAt) {
+            if(this.offset >= 0)
+                LONGS.setVolatile(MappedCircuitBreakerSharedState.this.buffer, this.offset + 8, openedAt);
+        }
+
+        @Override
+        public void publishClosed(long openedAt) {
+            if(this.offset >= 0)
+                LONGS.compareAndSet(MappedCircuitBreakerSharedState.this.buffer, this.offset + 8, openedAt, 0L);
+        }
+    }
+}
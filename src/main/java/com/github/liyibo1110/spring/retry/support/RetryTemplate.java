@@ -1,5 +1,6 @@
 package com.github.liyibo1110.spring.retry.support;
 
+import com.github.liyibo1110.spring.retry.DeferredRetryException;
 import com.github.liyibo1110.spring.retry.ExhaustedRetryException;
 import com.github.liyibo1110.spring.retry.RecoveryCallback;
 import com.github.liyibo1110.spring.retry.RetryCallback;
@@ -14,6 +15,8 @@ import com.github.liyibo1110.spring.retry.backoff.BackOffContext;
 import com.github.liyibo1110.spring.retry.backoff.BackOffInterruptedException;
 import com.github.liyibo1110.spring.retry.backoff.BackOffPolicy;
 import com.github.liyibo1110.spring.retry.backoff.NoBackOffPolicy;
+import com.github.liyibo1110.spring.retry.backoff.Sleeper;
+import com.github.liyibo1110.spring.retry.backoff.SleepingBackOffPolicy;
 import com.github.liyibo1110.spring.retry.policy.MapRetryContextCache;
 import com.github.liyibo1110.spring.retry.policy.RetryContextCache;
 import com.github.liyibo1110.spring.retry.policy.SimpleRetryPolicy;
@@ -25,6 +28,14 @@ import java.lang.reflect.UndeclaredThrowableException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 模板类，用于简化具有retry语义的操作执行。
@@ -54,6 +65,12 @@ public class RetryTemplate implements RetryOperations {
 
     private boolean throwLastExceptionOnExhausted;
 
+    /** execute时没有传入RetryState所使用的默认state，例如RetryTemplateBuilder.circuitBreaker配置的具名熔断器 */
+    private RetryState defaultRetryState;
+
+    /** 下游过载时的暂停闸门，为null表示不使用 */
+    private ThrottleGate throttleGate;
+
     public void setThrowLastExceptionOnExhausted(boolean throwLastExceptionOnExhausted) {
         this.throwLastExceptionOnExhausted = throwLastExceptionOnExhausted;
     }
@@ -62,6 +79,14 @@ public class RetryTemplate implements RetryOperations {
         this.retryContextCache = retryContextCache;
     }
 
+    public void setThrottleGate(ThrottleGate throttleGate) {
+        this.throttleGate = throttleGate;
+    }
+
+    public void setDefaultRetryState(RetryState defaultRetryState) {
+        this.defaultRetryState = defaultRetryState;
+    }
+
     public void setListeners(RetryListener[] listeners) {
         Assert.notNull(listeners, "listeners must not be null");
         this.listeners = Arrays.copyOf(listeners, listeners.length);
@@ -94,12 +119,12 @@ public class RetryTemplate implements RetryOperations {
 
     @Override
     public <T, E extends Throwable> T execute(RetryCallback<T, E> retryCallback) throws E {
-        return doExecute(retryCallback, null, null);
+        return doExecute(retryCallback, null, this.defaultRetryState);
     }
 
     @Override
     public <T, E extends Throwable> T execute(RetryCallback<T, E> retryCallback, RecoveryCallback<T> recoveryCallback) throws E {
-        return doExecute(retryCallback, recoveryCallback, null);
+        return doExecute(retryCallback, recoveryCallback, this.defaultRetryState);
     }
 
     @Override
@@ -112,6 +137,34 @@ public class RetryTemplate implements RetryOperations {
         return doExecute(retryCallback, recoveryCallback, retryState);
     }
 
+    /**
+     * 异步版本的stateless重试：retryCallback返回CompletionStage，按它的完成结果（而不是是否抛出异常）判断成功或失败。
+     * 两次尝试之间不睡眠，而是把backoff计算出的等待时间交给scheduler延迟执行下一次尝试，
+     * 返回的future在成功、recover完成或者最终失败之后才完成。
+     * 只有SleepingBackOffPolicy能拿到等待时间，其它BackOffPolicy的backOff会在完成上一次尝试的线程上同步执行。
+     * 之后的尝试在ForkJoinPool.commonPool()上执行，见4个参数的版本
+     */
+    public <T, E extends Throwable> CompletableFuture<T> executeAsync(RetryCallback<? extends CompletionStage<T>, E> retryCallback,
+                                                                     RecoveryCallback<? extends CompletionStage<T>> recoveryCallback,
+                                                                     ScheduledExecutorService scheduler) {
+        return executeAsync(retryCallback, recoveryCallback, scheduler, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * scheduler只负责计时，到期后把下一次尝试提交给executor执行，
+     * 这样retryCallback本身的耗时（哪怕只是发起调用）不会占用调度线程、拖慢其它到期的重试。
+     * 第1次尝试仍然在调用线程上执行
+     */
+    public <T, E extends Throwable> CompletableFuture<T> executeAsync(RetryCallback<? extends CompletionStage<T>, E> retryCallback,
+                                                                     RecoveryCallback<? extends CompletionStage<T>> recoveryCallback,
+                                                                     ScheduledExecutorService scheduler, Executor executor) {
+        Assert.notNull(scheduler, "scheduler cannot be null");
+        Assert.notNull(executor, "executor cannot be null");
+        AsyncExecution<T, E> execution = new AsyncExecution<>(retryCallback, recoveryCallback, scheduler, executor);
+        execution.start();
+        return execution.result;
+    }
+
     /**
      * 真正的干活方法，如果policy允许，则执行1次retry callback，否则执行recovery callback
      */
@@ -160,18 +213,31 @@ public class RetryTemplate implements RetryOperations {
 
             // 进入主retry循环核心部分
             while(canRetry(retryPolicy, context) && !context.isExhaustedOnly()) {
+                if(this.logger.isDebugEnabled())
+                    this.logger.debug("Retry: count=" + context.getRetryCount() + labelMessage);
+                // 先清空lastException，假定这次retry是成功的
+                lastException = null;
+                if(this.throttleGate != null) { // 闸门关闭时等待或者直接失败，在尝试开始之前，不算一次失败的尝试
+                    try {
+                        this.throttleGate.acquire();
+                    } catch (RuntimeException e) {
+                        lastException = e;  // 让close和listener知道本次执行没有成功
+                        throw e;
+                    }
+                }
+                long attemptStart = System.nanoTime();
                 try {
-                    if(this.logger.isDebugEnabled())
-                        this.logger.debug("Retry: count=" + context.getRetryCount() + labelMessage);
-                    // 先清空lastException，假定这次retry是成功的
-                    lastException = null;
                     T result = retryCallback.doWithRetry(context);  // 调用真正的业务请求
                     // 这下面说明成功了，如果业务调用出现了异常就会直接跳到catch里了
+                    registerDuration(retryPolicy, context, System.nanoTime() - attemptStart);
                     doOnSuccessInterceptors(retryCallback, context, result);
                     return result;
                 } catch (Throwable e) {
                     // 进入这里说明业务调用失败了
                     lastException = e;
+                    registerDuration(retryPolicy, context, System.nanoTime() - attemptStart);
+                    if(this.throttleGate != null)
+                        this.throttleGate.onFailure(e);
 
                     // 记录最新的throwable
                     try {
@@ -247,6 +313,13 @@ public class RetryTemplate implements RetryOperations {
         registerContext(context, state);
     }
 
+    /**
+     * 记录本次尝试的耗时（纳秒），交给policy自行决定是否使用（例如熔断器统计慢调用比例）
+     */
+    protected void registerDuration(RetryPolicy retryPolicy, RetryContext context, long durationNanos) {
+        retryPolicy.registerDuration(context, durationNanos);
+    }
+
     /**
      * 将stateful的context加入cache（注意stateless的context和cache没有任何关系）
      */
@@ -254,8 +327,9 @@ public class RetryTemplate implements RetryOperations {
         if(state != null) {
             Object key = state.getKey();
             if(key != null) {
-                // 工程防御
-                if(context.getRetryCount() > 1 && !this.retryContextCache.containsKey(key)) {
+                // 工程防御（全局context在open时就已放入cache，不在cache里只可能是被有界cache淘汰了，不算key不一致）
+                if(context.getRetryCount() > 1 && !context.hasAttribute(GLOBAL_STATE)
+                        && !this.retryContextCache.containsKey(key)) {
                     throw new RetryException("Inconsistent state for failed item key: cache key has changed. "
                             + "Consider whether equals() or hashCode() for the key might be inconsistent, "
                             + "or if you need to supply a better key");
@@ -318,6 +392,9 @@ public class RetryTemplate implements RetryOperations {
         context.setAttribute(RetryContext.EXHAUSTED, true);
         if(state != null && !context.hasAttribute(GLOBAL_STATE))    // stateful模式，在这里也要清理cache了
             this.retryContextCache.remove(state.getKey());
+        if(Boolean.TRUE.equals(context.getAttribute(RetryContext.DEFERRED)))  // 交给延迟重试，不进入recover
+            throw new DeferredRetryException("Retry deferred after " + context.getRetryCount() + " attempts",
+                    context.getLastThrowable(), context.getRetryCount());
         boolean doRecover = !Boolean.TRUE.equals(context.getAttribute(RetryContext.NO_RECOVERY));
         if(recoveryCallback != null) {
             if(doRecover) {
@@ -401,6 +478,232 @@ public class RetryTemplate implements RetryOperations {
             this.listeners[i].onError(context, callback, throwable);
     }
 
+    /**
+     * 一次异步重试的执行过程，逻辑和doExecute一致，只是每次尝试的结果通过回调驱动
+     */
+    private final class AsyncExecution<T, E extends Throwable> {
+        private final RetryCallback<? extends CompletionStage<T>, E> retryCallback;
+        private final RecoveryCallback<? extends CompletionStage<T>> recoveryCallback;
+        private final ScheduledExecutorService scheduler;
+        private final Executor executor;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final RetryPolicy retryPolicy = RetryTemplate.this.retryPolicy;
+        private final DelayRecorder delay = new DelayRecorder();
+        private final BackOffPolicy backOffPolicy;
+        private RetryContext context;
+        private BackOffContext backOffContext;
+
+        AsyncExecution(RetryCallback<? extends CompletionStage<T>, E> retryCallback,
+                       RecoveryCallback<? extends CompletionStage<T>> recoveryCallback,
+                       ScheduledExecutorService scheduler, Executor executor) {
+            this.retryCallback = retryCallback;
+            this.recoveryCallback = recoveryCallback;
+            this.scheduler = scheduler;
+            this.executor = executor;
+            BackOffPolicy backOffPolicy = RetryTemplate.this.backOffPolicy;
+            // 不真正睡眠，只记录等待时间
+            this.backOffPolicy = backOffPolicy instanceof SleepingBackOffPolicy<?> sleeping
+                    ? sleeping.withSleeper(this.delay) : backOffPolicy;
+        }
+
+        void start() {
+            try {
+                this.context = open(this.retryPolicy, null);
+                RetrySynchronizationManager.register(this.context);
+                try {
+                    if(!doOpenInterceptors(this.retryCallback, this.context))
+                        throw new TerminatedRetryException("Retry terminated abnormally by interceptor before first attempt");
+                    if(!this.context.hasAttribute(RetryContext.MAX_ATTEMPTS))
+                        this.context.setAttribute(RetryContext.MAX_ATTEMPTS, this.retryPolicy.getMaxAttempts());
+                    this.backOffContext = this.backOffPolicy.start(this.context);
+                    if(this.backOffContext != null)
+                        this.context.setAttribute("backOffContext", this.backOffContext);
+                } finally {
+                    RetrySynchronizationManager.clear();
+                }
+            } catch (Throwable e) {
+                this.finish(null, e, null);
+                return;
+            }
+            this.attempt();
+        }
+
+        private void attempt() {
+            if(!canRetry(this.retryPolicy, this.context) || this.context.isExhaustedOnly()) {
+                this.exhausted();
+                return;
+            }
+            if(logger.isDebugEnabled())
+                logger.debug("Async retry: count=" + this.context.getRetryCount());
+            this.invoke();
+        }
+
+        /**
+         * 闸门HOLD时不占用线程等待，而是延迟调度到闸门打开时再检查一次，闸门拒绝时直接失败，都不算一次尝试
+         */
+        private void invoke() {
+            if(throttleGate != null) {
+                long wait;
+                try {
+                    wait = throttleGate.tryAcquire();
+                } catch (Throwable e) {
+                    this.finish(null, e, null);
+                    return;
+                }
+                if(wait > 0) {
+                    this.schedule(this::invoke, wait);
+                    return;
+                }
+            }
+            CompletionStage<T> stage;
+            long attemptStart;
+            RetrySynchronizationManager.register(this.context);
+            try {
+                attemptStart = System.nanoTime();
+                try {
+                    stage = this.retryCallback.doWithRetry(this.context);
+                } catch (Throwable e) {
+                    this.onFailure(e, attemptStart);
+                    return;
+                }
+            } catch (Throwable e) {
+                this.finish(null, e, null);
+                return;
+            } finally {
+                RetrySynchronizationManager.clear();
+            }
+            if(stage == null) {
+                this.onSuccess(null, null, attemptStart);
+                return;
+            }
+            final long start = attemptStart;
+            final CompletionStage<T> completed = stage;
+            stage.whenComplete((value, error) -> {
+                if(error == null)
+                    this.onSuccess(completed, value, start);
+                else
+                    this.onFailure(unwrap(error), start);
+            });
+        }
+
+        private void onSuccess(CompletionStage<T> stage, T value, long attemptStart) {
+            try {
+                registerDuration(this.retryPolicy, this.context, System.nanoTime() - attemptStart);
+                doOnSuccessInterceptors((RetryCallback<CompletionStage<T>, E>)this.retryCallback, this.context, stage);
+            } catch (Throwable e) {
+                this.finish(null, e, null);
+                return;
+            }
+            this.finish(value, null, null);
+        }
+
+        private void onFailure(Throwable e, long attemptStart) {
+            try {
+                registerDuration(this.retryPolicy, this.context, System.nanoTime() - attemptStart);
+                if(throttleGate != null)
+                    throttleGate.onFailure(e);
+                try {
+                    registerThrowable(this.retryPolicy, null, this.context, e);
+                } catch (Exception ex) {
+                    throw new TerminatedRetryException("Could not register throwable", ex);
+                } finally {
+                    doOnErrorInterceptors(this.retryCallback, this.context, e);
+                }
+                if(canRetry(this.retryPolicy, this.context) && !this.context.isExhaustedOnly()) {
+                    this.backOffPolicy.backOff(this.backOffContext);
+                    this.schedule(this::attempt, this.delay.take());
+                    return;
+                }
+            } catch (Throwable ex) {
+                this.finish(null, ex, e);
+                return;
+            }
+            this.exhausted();
+        }
+
+        /**
+         * 调度线程只负责计时，到期后交给executor执行，调度或提交被拒绝时（例如已经shutdown）结束本次执行
+         */
+        private void schedule(Runnable task, long delayMillis) {
+            try {
+                this.scheduler.schedule(() -> {
+                    try {
+                        this.executor.execute(task);
+                    } catch (Throwable e) {
+                        this.finish(null, e, this.context.getLastThrowable());
+                    }
+                }, delayMillis, TimeUnit.MILLISECONDS);
+            } catch (Throwable e) {
+                this.finish(null, e, this.context.getLastThrowable());
+            }
+        }
+
+        private void exhausted() {
+            Throwable lastException = this.context.getLastThrowable();
+            CompletionStage<T> recovered;
+            RetrySynchronizationManager.register(this.context);
+            try {
+                recovered = handleRetryExhausted(this.recoveryCallback, this.context, null);
+            } catch (Throwable e) {
+                this.finish(null, e, lastException);
+                return;
+            } finally {
+                RetrySynchronizationManager.clear();
+            }
+            if(recovered == null) {
+                this.finish(null, null, lastException);
+                return;
+            }
+            recovered.whenComplete((value, error) -> this.finish(value, error == null ? null : unwrap(error), lastException));
+        }
+
+        /**
+         * 和doExecute的finally一致：关闭policy和listener，然后完成返回的future
+         */
+        private void finish(T value, Throwable error, Throwable lastException) {
+            if(this.context != null) {
+                try {
+                    close(this.retryPolicy, this.context, null, true);
+                    doCloseInterceptors(this.retryCallback, this.context, error != null ? error : lastException);
+                } catch (Throwable e) {
+                    if(error == null)
+                        error = e;
+                }
+            }
+            if(error != null)
+                this.result.completeExceptionally(error);
+            else
+                this.result.complete(value);
+        }
+    }
+
+    /**
+     * 取出CompletionStage包装的真正异常
+     */
+    private static Throwable unwrap(Throwable error) {
+        while((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null)
+            error = error.getCause();
+        return error;
+    }
+
+    /**
+     * 只记录backoff要求的等待时间，由scheduler去等待
+     */
+    private static final class DelayRecorder implements Sleeper {
+        private long delay;
+
+        @Override
+        public void sleep(long backOffPeriod) {
+            this.delay += backOffPeriod;
+        }
+
+        long take() {
+            long result = this.delay;
+            this.delay = 0;
+            return result;
+        }
+    }
+
     /**
      * 如果传入的异常是Error则直接throw。
      * 如果传入的异常就是Exception，则直接返回并转成调用方想要的形式，否则以cause的形式封装成RetryException统一throw
@@ -4,23 +4,32 @@ import com.github.liyibo1110.spring.classify.BinaryExceptionClassifier;
 import com.github.liyibo1110.spring.classify.BinaryExceptionClassifierBuilder;
 import com.github.liyibo1110.spring.retry.RetryListener;
 import com.github.liyibo1110.spring.retry.RetryPolicy;
+import com.github.liyibo1110.spring.retry.backoff.AdaptiveBackOffPolicy;
 import com.github.liyibo1110.spring.retry.backoff.BackOffPolicy;
+import com.github.liyibo1110.spring.retry.backoff.BackOffSchedule;
+import com.github.liyibo1110.spring.retry.backoff.CoordinatedBackOffPolicy;
 import com.github.liyibo1110.spring.retry.backoff.ExponentialBackOffPolicy;
 import com.github.liyibo1110.spring.retry.backoff.ExponentialRandomBackOffPolicy;
 import com.github.liyibo1110.spring.retry.backoff.FixedBackOffPolicy;
 import com.github.liyibo1110.spring.retry.backoff.NoBackOffPolicy;
+import com.github.liyibo1110.spring.retry.backoff.RetryAfterBackOffPolicy;
+import com.github.liyibo1110.spring.retry.backoff.RetrySlotCalendar;
+import com.github.liyibo1110.spring.retry.backoff.ScheduledBackOffPolicy;
 import com.github.liyibo1110.spring.retry.backoff.UniformRandomBackOffPolicy;
 import com.github.liyibo1110.spring.retry.policy.AlwaysRetryPolicy;
 import com.github.liyibo1110.spring.retry.policy.BinaryExceptionClassifierRetryPolicy;
+import com.github.liyibo1110.spring.retry.policy.CircuitBreakerRetryPolicy;
 import com.github.liyibo1110.spring.retry.policy.CompositeRetryPolicy;
 import com.github.liyibo1110.spring.retry.policy.MaxAttemptsRetryPolicy;
 import com.github.liyibo1110.spring.retry.policy.PredicateRetryPolicy;
+import com.github.liyibo1110.spring.retry.policy.TieredRetryPolicy;
 import com.github.liyibo1110.spring.retry.policy.TimeoutRetryPolicy;
 import org.springframework.util.Assert;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 /**
@@ -34,6 +43,9 @@ public class RetryTemplateBuilder {
     private List<RetryListener> listeners;
     private BinaryExceptionClassifierBuilder classifierBuilder;
     private Predicate<Throwable> retryOnPredicate;
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private String circuitBreakerName;
+    private ThrottleGate throttleGate;
 
     /* ---------------- Configure retry policy -------------- */
     public RetryTemplateBuilder maxAttempts(int maxAttempts) {
@@ -68,6 +80,47 @@ public class RetryTemplateBuilder {
         return this;
     }
 
+    /**
+     * 分级升级的重试，retry policy和backoff都由tiers决定，不能再另外指定backoff
+     */
+    public RetryTemplateBuilder tieredRetry(TieredRetryPolicy tiers) {
+        Assert.notNull(tiers, "Tiered policy should not be null");
+        Assert.isNull(this.baseRetryPolicy, "You have already selected another retry policy");
+        Assert.isNull(this.backOffPolicy, "You have already selected backoff policy");
+        this.baseRetryPolicy = tiers;
+        this.backOffPolicy = tiers.getBackOffPolicy();
+        return this;
+    }
+
+    /**
+     * 使用具名的共享熔断器包装最终的retry policy（同名熔断器在所有方法和RetryTemplate之间共享状态），
+     * 第一次注册该名称时，本builder的retry policy就是熔断器的delegate（失败计数规则）
+     */
+    public RetryTemplateBuilder circuitBreaker(String name) {
+        Assert.hasText(name, "Circuit breaker name must not be empty");
+        this.circuitBreakerName = name;
+        return this;
+    }
+
+    /**
+     * 指定circuitBreaker(name)使用的注册表，默认是CircuitBreakerRegistry.getDefault()，
+     * 要和@CircuitBreaker(name=...)共享熔断器，需要传入容器中的CircuitBreakerRegistry bean
+     */
+    public RetryTemplateBuilder circuitBreakerRegistry(CircuitBreakerRegistry registry) {
+        Assert.notNull(registry, "Circuit breaker registry should not be null");
+        this.circuitBreakerRegistry = registry;
+        return this;
+    }
+
+    /**
+     * 使用暂停闸门，可以通过ThrottleGateRegistry在多个RetryTemplate之间共享同一个label的闸门
+     */
+    public RetryTemplateBuilder throttleGate(ThrottleGate throttleGate) {
+        Assert.notNull(throttleGate, "Throttle gate should not be null");
+        this.throttleGate = throttleGate;
+        return this;
+    }
+
     /* ---------------- Configure backoff policy -------------- */
 
     public RetryTemplateBuilder exponentialBackoff(long initialInterval, double multiplier, long maxInterval) {
@@ -101,6 +154,69 @@ public class RetryTemplateBuilder {
         return this.exponentialBackoff(initialInterval.toMillis(), multiplier, maxInterval.toMillis(), withRandom);
     }
 
+    /**
+     * 指数backoff，但实际重试时间在共享的calendar中预约，把同时失败的调用分散开，
+     * 需要跨RetryTemplate协调的（例如同一个下游），传入同一个calendar
+     */
+    public RetryTemplateBuilder coordinatedBackoff(long initialInterval, double multiplier, long maxInterval,
+                                                   RetrySlotCalendar calendar) {
+        Assert.isNull(this.backOffPolicy, "You have already selected backoff policy");
+        Assert.notNull(calendar, "calendar must not be null");
+        Assert.isTrue(initialInterval >= 1, "Initial interval should be >= 1");
+        Assert.isTrue(multiplier > 1, "Multiplier should be > 1");
+        Assert.isTrue(maxInterval > initialInterval, "Max interval should be > than initial interval");
+        CoordinatedBackOffPolicy policy = new CoordinatedBackOffPolicy();
+        policy.setInitialInterval(initialInterval);
+        policy.setMultiplier(multiplier);
+        policy.setMaxInterval(maxInterval);
+        policy.setCalendar(calendar);
+        this.backOffPolicy = policy;
+        return this;
+    }
+
+    /**
+     * 优先使用extractor从异常中提取的等待时间（例如Retry-After），提取不到时按指数规则退避
+     */
+    public RetryTemplateBuilder retryAfterBackoff(Function<Throwable, Duration> extractor, long initialInterval,
+                                                  double multiplier, long maxInterval) {
+        Assert.isNull(this.backOffPolicy, "You have already selected backoff policy");
+        Assert.notNull(extractor, "extractor must not be null");
+        Assert.isTrue(initialInterval >= 1, "Initial interval should be >= 1");
+        Assert.isTrue(multiplier > 1, "Multiplier should be > 1");
+        Assert.isTrue(maxInterval > initialInterval, "Max interval should be > than initial interval");
+        RetryAfterBackOffPolicy policy = new RetryAfterBackOffPolicy(extractor);
+        policy.setInitialInterval(initialInterval);
+        policy.setMultiplier(multiplier);
+        policy.setMaxInterval(maxInterval);
+        this.backOffPolicy = policy;
+        return this;
+    }
+
+    /**
+     * 按预先计算好的时间表backoff（指数、Fibonacci或者自定义），每次执行只需要一个记录游标的BackOffContext
+     */
+    public RetryTemplateBuilder scheduledBackoff(BackOffSchedule schedule) {
+        Assert.isNull(this.backOffPolicy, "You have already selected backoff policy");
+        Assert.notNull(schedule, "schedule must not be null");
+        this.backOffPolicy = new ScheduledBackOffPolicy(schedule);
+        return this;
+    }
+
+    /**
+     * 根据观察到的恢复时间自适应的backoff，policy同时作为listener注册，用来学习恢复时间
+     */
+    public RetryTemplateBuilder adaptiveBackoff(long minInterval, long maxInterval) {
+        Assert.isNull(this.backOffPolicy, "You have already selected backoff policy");
+        Assert.isTrue(minInterval >= 1, "Min interval should be >= 1");
+        Assert.isTrue(maxInterval > minInterval, "Max interval should be > than min interval");
+        AdaptiveBackOffPolicy policy = new AdaptiveBackOffPolicy();
+        policy.setMinInterval(minInterval);
+        policy.setMaxInterval(maxInterval);
+        this.backOffPolicy = policy;
+        listenersList().add(policy);
+        return this;
+    }
+
     public RetryTemplateBuilder fixedBackoff(long interval) {
         Assert.isNull(this.backOffPolicy, "You have already selected backoff policy");
         Assert.isTrue(interval >= 1, "Interval should be >= 1");
@@ -243,6 +359,19 @@ public class RetryTemplateBuilder {
         finalPolicy.setPolicies(new RetryPolicy[] { this.baseRetryPolicy, exceptionRetryPolicy });
         template.setRetryPolicy(finalPolicy);
 
+        if(this.throttleGate != null)
+            template.setThrottleGate(this.throttleGate);
+
+        // 具名熔断器：policy和状态都来自注册表，execute不传RetryState时也按熔断器的stateful语义执行
+        if(this.circuitBreakerName != null) {
+            CircuitBreakerRegistry registry = this.circuitBreakerRegistry != null
+                    ? this.circuitBreakerRegistry : CircuitBreakerRegistry.getDefault();
+            template.setRetryPolicy(registry.circuitBreaker(this.circuitBreakerName,
+                    () -> new CircuitBreakerRetryPolicy(finalPolicy)));
+            template.setRetryContextCache(registry.getRetryContextCache());
+            template.setDefaultRetryState(registry.retryState(this.circuitBreakerName));
+        }
+
         // backoff policy
         if(this.backOffPolicy == null)
             this.backOffPolicy = new NoBackOffPolicy();
@@ -0,0 +1,141 @@
+package com.github.liyibo1110.spring.retry.support;
+
+import com.github.liyibo1110.spring.retry.ThrottledException;
+import com.github.liyibo1110.spring.retry.backoff.BackOffInterruptedException;
+import com.github.liyibo1110.spring.retry.backoff.Sleeper;
+import com.github.liyibo1110.spring.retry.backoff.ThreadWaitSleeper;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 某个label（下游）的暂停闸门，任何一次尝试收到了过载信号（例如Retry-After），都可以把闸门关闭一段时间，
+ * 关闭期间同一label的其它尝试不会再调用下游，而是按mode等待（HOLD）或者直接失败（FAIL）。
+ * 闸门在尝试开始之前检查，等待、被中断或者被拒绝都不算一次失败的尝试，不会经过retry policy和backoff。
+ * 闸门打开时，每次尝试的开销只是1次volatile读
+ * @author liyibo
+ * @date 2026-10-19 19:50
+ */
+public class ThrottleGate {
+
+    /**
+     * 闸门关闭时，尝试的处理方式
+     */
+    public enum Mode {
+        /** 等待闸门打开之后再调用下游 */
+        HOLD,
+        /** 抛出ThrottledException，直接结束本次执行 */
+        FAIL
+    }
+
+    private final String label;
+
+    /** 关闭到什么时候（System.currentTimeMillis），为0表示打开 */
+    private final AtomicLong closedUntil = new AtomicLong();
+
+    private Mode mode = Mode.FAIL;
+
+    /** 从失败中提取关闭时长，返回null表示这次失败不是过载信号 */
+    private Function<Throwable, Duration> extractor = t -> null;
+
+    private Sleeper sleeper = new ThreadWaitSleeper();
+
+    public ThrottleGate(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return this.label;
+    }
+
+    public void setMode(Mode mode) {
+        Assert.notNull(mode, "'mode' cannot be null");
+        this.mode = mode;
+    }
+
+    public void setExtractor(Function<Throwable, Duration> extractor) {
+        Assert.notNull(extractor, "'extractor' cannot be null");
+        this.extractor = extractor;
+    }
+
+    public void setSleeper(Sleeper sleeper) {
+        Assert.notNull(sleeper, "'sleeper' cannot be null");
+        this.sleeper = sleeper;
+    }
+
+    public boolean isOpen() {
+        long until = this.closedUntil.get();
+        return until == 0 || System.currentTimeMillis() >= until;
+    }
+
+    /**
+     * 关闭闸门一段时间，已经关闭的话只会延长，不会缩短
+     */
+    public void close(Duration duration) {
+        long until = System.currentTimeMillis() + duration.toMillis();
+        long current;
+        do {
+            current = this.closedUntil.get();
+            if(current >= until)
+                return;
+        }while(!this.closedUntil.compareAndSet(current, until));
+    }
+
+    public void open() {
+        this.closedUntil.set(0);
+    }
+
+    /**
+     * 尝试失败后调用，如果失败是过载信号就关闭闸门
+     */
+    public void onFailure(Throwable throwable) {
+        if(throwable instanceof ThrottledException)
+            return;
+        Duration duration = this.extractor.apply(throwable);
+        if(duration != null && !duration.isNegative() && !duration.isZero())
+            close(duration);
+    }
+
+    /**
+     * 每次尝试调用下游之前调用，闸门打开则立即返回
+     * @throws ThrottledException 闸门关闭并且是FAIL模式
+     * @throws BackOffInterruptedException HOLD模式等待时被中断
+     */
+    public void acquire() {
+        long remaining;
+        while((remaining = tryAcquire()) > 0) {
+            try {
+                this.sleeper.sleep(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BackOffInterruptedException("Thread interrupted while waiting for throttle gate", e);
+            }
+        }
+    }
+
+    /**
+     * 不阻塞的acquire，给异步重试使用，HOLD模式下由调用方按返回值延迟调度，而不是占用线程等待
+     * @return 闸门打开返回0，否则返回还需要等待的毫秒数
+     * @throws ThrottledException 闸门关闭并且是FAIL模式
+     */
+    public long tryAcquire() {
+        long until = this.closedUntil.get();
+        if(until == 0)  // 绝大多数情况，只有1次volatile读
+            return 0;
+        long remaining = until - System.currentTimeMillis();
+        if(remaining <= 0) {
+            this.closedUntil.compareAndSet(until, 0);
+            return 0;
+        }
+        if(this.mode == Mode.FAIL)
+            throw new ThrottledException("Throttled: '" + this.label + "'", Duration.ofMillis(remaining));
+        return remaining;
+    }
+
+    @Override
+    public String toString() {
+        return "ThrottleGate[label=" + this.label + ", open=" + isOpen() + "]";
+    }
+}
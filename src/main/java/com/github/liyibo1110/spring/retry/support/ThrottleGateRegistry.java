@@ -0,0 +1,52 @@
+package com.github.liyibo1110.spring.retry.support;
+
+import com.github.liyibo1110.spring.retry.backoff.Sleeper;
+import com.github.liyibo1110.spring.retry.backoff.ThreadWaitSleeper;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * 按label管理ThrottleGate，新建的gate使用这里配置的mode、extractor和sleeper。
+ * 容器里声明了这个类型的bean，@Retryable方法的RetryTemplate就会按label（默认为方法签名）使用对应的gate
+ * @author liyibo
+ * @date 2026-10-19 20:05
+ */
+public class ThrottleGateRegistry {
+    private final ConcurrentMap<String, ThrottleGate> gates = new ConcurrentHashMap<>();
+
+    private ThrottleGate.Mode mode = ThrottleGate.Mode.FAIL;
+
+    private Function<Throwable, Duration> extractor = t -> null;
+
+    private Sleeper sleeper = new ThreadWaitSleeper();
+
+    public void setMode(ThrottleGate.Mode mode) {
+        Assert.notNull(mode, "'mode' cannot be null");
+        this.mode = mode;
+    }
+
+    public void setExtractor(Function<Throwable, Duration> extractor) {
+        Assert.notNull(extractor, "'extractor' cannot be null");
+        this.extractor = extractor;
+    }
+
+    public void setSleeper(Sleeper sleeper) {
+        Assert.notNull(sleeper, "'sleeper' cannot be null");
+        this.sleeper = sleeper;
+    }
+
+    public ThrottleGate gate(String label) {
+        Assert.hasText(label, "'label' must not be empty");
+        return this.gates.computeIfAbsent(label, l -> {
+            ThrottleGate gate = new ThrottleGate(l);
+            gate.setMode(this.mode);
+            gate.setExtractor(this.extractor);
+            gate.setSleeper(this.sleeper);
+            return gate;
+        });
+    }
+}
@@ -0,0 +1,404 @@
+package com.github.liyibo1110.spring.retry.annotation;
+
+import com.github.liyibo1110.spring.retry.RetryListener;
+import com.github.liyibo1110.spring.retry.context.RetryContextSupport;
+import com.github.liyibo1110.spring.retry.policy.LruRetryContextCache;
+import com.github.liyibo1110.spring.retry.support.CircuitBreakerRegistry;
+import com.github.liyibo1110.spring.retry.support.RetryTemplate;
+import com.github.liyibo1110.spring.retry.support.RetryTemplateBuilder;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultIntroductionAdvisor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * 注解拦截器测试
+ * @author liyibo
+ * @date 2026-10-20 01:40
+ */
+public class AnnotationAwareRetryOperationsInterceptorTests {
+
+    @Test
+    public void testInterceptorsAreSharedAcrossInstancesOfTheSameClass() {
+        CountingListener.CREATED.set(0);
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        RootBeanDefinition listener = new RootBeanDefinition(CountingListener.class);
+        listener.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+        beanFactory.registerBeanDefinition("countingListener", listener);
+        AnnotationAwareRetryOperationsInterceptor interceptor = new AnnotationAwareRetryOperationsInterceptor();
+        interceptor.setBeanFactory(beanFactory);
+
+        List<Service> services = new ArrayList<>();
+        for(int i = 0; i < 10000; i++)
+            services.add(proxy(new Service("instance-" + i), interceptor));
+        for(int i = 0; i < services.size(); i++)   // recover要绑定到本次调用的实例上
+            assertThat(services.get(i).call()).isEqualTo("instance-" + i);
+        // 每构造一次拦截器就会取一次prototype的listener，10000个实例只构造了1次
+        assertThat(CountingListener.CREATED.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAsyncReturnTypeRetriesOnFutureCompletion() throws Exception {
+        AnnotationAwareRetryOperationsInterceptor interceptor = new AnnotationAwareRetryOperationsInterceptor();
+        interceptor.setBeanFactory(new DefaultListableBeanFactory());
+        AsyncService target = new AsyncService();
+        AsyncService service = proxy(target, interceptor);
+
+        CompletableFuture<String> result = service.call(2);
+        // 第1次尝试已经异步失败，backoff由调度器等待，调用方不会被阻塞
+        assertThat(result).isNotDone();
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+        assertThat(target.attempts.get()).isEqualTo(3);
+
+        target.attempts.set(0);
+        assertThat(service.call(5).get(5, TimeUnit.SECONDS)).isEqualTo("recovered after 3");
+    }
+
+    @Test
+    public void testIdenticalConfigurationSharesTemplateAndPolicies() throws Exception {
+        AnnotationAwareRetryOperationsInterceptor interceptor = new AnnotationAwareRetryOperationsInterceptor();
+        interceptor.setBeanFactory(new DefaultListableBeanFactory());
+        Object first = template(interceptor, "first");
+        assertThat(template(interceptor, "second")).isSameAs(first);
+        assertThat(template(interceptor, "reordered")).isSameAs(first);
+        assertThat(template(interceptor, "different")).isNotSameAs(first);
+        assertThat(template(interceptor, "expression")).isNotSameAs(first);
+        SharedService service = proxy(new SharedService(), interceptor);
+        assertThat(service.first()).isEqualTo("recovered");
+        assertThat(service.reordered()).isEqualTo("recovered");
+    }
+
+    @Test
+    public void testExceptionBackoffsProgressIndependently() throws Exception {
+        List<Long> sleeps = new ArrayList<>();
+        AnnotationAwareRetryOperationsInterceptor interceptor = new AnnotationAwareRetryOperationsInterceptor();
+        interceptor.setBeanFactory(new DefaultListableBeanFactory());
+        interceptor.setSleeper(sleeps::add);
+        BackoffService target = new BackoffService();
+        assertThat(proxy(target, interceptor).call()).isEqualTo("ok");
+        // IOException、IllegalStateException、IOException、IOException，IOException的第2次backoff仍然是10
+        assertThat(sleeps).containsExactly(5L, 3000L, 10L, 20L);
+    }
+
+    @Test
+    public void testArgsExpressionIsCachedPerExecution() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        ExpressionSource source = new ExpressionSource();
+        beanFactory.registerSingleton("source", source);
+        AnnotationAwareRetryOperationsInterceptor interceptor = new AnnotationAwareRetryOperationsInterceptor();
+        interceptor.setBeanFactory(beanFactory);
+        ExpressionService target = new ExpressionService();
+        ExpressionService service = proxy(target, interceptor);
+
+        assertThat(service.byArgs(3)).isEqualTo("recovered");
+        assertThat(target.attempts.get()).isEqualTo(3);
+        // 第一次尝试之前参数不可用，计算但不缓存，之后本次执行只计算1次
+        assertThat(source.evaluations.get()).isEqualTo(2);
+
+        target.attempts.set(0);
+        assertThat(service.byArgs(2)).isEqualTo("recovered");
+        assertThat(target.attempts.get()).isEqualTo(2);     // 上一次执行的结果不会被带过来
+        assertThat(source.evaluations.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void testStaticExpressionIsRefreshedOnlyWhenInvalidated() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        ExpressionSource source = new ExpressionSource();
+        beanFactory.registerSingleton("source", source);
+        AnnotationAwareRetryOperationsInterceptor interceptor = new AnnotationAwareRetryOperationsInterceptor();
+        interceptor.setBeanFactory(beanFactory);
+        interceptor.setExpressionRefreshInterval(60000);
+        ExpressionService target = new ExpressionService();
+        ExpressionService service = proxy(target, interceptor);
+
+        source.configured = 2;
+        service.configured();
+        service.configured();
+        assertThat(target.attempts.get()).isEqualTo(4);
+        assertThat(source.evaluations.get()).isEqualTo(1);
+
+        source.configured = 3;
+        target.attempts.set(0);
+        service.configured();
+        assertThat(target.attempts.get()).isEqualTo(2);     // 刷新间隔内仍然使用缓存的值
+
+        interceptor.refreshExpressions();
+        target.attempts.set(0);
+        service.configured();
+        assertThat(target.attempts.get()).isEqualTo(3);
+        assertThat(source.evaluations.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testNamedCircuitBreakerIsSharedAcrossMethodsAndTemplates() throws Throwable {
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry();
+        AnnotationAwareRetryOperationsInterceptor interceptor = new AnnotationAwareRetryOperationsInterceptor();
+        interceptor.setBeanFactory(new DefaultListableBeanFactory());
+        interceptor.setCircuitBreakerRegistry(registry);
+        BreakerService target = new BreakerService();
+        BreakerService service = proxy(target, interceptor);
+
+        assertThat(service.first()).isEqualTo("recovered");
+        assertThat(service.first()).isEqualTo("recovered");
+        assertThat(registry.isOpen("downstream")).isTrue();
+        assertThat(target.calls.get()).isEqualTo(2);
+
+        // 另一个方法、以及使用同一个注册表的RetryTemplate都已经被熔断，不会再调用下游
+        assertThat(service.second()).isEqualTo("recovered");
+        RetryTemplate template = new RetryTemplateBuilder().maxAttempts(2).circuitBreaker("downstream")
+                .circuitBreakerRegistry(registry).build();
+        int result = template.execute(context -> target.calls.incrementAndGet(), context -> -1);
+        assertThat(result).isEqualTo(-1);
+        assertThat(target.calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testNamedCircuitBreakerIsNotSharedBetweenInterceptors() {
+        AnnotationAwareRetryOperationsInterceptor one = new AnnotationAwareRetryOperationsInterceptor();
+        one.setBeanFactory(new DefaultListableBeanFactory());
+        AnnotationAwareRetryOperationsInterceptor two = new AnnotationAwareRetryOperationsInterceptor();
+        two.setBeanFactory(new DefaultListableBeanFactory());
+        BreakerService target = new BreakerService();
+        BreakerService first = proxy(target, one);
+        BreakerService second = proxy(target, two);
+
+        first.first();
+        first.first();
+        first.first();
+        assertThat(target.calls.get()).isEqualTo(2);
+        // 没有显式的注册表时，每个拦截器（配置）有自己的熔断状态
+        second.first();
+        assertThat(target.calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void testNamedCircuitBreakerRejectsMaxKeys() throws Exception {
+        AnnotationAwareRetryOperationsInterceptor interceptor = new AnnotationAwareRetryOperationsInterceptor();
+        interceptor.setBeanFactory(new DefaultListableBeanFactory());
+        // 显式写上和默认容量相同的值也要拒绝
+        for(String name : new String[] { "bounded", "defaultCapacity" }) {
+            Method method = BreakerService.class.getMethod(name, String.class);
+            assertThatIllegalStateException()
+                    .isThrownBy(() -> ReflectionTestUtils.invokeMethod(interceptor, "getDelegate", BreakerService.class, method))
+                    .withMessageContaining("maxKeys");
+        }
+    }
+
+    @Test
+    public void testKeyedCircuitBreakerUsesDefaultCapacity() throws Exception {
+        AnnotationAwareRetryOperationsInterceptor interceptor = new AnnotationAwareRetryOperationsInterceptor();
+        interceptor.setBeanFactory(new DefaultListableBeanFactory());
+        Object delegate = ReflectionTestUtils.invokeMethod(interceptor, "getDelegate", BreakerService.class,
+                BreakerService.class.getMethod("perHost", String.class));
+        Object template = ReflectionTestUtils.getField(delegate, "retryOperations");
+        Object cache = ReflectionTestUtils.getField(template, "retryContextCache");
+        assertThat(cache).isInstanceOf(LruRetryContextCache.class);
+        // 写满默认容量之后再写一个，最早的key被淘汰
+        LruRetryContextCache lru = (LruRetryContextCache)cache;
+        for(int i = 0; i <= LruRetryContextCache.DEFAULT_CAPACITY; i++)
+            lru.put(i, new RetryContextSupport(null));
+        assertThat(lru.containsKey(0)).isFalse();
+        assertThat(lru.containsKey(1)).isTrue();
+    }
+
+    private static Object template(AnnotationAwareRetryOperationsInterceptor interceptor, String method) throws Exception {
+        Object delegate = ReflectionTestUtils.invokeMethod(interceptor, "getDelegate", SharedService.class,
+                SharedService.class.getMethod(method));
+        return ReflectionTestUtils.getField(delegate, "retryOperations");
+    }
+
+    private static <T> T proxy(T target, AnnotationAwareRetryOperationsInterceptor interceptor) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvisor(new DefaultIntroductionAdvisor(interceptor));
+        return (T)factory.getProxy();
+    }
+
+    public static class Service {
+        private final String name;
+
+        public Service() {
+            this(null);
+        }
+
+        public Service(String name) {
+            this.name = name;
+        }
+
+        @Retryable(maxAttempts = 1, listeners = "countingListener")
+        public String call() {
+            throw new IllegalStateException("down");
+        }
+
+        @Recover
+        public String recover(IllegalStateException e) {
+            return this.name;
+        }
+    }
+
+    public static class AsyncService {
+        final AtomicInteger attempts = new AtomicInteger();
+
+        @Retryable(maxAttempts = 3, backoff = @Backoff(delay = 200))
+        public CompletableFuture<String> call(int failures) {
+            int attempt = this.attempts.incrementAndGet();
+            return CompletableFuture.supplyAsync(() -> {
+                if(attempt <= failures)
+                    throw new IllegalStateException("down");
+                return "ok";
+            });
+        }
+
+        @Recover
+        public CompletableFuture<String> recover(IllegalStateException e, int failures) {
+            return CompletableFuture.completedFuture("recovered after " + this.attempts.get());
+        }
+    }
+
+    public static class BackoffService {
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        @Retryable(maxAttempts = 5, backoff = @Backoff(delay = 3000,
+                exceptionBackoffs = @BackoffFor(value = IOException.class, delay = 5, multiplier = 2)))
+        public String call() throws IOException {
+            int attempt = this.attempts.incrementAndGet();
+            if(attempt == 5)
+                return "ok";
+            if(attempt == 2)
+                throw new IllegalStateException("throttled");
+            throw new IOException("connection reset");
+        }
+    }
+
+    public static class ExpressionSource {
+        final AtomicInteger evaluations = new AtomicInteger();
+
+        volatile int configured = 1;
+
+        public int maxFor(Integer attempts) {
+            this.evaluations.incrementAndGet();
+            return attempts == null ? 1 : attempts;
+        }
+
+        public int configured() {
+            this.evaluations.incrementAndGet();
+            return this.configured;
+        }
+    }
+
+    public static class ExpressionService {
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        @Retryable(maxAttemptsExpression = "@source.maxFor(args[0])", backoff = @Backoff(delay = 1))
+        public String byArgs(int maxAttempts) {
+            this.attempts.incrementAndGet();
+            throw new IllegalStateException("down");
+        }
+
+        @Retryable(maxAttemptsExpression = "@source.configured()", backoff = @Backoff(delay = 1))
+        public String configured() {
+            this.attempts.incrementAndGet();
+            throw new IllegalStateException("down");
+        }
+
+        @Recover
+        public String recover(IllegalStateException e) {
+            return "recovered";
+        }
+    }
+
+    public static class SharedService {
+        @Retryable(retryFor = { IllegalStateException.class, IllegalArgumentException.class }, maxAttempts = 2,
+                backoff = @Backoff(delay = 1))
+        public String first() {
+            throw new IllegalStateException("down");
+        }
+
+        @Retryable(retryFor = { IllegalStateException.class, IllegalArgumentException.class }, maxAttempts = 2,
+                backoff = @Backoff(delay = 1))
+        public String second() {
+            throw new IllegalStateException("down");
+        }
+
+        @Retryable(retryFor = { IllegalArgumentException.class, IllegalStateException.class }, maxAttempts = 2,
+                backoff = @Backoff(1))
+        public String reordered() {
+            throw new IllegalStateException("down");
+        }
+
+        @Retryable(retryFor = { IllegalStateException.class, IllegalArgumentException.class }, maxAttempts = 3,
+                backoff = @Backoff(delay = 1))
+        public String different() {
+            throw new IllegalStateException("down");
+        }
+
+        @Retryable(retryFor = { IllegalStateException.class, IllegalArgumentException.class }, maxAttemptsExpression = "2",
+                backoff = @Backoff(delay = 1))
+        public String expression() {
+            throw new IllegalStateException("down");
+        }
+
+        @Recover
+        public String recover(RuntimeException e) {
+            return "recovered";
+        }
+    }
+
+    public static class BreakerService {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @CircuitBreaker(name = "downstream", maxAttempts = 2)
+        public String first() {
+            this.calls.incrementAndGet();
+            throw new IllegalStateException("down");
+        }
+
+        @CircuitBreaker(name = "downstream", maxAttempts = 2)
+        public String second() {
+            this.calls.incrementAndGet();
+            return "ok";
+        }
+
+        @CircuitBreaker(name = "bounded", key = "#args[0]", maxKeys = 10)
+        public String bounded(String host) {
+            return host;
+        }
+
+        @CircuitBreaker(name = "bounded", key = "#args[0]", maxKeys = LruRetryContextCache.DEFAULT_CAPACITY)
+        public String defaultCapacity(String host) {
+            return host;
+        }
+
+        @CircuitBreaker(key = "#args[0]")
+        public String perHost(String host) {
+            return host;
+        }
+
+        @Recover
+        public String recover(IllegalStateException e) {
+            return "recovered";
+        }
+    }
+
+    public static class CountingListener implements RetryListener {
+        static final AtomicInteger CREATED = new AtomicInteger();
+
+        public CountingListener() {
+            CREATED.incrementAndGet();
+        }
+    }
+}
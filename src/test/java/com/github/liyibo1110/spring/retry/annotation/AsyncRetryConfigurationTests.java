@@ -0,0 +1,103 @@
+package com.github.liyibo1110.spring.retry.annotation;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 异步重试的调度器和executor配置测试：只使用@EnableRetry显式指定的bean，
+ * 调度线程只负责计时，backoff之后的尝试在executor上执行
+ * @author liyibo
+ * @date 2026-10-20 14:20
+ */
+public class AsyncRetryConfigurationTests {
+
+    @Test
+    public void testUnrelatedSchedulerBeanIsNotPickedUp() {
+        try(AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(DefaultConfiguration.class)) {
+            AnnotationAwareRetryOperationsInterceptor interceptor = (AnnotationAwareRetryOperationsInterceptor)context
+                    .getBean(RetryConfiguration.class).getAdvice();
+            assertThat(ReflectionTestUtils.getField(interceptor, "asyncScheduler")).isNull();
+            assertThat(ReflectionTestUtils.getField(interceptor, "asyncExecutor")).isNull();
+        }
+    }
+
+    @Test
+    public void testRetriesRunOnExecutorNotOnScheduler() throws Exception {
+        try(AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(NamedConfiguration.class)) {
+            AnnotationAwareRetryOperationsInterceptor interceptor = (AnnotationAwareRetryOperationsInterceptor)context
+                    .getBean(RetryConfiguration.class).getAdvice();
+            assertThat(ReflectionTestUtils.getField(interceptor, "asyncScheduler")).isSameAs(context.getBean("retryScheduler"));
+            assertThat(ReflectionTestUtils.getField(interceptor, "asyncExecutor")).isSameAs(context.getBean("retryExecutor"));
+
+            AsyncService service = context.getBean(AsyncService.class);
+            assertThat(service.call().get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+            // 第1次尝试在调用线程上，之后的尝试都在executor上，不在调度线程上
+            List<String> threads = service.getThreads();    // CGLIB代理，字段要通过方法从target上取
+            assertThat(threads).hasSize(3);
+            assertThat(threads.get(0)).isEqualTo(Thread.currentThread().getName());
+            assertThat(threads.subList(1, 3)).allMatch(name -> name.equals("retry-executor"));
+        }
+    }
+
+    @Configuration
+    @EnableRetry(proxyTargetClass = true)
+    static class DefaultConfiguration {
+        @Bean(destroyMethod = "shutdownNow")
+        public ScheduledExecutorService businessScheduler() {
+            return Executors.newSingleThreadScheduledExecutor();
+        }
+
+        @Bean
+        public AsyncService asyncService() {
+            return new AsyncService();
+        }
+    }
+
+    @Configuration
+    @EnableRetry(proxyTargetClass = true, asyncScheduler = "retryScheduler", asyncExecutor = "retryExecutor")
+    static class NamedConfiguration {
+        @Bean(destroyMethod = "shutdownNow")
+        public ScheduledExecutorService retryScheduler() {
+            return Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "retry-scheduler"));
+        }
+
+        @Bean(destroyMethod = "shutdownNow")
+        public ExecutorService retryExecutor() {
+            return Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "retry-executor"));
+        }
+
+        @Bean
+        public AsyncService asyncService() {
+            return new AsyncService();
+        }
+    }
+
+    public static class AsyncService {
+        private final List<String> threads = new CopyOnWriteArrayList<>();
+
+        public List<String> getThreads() {
+            return this.threads;
+        }
+
+        @Retryable(maxAttempts = 3, backoff = @Backoff(delay = 10))
+        public CompletableFuture<String> call() {
+            this.threads.add(Thread.currentThread().getName());
+            if(this.threads.size() < 3)
+                return CompletableFuture.failedFuture(new IllegalStateException("down"));
+            return CompletableFuture.completedFuture("ok");
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.liyibo1110.spring.retry.annotation;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * EnableRetry.eagerInitialization测试，容器启动完成时JDK代理和CGLIB代理的拦截器都已经解析好，
+ * 解析失败的bean不影响容器启动，退回到第一次调用时再解析
+ * @author liyibo
+ * @date 2026-10-20 12:40
+ */
+public class EagerInitializationTests {
+
+    @Test
+    public void testInterceptorsAreResolvedBeforeFirstCall() throws Exception {
+        try(AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(EagerConfiguration.class)) {
+            AnnotationAwareRetryOperationsInterceptor interceptor = (AnnotationAwareRetryOperationsInterceptor)context
+                    .getBean(RetryConfiguration.class).getAdvice();
+
+            JdkService jdk = context.getBean(JdkService.class);
+            assertThat(AopUtils.isJdkDynamicProxy(jdk)).isTrue();
+            // JDK代理调用时传入的是接口上的method
+            assertThat(cached(interceptor, JdkServiceImpl.class)).containsKey(JdkService.class.getMethod("call"));
+
+            CglibService cglib = context.getBean(CglibService.class);
+            assertThat(AopUtils.isCglibProxy(cglib)).isTrue();
+            assertThat(cached(interceptor, CglibService.class)).containsKey(CglibService.class.getMethod("call"));
+
+            assertThat(jdk.call()).isEqualTo("recovered");
+            assertThat(cglib.call()).isEqualTo("recovered");
+        }
+    }
+
+    @Test
+    public void testFailedResolutionFallsBackToFirstCall() throws Exception {
+        try(AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(EagerConfiguration.class)) {
+            AnnotationAwareRetryOperationsInterceptor interceptor = (AnnotationAwareRetryOperationsInterceptor)context
+                    .getBean(RetryConfiguration.class).getAdvice();
+            Method method = LateService.class.getMethod("call");
+            // 启动时指定的拦截器bean还不存在，解析失败，但容器正常启动，也没有缓存任何结果
+            assertThat(cached(interceptor, LateService.class)).doesNotContainKey(method);
+
+            context.getBeanFactory().registerSingleton("lateInterceptor", (MethodInterceptor)invocation -> "late");
+            assertThat(context.getBean(LateService.class).call()).isEqualTo("late");
+            assertThat(cached(interceptor, LateService.class)).containsKey(method);
+        }
+    }
+
+    private static Map<Method, MethodInterceptor> cached(AnnotationAwareRetryOperationsInterceptor interceptor,
+                                                        Class<?> targetClass) {
+        Map<Class<?>, Map<Method, MethodInterceptor>> delegates = (Map<Class<?>, Map<Method, MethodInterceptor>>)ReflectionTestUtils
+                .getField(interceptor, "delegates");
+        return delegates.getOrDefault(targetClass, Map.of());
+    }
+
+    @Configuration
+    @EnableRetry(eagerInitialization = true)
+    static class EagerConfiguration {
+        @Bean
+        public JdkService jdkService() {
+            return new JdkServiceImpl();
+        }
+
+        @Bean
+        public CglibService cglibService() {
+            return new CglibService();
+        }
+
+        @Bean
+        public LateService lateService() {
+            return new LateService();
+        }
+    }
+
+    public interface JdkService {
+        String call();
+    }
+
+    public static class JdkServiceImpl implements JdkService {
+        @Override
+        @Retryable(maxAttempts = 2, backoff = @Backoff(1))
+        public String call() {
+            throw new IllegalStateException("down");
+        }
+
+        @Recover
+        public String recover(IllegalStateException e) {
+            return "recovered";
+        }
+    }
+
+    public static class CglibService {
+        @Retryable(maxAttempts = 2, backoff = @Backoff(1))
+        public String call() {
+            throw new IllegalStateException("down");
+        }
+
+        @Recover
+        public String recover(IllegalStateException e) {
+            return "recovered";
+        }
+    }
+
+    public static class LateService {
+        @Retryable(interceptor = "lateInterceptor")
+        public String call() {
+            return "direct";
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.liyibo1110.spring.retry.annotation;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.UndeclaredThrowableException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author liyibo
+ * @date 2026-10-20 03:00
+ */
+public class RecoverAnnotationRecoveryHandlerTests {
+
+    @Test
+    public void testCachedDispatchByCauseAndArgumentTypes() throws Exception {
+        RecoverAnnotationRecoveryHandler<String> handler = new RecoverAnnotationRecoveryHandler<>(Service.class,
+                Service.class.getMethod("call", Object.class));
+        Service first = new Service("first");
+        Service second = new Service("second");
+        for(int i = 0; i < 3; i++) {
+            assertThat(handler.recover(first, new Object[] { "x" }, new IllegalStateException()))
+                    .isEqualTo("first:state:x");
+            assertThat(handler.recover(second, new Object[] { 1 }, new IllegalArgumentException()))
+                    .isEqualTo("second:runtime:1");
+            assertThat(handler.recover(second, new Object[] { null }, new IllegalStateException()))
+                    .isEqualTo("second:state:null");
+        }
+    }
+
+    @Test
+    public void testCheckedExceptionFromRecoverIsWrapped() throws Exception {
+        RecoverAnnotationRecoveryHandler<String> handler = new RecoverAnnotationRecoveryHandler<>(Service.class,
+                Service.class.getMethod("call", Object.class));
+        assertThatThrownBy(() -> handler.recover(new Service("s"), new Object[] { "x" }, new IOException()))
+                .isInstanceOf(UndeclaredThrowableException.class)
+                .hasCauseInstanceOf(IOException.class);
+        assertThatThrownBy(() -> handler.recover(new Service("s"), new Object[] { "x" }, new UnsupportedOperationException("boom")))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    static class Service {
+        private final String name;
+
+        Service(String name) {
+            this.name = name;
+        }
+
+        @Retryable
+        public String call(Object arg) {
+            return null;
+        }
+
+        @Recover
+        private String recoverState(IllegalStateException e, Object arg) {
+            return this.name + ":state:" + arg;
+        }
+
+        @Recover
+        String recoverRuntime(RuntimeException e, Object arg) {
+            if(e instanceof UnsupportedOperationException)
+                throw e;
+            return this.name + ":runtime:" + arg;
+        }
+
+        @Recover
+        String recoverChecked(IOException e, Object arg) throws IOException {
+            throw e;
+        }
+    }
+}
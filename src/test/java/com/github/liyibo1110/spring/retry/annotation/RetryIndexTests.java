@@ -0,0 +1,79 @@
+package com.github.liyibo1110.spring.retry.annotation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 编译期索引测试：用RetryIndexProcessor编译一段源码，再从生成的索引中读取
+ * @author liyibo
+ * @date 2026-10-20 02:30
+ */
+public class RetryIndexTests {
+
+    private static final String SOURCE = """
+            package demo;
+
+            import com.github.liyibo1110.spring.retry.annotation.CircuitBreaker;
+            import com.github.liyibo1110.spring.retry.annotation.Recover;
+            import com.github.liyibo1110.spring.retry.annotation.Retryable;
+
+            public class Service {
+                @Retryable
+                public String call(String[] names, Inner inner, int count) { return null; }
+
+                @Recover
+                public String recover(IllegalStateException e, String[] names, Inner inner, int count) { return null; }
+
+                public static class Inner {
+                    @CircuitBreaker
+                    public void guarded() {}
+                }
+
+                public static class Plain extends Service.Inner {
+                    public void nothing() {}
+                }
+            }
+
+            class Unrelated {
+                public void nothing() {}
+            }
+            """;
+
+    @Test
+    public void testIndexReplacesReflectiveScanning(@TempDir Path dir) throws Exception {
+        Path source = dir.resolve("demo/Service.java");
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, SOURCE);
+        Path classes = Files.createDirectories(dir.resolve("classes"));
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int status = compiler.run(null, null, null, "-d", classes.toString(),
+                "-classpath", System.getProperty("java.class.path"),
+                "-processor", RetryIndexProcessor.class.getName(), source.toString());
+        assertThat(status).isZero();
+        assertThat(classes.resolve(RetryIndex.LOCATION)).exists();
+
+        try(URLClassLoader loader = new URLClassLoader(new URL[] { classes.toUri().toURL() }, getClass().getClassLoader())) {
+            RetryIndex index = RetryIndex.get(loader);
+            Class<?> service = loader.loadClass("demo.Service");
+            assertThat(index.hasRetryable(service)).isTrue();
+            assertThat(index.hasRetryable(loader.loadClass("demo.Service$Inner"))).isTrue();   // 元注解
+            assertThat(index.hasRetryable(loader.loadClass("demo.Service$Plain"))).isTrue();   // 父类
+            assertThat(index.hasRetryable(loader.loadClass("demo.Unrelated"))).isFalse();
+            assertThat(index.hasRetryable(RetryIndexTests.class)).isNull();    // 没有被索引，退回反射扫描
+
+            List<Method> recovers = index.findRecoverMethods(service);
+            assertThat(recovers).extracting(Method::getName).containsExactly("recover");
+        }
+    }
+}
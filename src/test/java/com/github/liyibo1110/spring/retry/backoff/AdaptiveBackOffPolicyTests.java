@@ -0,0 +1,135 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import com.github.liyibo1110.spring.retry.RetryContext;
+import com.github.liyibo1110.spring.retry.context.RetryContextSupport;
+import com.github.liyibo1110.spring.retry.stats.DefaultStatisticsRepository;
+import com.github.liyibo1110.spring.retry.stats.RecoveryCurve;
+import com.github.liyibo1110.spring.retry.stats.RecoveryTimeHistogram;
+import com.github.liyibo1110.spring.retry.stats.StatisticsListener;
+import com.github.liyibo1110.spring.retry.support.RetryTemplate;
+import com.github.liyibo1110.spring.retry.support.RetryTemplateBuilder;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.AttributeAccessor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 自适应backoff测试
+ * @author liyibo
+ * @date 2026-10-19 23:20
+ */
+public class AdaptiveBackOffPolicyTests {
+
+    @Test
+    public void testRecoveryCurve() {
+        RecoveryTimeHistogram histogram = new RecoveryTimeHistogram();
+        for(int i = 0; i < 90; i++)
+            histogram.recordRecovery(1000);
+        for(int i = 0; i < 10; i++)
+            histogram.recordFailure();
+        RecoveryCurve curve = histogram.snapshot();
+        assertThat(curve.samples()).isEqualTo(100);
+        assertThat(curve.probability(500)).isEqualTo(0);
+        assertThat(curve.probability(1024)).isEqualTo(0.9);
+        assertThat(curve.probability(Long.MAX_VALUE)).isEqualTo(0.9);
+    }
+
+    @Test
+    public void testFallsBackToExponentialAndLearnsRecovery() throws Exception {
+        List<Long> sleeps = new ArrayList<>();
+        AdaptiveBackOffPolicy policy = new AdaptiveBackOffPolicy();
+        policy.setMinInterval(100);
+        policy.setMaxInterval(1000);
+        policy.setSleeper(sleeps::add);
+        RetryTemplate template = new RetryTemplateBuilder().maxAttempts(4).customBackoff(policy)
+                .withListener(policy).build();
+        AtomicInteger attempts = new AtomicInteger();
+        String result = template.execute(context -> {
+            if(attempts.incrementAndGet() < 4)
+                throw new IllegalStateException("not yet");
+            return "ok";
+        });
+        assertThat(result).isEqualTo("ok");
+        assertThat(sleeps).containsExactly(100L, 200L, 400L);
+        assertThat(policy.getRecoveryCurve("default").samples()).isEqualTo(1);
+    }
+
+    @Test
+    public void testChoosesWaitFromBimodalCurve() {
+        List<Long> sleeps = new ArrayList<>();
+        AdaptiveBackOffPolicy policy = bimodal(sleeps, 10000);
+        // 刚失败：200ms附近已经有一半恢复了，单位等待时间内成功概率最高，选第1个峰（所在桶的上界是216）
+        assertThat(backOffAfter(policy, 0, sleeps)).isBetween(200L, 216L);
+        // 过了1秒，第1个峰已经过去，只剩下5000ms附近的第2个峰（所在桶的上界是5793）
+        assertThat(backOffAfter(policy, 1000, sleeps)).isBetween(4780L, 4793L);
+        // 离第1个峰所在的桶只剩66ms，小于minInterval，选同样覆盖第1个峰的下一个桶（上界256）
+        assertThat(backOffAfter(policy, 150, sleeps)).isBetween(100L, 106L);
+        // 所有样本都恢复过了，剩余的成功概率为0，等待maxInterval
+        assertThat(backOffAfter(policy, 7000, sleeps)).isEqualTo(10000L);
+    }
+
+    @Test
+    public void testWaitIsClampedToMaxInterval() {
+        List<Long> sleeps = new ArrayList<>();
+        AdaptiveBackOffPolicy policy = bimodal(sleeps, 3000);
+        assertThat(backOffAfter(policy, 0, sleeps)).isBetween(200L, 216L);
+        // 第2个峰在maxInterval之外，不会等那么久
+        assertThat(backOffAfter(policy, 1000, sleeps)).isEqualTo(3000L);
+    }
+
+    @Test
+    public void testRecoveryCurveReachesStatistics() throws Exception {
+        AdaptiveBackOffPolicy policy = new AdaptiveBackOffPolicy();
+        policy.setSleeper(period -> { });
+        DefaultStatisticsRepository repository = new DefaultStatisticsRepository();
+        RetryTemplate template = new RetryTemplateBuilder().maxAttempts(2).customBackoff(policy)
+                .withListener(policy).withListener(new StatisticsListener(repository)).build();
+        AtomicInteger attempts = new AtomicInteger();
+        template.execute(context -> {
+            context.setAttribute(RetryContext.NAME, "downstream");
+            if(attempts.incrementAndGet() < 2)
+                throw new IllegalStateException("not yet");
+            return "ok";
+        });
+        AttributeAccessor statistics = (AttributeAccessor)repository.findOne("downstream");
+        assertThat(statistics.getAttribute(AdaptiveBackOffPolicy.RECOVERY_CURVE)).isInstanceOf(RecoveryCurve.class);
+    }
+
+    /**
+     * 预先学习到的双峰曲线：一半在200ms恢复，一半在5000ms恢复，超过minSamples
+     */
+    private AdaptiveBackOffPolicy bimodal(List<Long> sleeps, long maxInterval) {
+        AdaptiveBackOffPolicy policy = new AdaptiveBackOffPolicy();
+        policy.setMinInterval(100);
+        policy.setMaxInterval(maxInterval);
+        policy.setMinSamples(20);
+        policy.setSleeper(sleeps::add);
+        RecoveryTimeHistogram histogram = new RecoveryTimeHistogram();
+        for(int i = 0; i < 50; i++) {
+            histogram.recordRecovery(200);
+            histogram.recordRecovery(5000);
+        }
+        Map<String, RecoveryTimeHistogram> histograms = (Map<String, RecoveryTimeHistogram>)ReflectionTestUtils.getField(policy, "histograms");
+        histograms.put("default", histogram);
+        return policy;
+    }
+
+    /**
+     * 首次失败已经过去elapsed毫秒时，backoff一次的等待时间
+     */
+    private long backOffAfter(AdaptiveBackOffPolicy policy, long elapsed, List<Long> sleeps) {
+        RetryContext context = new RetryContextSupport(null);
+        String firstFailure = (String)ReflectionTestUtils.getField(AdaptiveBackOffPolicy.class, "FIRST_FAILURE");
+        context.setAttribute(firstFailure, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(elapsed));
+        policy.backOff(policy.start(context));
+        assertThat(context.getAttribute(AdaptiveBackOffPolicy.RECOVERY_CURVE)).isInstanceOf(RecoveryCurve.class);
+        return sleeps.get(sleeps.size() - 1);
+    }
+}
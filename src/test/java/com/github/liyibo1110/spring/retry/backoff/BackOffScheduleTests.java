@@ -0,0 +1,56 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * backoff时间表测试
+ * @author liyibo
+ * @date 2026-10-19 21:50
+ */
+public class BackOffScheduleTests {
+
+    @Test
+    public void testExponentialMatchesExponentialBackOffPolicy() {
+        BackOffSchedule schedule = BackOffSchedule.exponential(100, 1.5, 1000);
+        ExponentialBackOffPolicy.ExponentialBackOffContext context =
+                new ExponentialBackOffPolicy.ExponentialBackOffContext(100, 1.5, 1000, null, null, null);
+        for(int i = 0; i < 10; i++)
+            assertThat(schedule.intervalAt(i)).isEqualTo(context.getSleepAndIncrement());
+    }
+
+    @Test
+    public void testFibonacciAndTable() {
+        BackOffSchedule fibonacci = BackOffSchedule.fibonacci(100, 1000);
+        assertThat(new long[] { fibonacci.intervalAt(0), fibonacci.intervalAt(1), fibonacci.intervalAt(2),
+                fibonacci.intervalAt(3), fibonacci.intervalAt(4), fibonacci.intervalAt(10) })
+                .containsExactly(100, 100, 200, 300, 500, 1000);
+        BackOffSchedule table = BackOffSchedule.of(10, 50, 500);
+        assertThat(table.intervalAt(1)).isEqualTo(50);
+        assertThat(table.intervalAt(7)).isEqualTo(500);
+    }
+
+    @Test
+    public void testEachExecutionHasItsOwnCursor() {
+        List<Long> sleeps = new ArrayList<>();
+        ScheduledBackOffPolicy policy = new ScheduledBackOffPolicy(BackOffSchedule.exponential(100, 2, 1000))
+                .withSleeper(sleeps::add);
+        BackOffContext first = policy.start(null);
+        BackOffContext second = policy.start(null);
+        policy.backOff(first);
+        policy.backOff(first);
+        policy.backOff(second);
+        policy.backOff(first);
+        assertThat(sleeps).containsExactly(100L, 200L, 100L, 400L);
+    }
+
+    @Test
+    public void testBuilderStillReturnsExponentialPolicy() {
+        BackOffPolicy policy = BackOffPolicyBuilder.newBuilder().delay(100).multiplier(2).maxDelay(1000).build();
+        assertThat(policy).isExactlyInstanceOf(ExponentialBackOffPolicy.class);
+    }
+}
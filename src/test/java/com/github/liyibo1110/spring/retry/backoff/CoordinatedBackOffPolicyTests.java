@@ -0,0 +1,89 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 协调backoff测试，等待时间不小于指数部分，共享同一个calendar的多个policy（对应多个RetryTemplate）的重试时间被分散开
+ * @author liyibo
+ * @date 2026-10-20 16:00
+ */
+public class CoordinatedBackOffPolicyTests {
+
+    @Test
+    public void testWaitIsAtLeastExponentialBase() {
+        RecordingSleeper sleeper = new RecordingSleeper();
+        CoordinatedBackOffPolicy policy = policy(new RetrySlotCalendar(), 1.0, sleeper);
+        BackOffContext context = policy.start(null);
+        for(int i = 0; i < 4; i++)
+            policy.backOff(context);
+
+        long base = 100;
+        for(long wait : sleeper.waits) {
+            // 只能往后推，最多推迟base * spread
+            assertThat(wait).isBetween(base, base * 2);
+            base *= 2;
+        }
+    }
+
+    @Test
+    public void testZeroSpreadStaysWithinOneBucket() {
+        RecordingSleeper sleeper = new RecordingSleeper();
+        CoordinatedBackOffPolicy policy = policy(new RetrySlotCalendar(10, 20, 1024), 0, sleeper);
+        policy.backOff(policy.start(null));
+        assertThat(sleeper.waits.get(0)).isBetween(100L, 110L);
+    }
+
+    @Test
+    public void testTemplatesSharingCalendarAreSpread() {
+        // 每个桶只能放1次重试，[1000, 2000]毫秒的范围内有101个桶
+        RetrySlotCalendar calendar = new RetrySlotCalendar(10, 1, 1024);
+        RecordingSleeper sleeper = new RecordingSleeper();
+        CoordinatedBackOffPolicy first = policy(calendar, 1.0, sleeper);
+        first.setInitialInterval(1000);
+        CoordinatedBackOffPolicy second = (CoordinatedBackOffPolicy)first.withSleeper(sleeper);
+        assertThat(second.getCalendar()).isSameAs(calendar);
+
+        for(int i = 0; i < 50; i++) {
+            first.backOff(first.start(null));
+            second.backOff(second.start(null));
+        }
+        assertThat(sleeper.waits).hasSize(100).allMatch(wait -> wait >= 1000);
+        // 两个policy的重试落在不同的桶里，记录时间和预约时间之间可能跨过毫秒边界，留一点余量
+        Set<Long> buckets = new HashSet<>();
+        for(long at : sleeper.at)
+            buckets.add(at / 10);
+        assertThat(buckets).hasSizeGreaterThanOrEqualTo(90);
+    }
+
+    private static CoordinatedBackOffPolicy policy(RetrySlotCalendar calendar, double spread, Sleeper sleeper) {
+        CoordinatedBackOffPolicy policy = new CoordinatedBackOffPolicy();
+        policy.setInitialInterval(100);
+        policy.setMultiplier(2);
+        policy.setMaxInterval(60000);
+        policy.setCalendar(calendar);
+        policy.setSpread(spread);
+        policy.setSleeper(sleeper);
+        return policy;
+    }
+
+    /**
+     * 不真正sleep，记录每次的等待时间和对应的重试时间
+     */
+    private static class RecordingSleeper implements Sleeper {
+        private final List<Long> waits = new ArrayList<>();
+        private final List<Long> at = new ArrayList<>();
+
+        @Override
+        public void sleep(long backOffPeriod) {
+            this.waits.add(backOffPeriod);
+            this.at.add(System.currentTimeMillis() + backOffPeriod);
+        }
+    }
+}
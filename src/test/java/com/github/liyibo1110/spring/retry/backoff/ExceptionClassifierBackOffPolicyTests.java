@@ -0,0 +1,58 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import com.github.liyibo1110.spring.retry.support.RetryTemplate;
+import com.github.liyibo1110.spring.retry.support.RetryTemplateBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 按异常类型选择backoff的测试
+ * @author liyibo
+ * @date 2026-10-19 23:50
+ */
+public class ExceptionClassifierBackOffPolicyTests {
+
+    @Test
+    public void testDelegatesKeepTheirOwnContext() throws Exception {
+        ExponentialBackOffPolicy io = new ExponentialBackOffPolicy();
+        io.setInitialInterval(5);
+        io.setMultiplier(2);
+        assertThat(interleavedSleeps(io)).containsExactly(5L, 3000L, 10L, 20L);
+    }
+
+    @Test
+    public void testScheduledDelegateKeepsItsOwnCursor() throws Exception {
+        ScheduledBackOffPolicy io = new ScheduledBackOffPolicy(BackOffSchedule.exponential(5, 2, 1000));
+        assertThat(interleavedSleeps(io)).containsExactly(5L, 3000L, 10L, 20L);
+    }
+
+    private static List<Long> interleavedSleeps(BackOffPolicy io) throws Exception {
+        List<Long> sleeps = new ArrayList<>();
+        FixedBackOffPolicy fallback = new FixedBackOffPolicy();
+        fallback.setBackOffPeriod(3000);
+        ExceptionClassifierBackOffPolicy policy = new ExceptionClassifierBackOffPolicy();
+        policy.setPolicyMap(Map.of(IOException.class, io));
+        policy.setDefaultPolicy(fallback);
+        policy = policy.withSleeper(sleeps::add);
+
+        RetryTemplate template = new RetryTemplateBuilder().maxAttempts(5).retryOn(Exception.class)
+                .customBackoff(policy).build();
+        AtomicInteger attempts = new AtomicInteger();
+        template.execute(context -> {
+            int attempt = attempts.incrementAndGet();
+            if(attempt == 5)
+                return null;
+            if(attempt == 2)
+                throw new IllegalStateException("throttled");
+            throw new IOException("connection reset");
+        });
+        return sleeps;
+    }
+}
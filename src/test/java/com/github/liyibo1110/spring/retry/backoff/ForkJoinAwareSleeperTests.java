@@ -0,0 +1,60 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ForkJoinPool感知的Sleeper测试：一半任务在backoff时，parallel stream的吞吐不应该被拖垮
+ * @author liyibo
+ * @date 2026-10-20 00:20
+ */
+public class ForkJoinAwareSleeperTests {
+    private static final int PARALLELISM = 4;
+
+    private static final int TASKS = 64;
+
+    private static final long BACKOFF = 100;
+
+    @Test
+    public void testParallelStreamThroughputIsPreserved() throws Exception {
+        long plain = run(new ThreadWaitSleeper());
+        long managed = run(new ForkJoinAwareSleeper());
+        // 32个任务各等待100毫秒，4个worker最少需要800毫秒，补偿线程可以让它们基本同时等待
+        assertThat(plain).isGreaterThanOrEqualTo(TASKS / 2 * BACKOFF / PARALLELISM);
+        assertThat(managed).isLessThan(plain / 2);
+    }
+
+    @Test
+    public void testDelegatesOutsideForkJoinPool() throws Exception {
+        long[] slept = new long[1];
+        new ForkJoinAwareSleeper(period -> slept[0] = period).sleep(42);
+        assertThat(slept[0]).isEqualTo(42);
+    }
+
+    /**
+     * 在parallelism为4的pool中跑parallel stream，偶数任务backoff，返回总耗时（毫秒）
+     */
+    private long run(Sleeper sleeper) throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        try {
+            long start = System.nanoTime();
+            pool.submit(() -> IntStream.range(0, TASKS).parallel().forEach(i -> {
+                if(i % 2 == 0) {
+                    try {
+                        sleeper.sleep(BACKOFF);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            })).get();
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HashedWheelTimer和ScheduledThreadPoolExecutor的插入、取消耗时对比，不是单元测试，需要手动运行：
+ * mvn -B test-compile，然后java -cp target/classes:target/test-classes:spring-core.jar:spring-jcl.jar
+ * com.github.liyibo1110.spring.retry.backoff.HashedWheelTimerBenchmark [timeouts] [rounds]。
+ * 每一轮插入timeouts个60~110秒之后到期的任务（不会有任务真正到期），再全部取消，分别计时，
+ * 前面一半轮次作为预热不计入结果，最后输出剩余轮次的中位数。延迟用固定种子生成，每次运行的输入相同
+ * @author liyibo
+ * @date 2026-10-20 14:00
+ */
+public class HashedWheelTimerBenchmark {
+    private static final long SEED = 42L;
+
+    public static void main(String[] args) {
+        int timeouts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        long[] delays = delays(timeouts);
+        System.out.printf("timeouts=%d, rounds=%d (first %d are warmup), java=%s%n",
+                timeouts, rounds, rounds / 2, System.getProperty("java.version"));
+        report("HashedWheelTimer", wheel(delays, rounds), rounds);
+        report("ScheduledThreadPoolExecutor", executor(delays, rounds), rounds);
+    }
+
+    private static long[][] wheel(long[] delays, int rounds) {
+        long[][] result = new long[2][rounds];
+        HashedWheelTimer timer = new HashedWheelTimer(100, TimeUnit.MILLISECONDS, 512);
+        try {
+            List<HashedWheelTimer.Timeout> pending = new ArrayList<>(delays.length);
+            for(int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                for(long delay : delays)
+                    pending.add(timer.newTimeout(HashedWheelTimerBenchmark::noop, delay, TimeUnit.MILLISECONDS));
+                result[0][round] = System.nanoTime() - start;
+                start = System.nanoTime();
+                for(HashedWheelTimer.Timeout timeout : pending)
+                    timeout.cancel();
+                result[1][round] = System.nanoTime() - start;
+                pending.clear();
+                awaitDrained(timer);
+            }
+        } finally {
+            timer.stop();
+        }
+        return result;
+    }
+
+    private static long[][] executor(long[] delays, int rounds) {
+        long[][] result = new long[2][rounds];
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        // 不设置的话取消的任务会一直留在堆里直到到期，和时间轮的比较就不公平了
+        executor.setRemoveOnCancelPolicy(true);
+        try {
+            List<ScheduledFuture<?>> pending = new ArrayList<>(delays.length);
+            for(int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                for(long delay : delays)
+                    pending.add(executor.schedule(HashedWheelTimerBenchmark::noop, delay, TimeUnit.MILLISECONDS));
+                result[0][round] = System.nanoTime() - start;
+                start = System.nanoTime();
+                for(ScheduledFuture<?> future : pending)
+                    future.cancel(false);
+                result[1][round] = System.nanoTime() - start;
+                pending.clear();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    /**
+     * 等ticker线程把取消的任务从bucket中摘除，避免上一轮的残留影响下一轮
+     */
+    private static void awaitDrained(HashedWheelTimer timer) {
+        while(timer.pendingTimeouts() > 0) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static long[] delays(int timeouts) {
+        Random random = new Random(SEED);
+        long[] delays = new long[timeouts];
+        for(int i = 0; i < timeouts; i++)
+            delays[i] = 60_000 + random.nextInt(50_000);
+        return delays;
+    }
+
+    private static void report(String name, long[][] result, int rounds) {
+        System.out.printf("%-28s schedule median=%dms, cancel median=%dms%n", name,
+                median(result[0], rounds), median(result[1], rounds));
+    }
+
+    private static long median(long[] nanos, int rounds) {
+        long[] measured = Arrays.copyOfRange(nanos, rounds / 2, rounds);
+        Arrays.sort(measured);
+        return TimeUnit.NANOSECONDS.toMillis(measured[measured.length / 2]);
+    }
+
+    private static void noop() {
+    }
+}
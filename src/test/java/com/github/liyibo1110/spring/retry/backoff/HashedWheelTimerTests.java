@@ -0,0 +1,60 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 时间轮定时器测试
+ * @author liyibo
+ * @date 2026-10-19 17:45
+ */
+public class HashedWheelTimerTests {
+
+    @Test
+    public void testExpireAndCancel() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer(5, TimeUnit.MILLISECONDS, 8);
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            AtomicBoolean cancelledRan = new AtomicBoolean();
+            HashedWheelTimer.Timeout cancelled = timer.newTimeout(() -> cancelledRan.set(true), 30, TimeUnit.MILLISECONDS);
+            long start = System.nanoTime();
+            // 超过1圈（8 * 5ms）的任务也要按时执行
+            timer.newTimeout(latch::countDown, 60, TimeUnit.MILLISECONDS);
+            assertThat(cancelled.cancel()).isTrue();
+            assertThat(latch.await(2, TimeUnit.SECONDS)).isTrue();
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(60);
+            assertThat(cancelledRan.get()).isFalse();
+            assertThat(timer.pendingTimeouts()).isEqualTo(0);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    public void testHugeDelayDoesNotOverflow() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer(5, TimeUnit.MILLISECONDS, 8);
+        try {
+            AtomicBoolean ran = new AtomicBoolean();
+            HashedWheelTimer.Timeout timeout = timer.newTimeout(() -> ran.set(true), Long.MAX_VALUE, TimeUnit.DAYS);
+            Thread.sleep(50);
+            assertThat(ran.get()).isFalse();
+            assertThat(timer.pendingTimeouts()).isEqualTo(1);
+            assertThat(timeout.cancel()).isTrue();
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    public void testSleeper() throws Exception {
+        TimerWheelSleeper sleeper = new TimerWheelSleeper();
+        long start = System.nanoTime();
+        sleeper.sleep(50);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(50);
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 抖动backoff测试，模拟大量客户端在同一时刻失败之后，各自重试到达下游的时间分布
+ * @author liyibo
+ * @date 2026-10-19 18:40
+ */
+public class JitterBackOffPolicyTests {
+    private static final int CLIENTS = 1000;
+    private static final int RETRIES = 5;
+    /** 统计到达峰值的时间窗口（毫秒） */
+    private static final long WINDOW = 100;
+
+    @Test
+    public void testJitterSpreadsSynchronizedRetries() {
+        Map<Jitter, Integer> peaks = new HashMap<>();
+        for(Jitter jitter : Jitter.values())
+            peaks.put(jitter, simulate(jitter));
+        // 不抖动时所有客户端每一轮都同时到达
+        assertThat(peaks.get(Jitter.NONE)).isEqualTo(CLIENTS);
+        assertThat(peaks.get(Jitter.FULL)).isLessThan(CLIENTS / 3);
+        assertThat(peaks.get(Jitter.EQUAL)).isLessThan(CLIENTS / 3);
+        assertThat(peaks.get(Jitter.DECORRELATED)).isLessThan(CLIENTS / 3);
+        // 抖动之后的峰值必须低于不抖动的峰值
+        assertThat(peaks.get(Jitter.FULL)).isLessThan(peaks.get(Jitter.NONE));
+        assertThat(peaks.get(Jitter.DECORRELATED)).isLessThan(peaks.get(Jitter.NONE));
+    }
+
+    @Test
+    public void testDelaysStayWithinBounds() {
+        for(Jitter jitter : Jitter.values()) {
+            RecordingSleeper sleeper = new RecordingSleeper();
+            JitterBackOffPolicy policy = policy(jitter, sleeper);
+            BackOffContext context = policy.start(null);
+            for(int i = 0; i < 20; i++) {
+                policy.backOff(context);
+                assertThat(sleeper.last).isBetween(0L, 60000L);
+            }
+        }
+    }
+
+    @Test
+    public void testBackOffDoesNotTakeContextMonitor() throws Exception {
+        JitterBackOffPolicy jitter = policy(Jitter.FULL, new RecordingSleeper());
+        ExponentialRandomBackOffPolicy random = new ExponentialRandomBackOffPolicy();
+        random.setSleeper(new RecordingSleeper());
+        for(SleepingBackOffPolicy<?> policy : List.of(jitter, random)) {
+            BackOffContext context = policy.start(null);
+            Thread thread = new Thread(() -> policy.backOff(context));
+            // 其它线程持有context的monitor时，backoff也不应该被阻塞
+            synchronized(context) {
+                thread.start();
+                thread.join(5000);
+            }
+            assertThat(thread.isAlive()).as(policy.toString()).isFalse();
+        }
+    }
+
+    /**
+     * 所有客户端在0时刻同时失败，返回所有重试中，落在同一个时间窗口内的最大到达数
+     */
+    private int simulate(Jitter jitter) {
+        Map<Long, Integer> arrivals = new HashMap<>();
+        for(int client = 0; client < CLIENTS; client++) {
+            RecordingSleeper sleeper = new RecordingSleeper();
+            JitterBackOffPolicy policy = policy(jitter, sleeper);
+            BackOffContext context = policy.start(null);
+            for(int retry = 0; retry < RETRIES; retry++) {
+                policy.backOff(context);
+                arrivals.merge(sleeper.total / WINDOW, 1, Integer::sum);
+            }
+        }
+        return arrivals.values().stream().max(Integer::compare).orElse(0);
+    }
+
+    private JitterBackOffPolicy policy(Jitter jitter, RecordingSleeper sleeper) {
+        JitterBackOffPolicy policy = new JitterBackOffPolicy();
+        policy.setJitter(jitter);
+        policy.setInitialInterval(1000);
+        policy.setMultiplier(2);
+        policy.setMaxInterval(60000);
+        policy.setSleeper(sleeper);
+        return policy;
+    }
+
+    /**
+     * 不真正sleep，只累计虚拟时间
+     */
+    private static class RecordingSleeper implements Sleeper {
+        private long total;
+        private long last;
+
+        @Override
+        public void sleep(long backOffPeriod) {
+            this.last = backOffPeriod;
+            this.total += backOffPeriod;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import com.github.liyibo1110.spring.retry.RetryPolicy;
+import com.github.liyibo1110.spring.retry.policy.CompositeRetryPolicy;
+import com.github.liyibo1110.spring.retry.policy.SimpleRetryPolicy;
+import com.github.liyibo1110.spring.retry.policy.TimeoutRetryPolicy;
+import com.github.liyibo1110.spring.retry.support.RetryTemplate;
+import com.github.liyibo1110.spring.retry.support.RetryTemplateBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * 下游给出重试时间的backoff测试
+ * @author liyibo
+ * @date 2026-10-20 13:10
+ */
+public class RetryAfterBackOffPolicyTests {
+
+    @Test
+    public void testParseRetryAfter() {
+        assertThat(RetryAfterBackOffPolicy.parseRetryAfter("120")).isEqualTo(Duration.ofSeconds(120));
+        assertThat(RetryAfterBackOffPolicy.parseRetryAfter(" 0 ")).isEqualTo(Duration.ZERO);
+        String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(120));
+        assertThat(RetryAfterBackOffPolicy.parseRetryAfter(date)).isBetween(Duration.ofSeconds(118), Duration.ofSeconds(120));
+        // 已经过去的日期不用再等
+        assertThat(RetryAfterBackOffPolicy.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT")).isEqualTo(Duration.ZERO);
+        assertThat(RetryAfterBackOffPolicy.parseRetryAfter("-1")).isNull();
+        assertThat(RetryAfterBackOffPolicy.parseRetryAfter("soon")).isNull();
+        assertThat(RetryAfterBackOffPolicy.parseRetryAfter(null)).isNull();
+    }
+
+    @Test
+    public void testHintIsCappedAndFallsBackToExponential() throws Throwable {
+        List<Long> sleeps = new ArrayList<>();
+        RetryAfterBackOffPolicy policy = policy(5000, sleeps::add);
+        RetryTemplate template = new RetryTemplateBuilder().maxAttempts(5).customBackoff(policy).build();
+        String[] headers = { "2", "120", null, null };
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = template.execute(context -> {
+            int attempt = attempts.getAndIncrement();
+            if(attempt < headers.length)
+                throw new ThrottledResponse(headers[attempt]);
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        // 2秒照办，120秒被限制在maxInterval，没有Retry-After时按指数规则，且指数规则没有因为前面的提示而前进
+        assertThat(sleeps).containsExactly(2000L, 5000L, 100L, 200L);
+    }
+
+    @Test
+    public void testGivesUpOnceDeadlineHasPassed() {
+        List<Long> sleeps = new ArrayList<>();
+        RetryAfterBackOffPolicy policy = policy(60000, period -> {
+            sleeps.add(period);
+            Thread.sleep(period);
+        });
+        CompositeRetryPolicy retryPolicy = new CompositeRetryPolicy();
+        retryPolicy.setPolicies(new RetryPolicy[] { new SimpleRetryPolicy(100), new TimeoutRetryPolicy(200) });
+        RetryTemplate template = new RetryTemplateBuilder().customPolicy(retryPolicy).customBackoff(policy).build();
+        AtomicInteger attempts = new AtomicInteger();
+
+        long start = System.currentTimeMillis();
+        assertThatIllegalStateException().isThrownBy(() -> template.execute(context -> {
+            attempts.incrementAndGet();
+            throw new ThrottledResponse("10");
+        }));
+        // 10秒的提示被限制在剩余的200ms以内，到了截止时间就放弃，不会真的等10秒
+        assertThat(sleeps).isNotEmpty().allMatch(sleep -> sleep <= 200);
+        assertThat(sleeps.get(0)).isGreaterThan(100L);
+        assertThat(attempts.get()).isBetween(sleeps.size(), sleeps.size() + 1);
+        assertThat(System.currentTimeMillis() - start).isLessThan(5000);
+    }
+
+    private RetryAfterBackOffPolicy policy(long maxInterval, Sleeper sleeper) {
+        RetryAfterBackOffPolicy policy = new RetryAfterBackOffPolicy(
+                t -> t instanceof ThrottledResponse response ? RetryAfterBackOffPolicy.parseRetryAfter(response.retryAfter) : null);
+        policy.setInitialInterval(100);
+        policy.setMultiplier(2);
+        policy.setMaxInterval(maxInterval);
+        policy.setSleeper(sleeper);
+        return policy;
+    }
+
+    /**
+     * 模拟带Retry-After头的429响应
+     */
+    private static class ThrottledResponse extends IllegalStateException {
+        private final String retryAfter;
+
+        ThrottledResponse(String retryAfter) {
+            super("429 Too Many Requests");
+            this.retryAfter = retryAfter;
+        }
+    }
+}
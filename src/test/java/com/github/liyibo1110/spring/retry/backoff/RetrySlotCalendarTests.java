@@ -0,0 +1,59 @@
+package com.github.liyibo1110.spring.retry.backoff;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 重试日历测试，同一时刻大量并发预约，每个桶都不能超过容量
+ * @author liyibo
+ * @date 2026-10-19 21:00
+ */
+public class RetrySlotCalendarTests {
+
+    @Test
+    public void testReservationsAreSpreadWithinCapacity() {
+        RetrySlotCalendar calendar = new RetrySlotCalendar(10, 20, 1024);
+        long earliest = System.currentTimeMillis() + 1000;
+        Map<Long, Integer> perBucket = new ConcurrentHashMap<>();
+        IntStream.range(0, 1000).parallel().forEach(i -> {
+            long time = calendar.reserve(earliest, 1000);
+            assertThat(time).isBetween(earliest, earliest + 1000);
+            perBucket.merge(time / 10, 1, Integer::sum);
+        });
+        assertThat(perBucket.values()).allMatch(count -> count <= 20);
+        assertThat(perBucket.size()).isGreaterThanOrEqualTo(1000 / 20);
+    }
+
+    @Test
+    public void testScanStartsAtRandomBucket() {
+        RetrySlotCalendar calendar = new RetrySlotCalendar(10, 20, 1024);
+        long earliest = System.currentTimeMillis() + 1000;
+        Set<Long> buckets = new HashSet<>();
+        for(int i = 0; i < 20; i++)
+            buckets.add(calendar.reserve(earliest, 1000) / 10);
+        // 20次预约刚好能放进一个桶，但不应该全部挤在同一个桶里
+        assertThat(buckets).hasSizeGreaterThan(1);
+    }
+
+    @Test
+    public void testOverflowIsSpreadAcrossNextWindow() {
+        RetrySlotCalendar calendar = new RetrySlotCalendar(10, 1, 1024);
+        long earliest = System.currentTimeMillis() + 1000;
+        for(int i = 0; i < 11; i++)    // 占满[earliest, earliest + 100]涉及的所有桶
+            calendar.reserve(earliest, 100);
+        Set<Long> overflow = new HashSet<>();
+        for(int i = 0; i < 100; i++) {
+            long time = calendar.reserve(earliest, 100);
+            assertThat(time).isBetween(earliest + 100, earliest + 200);
+            overflow.add(time);
+        }
+        assertThat(overflow).hasSizeGreaterThan(1);
+    }
+}
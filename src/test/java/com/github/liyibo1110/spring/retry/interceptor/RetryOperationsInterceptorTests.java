@@ -0,0 +1,65 @@
+package com.github.liyibo1110.spring.retry.interceptor;
+
+import com.github.liyibo1110.spring.retry.RetryCallback;
+import com.github.liyibo1110.spring.retry.RetryContext;
+import com.github.liyibo1110.spring.retry.RetryListener;
+import com.github.liyibo1110.spring.retry.support.RetryTemplate;
+import com.github.liyibo1110.spring.retry.support.RetryTemplateBuilder;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author liyibo
+ * @date 2026-10-20 04:30
+ */
+public class RetryOperationsInterceptorTests {
+
+    @Test
+    public void testInvariantAttributesAreSetOnceAndProxyIsReleased() {
+        List<Object> argsPerAttempt = new ArrayList<>();
+        List<RetryContext> closed = new ArrayList<>();
+        RetryTemplate template = new RetryTemplateBuilder().maxAttempts(3).noBackoff().withListener(new RetryListener() {
+            @Override
+            public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+                argsPerAttempt.add(context.getAttribute(RetryOperationsInterceptor.METHOD_ARGS));
+                assertThat(context.getAttribute(RetryOperationsInterceptor.PROXY)).isNotNull();
+            }
+
+            @Override
+            public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+                closed.add(context);
+            }
+        }).build();
+        RetryOperationsInterceptor interceptor = new RetryOperationsInterceptor();
+        interceptor.setRetryOperations(template);
+        interceptor.setRecoverer((args, cause) -> "recovered " + args[0]);
+
+        ProxyFactory factory = new ProxyFactory(new Service());
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(interceptor);
+        Service service = (Service)factory.getProxy();
+
+        assertThat(service.call("x")).isEqualTo("recovered x");
+        assertThat(argsPerAttempt).hasSize(3);
+        assertThat(argsPerAttempt.get(1)).isSameAs(argsPerAttempt.get(0));
+        assertThat(argsPerAttempt.get(2)).isSameAs(argsPerAttempt.get(0));
+        RetryContext context = closed.get(0);
+        assertThat(context.getAttribute(RetryContext.NAME)).isEqualTo(Service.class.getName() + ".call");
+        assertThat(context.hasAttribute(RetryOperationsInterceptor.PROXY)).isFalse();
+    }
+
+    public static class Service {
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        public String call(String value) {
+            this.attempts.incrementAndGet();
+            throw new IllegalStateException("down");
+        }
+    }
+}
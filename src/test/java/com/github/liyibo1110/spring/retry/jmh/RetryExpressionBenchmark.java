@@ -0,0 +1,99 @@
+package com.github.liyibo1110.spring.retry.jmh;
+
+import com.github.liyibo1110.spring.retry.policy.ExpressionRetryPolicy;
+import com.github.liyibo1110.spring.retry.support.Args;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * exceptionExpression和maxAttemptsExpression在解释执行（OFF）和编译执行（MIXED，和ExpressionRetryPolicy、
+ * 注解拦截器使用的配置相同）下的计算耗时对比（需要-Pbenchmark编译）。
+ * MIXED模式在解释执行一定次数之后才编译，预热轮次足够覆盖这个阈值
+ * @author liyibo
+ * @date 2026-10-20 15:20
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RetryExpressionBenchmark {
+    private static final String EXCEPTION_EXPRESSION = "message.contains('retry')";
+
+    private static final String MAX_ATTEMPTS_EXPRESSION = "args[0] == 'vip' ? 10 : 3";
+
+    private final StandardEvaluationContext context = ExpressionRetryPolicy.createEvaluationContext(null);
+
+    private final Exception exception = new IllegalStateException("please retry later");
+
+    private final Args args = new Args(new Object[] { "vip", 42 });
+
+    private Expression interpretedException;
+
+    private Expression compiledException;
+
+    private Expression interpretedMaxAttempts;
+
+    private Expression compiledMaxAttempts;
+
+    @Setup
+    public void setUp() {
+        SpelExpressionParser interpreted = parser(SpelCompilerMode.OFF);
+        SpelExpressionParser compiled = parser(SpelCompilerMode.MIXED);
+        this.interpretedException = interpreted.parseExpression(EXCEPTION_EXPRESSION);
+        this.compiledException = compiled.parseExpression(EXCEPTION_EXPRESSION);
+        this.interpretedMaxAttempts = interpreted.parseExpression(MAX_ATTEMPTS_EXPRESSION);
+        this.compiledMaxAttempts = compiled.parseExpression(MAX_ATTEMPTS_EXPRESSION);
+    }
+
+    @Benchmark
+    public Boolean exceptionInterpreted() {
+        return this.interpretedException.getValue(this.context, this.exception, Boolean.class);
+    }
+
+    @Benchmark
+    public Boolean exceptionCompiled() {
+        return this.compiledException.getValue(this.context, this.exception, Boolean.class);
+    }
+
+    @Benchmark
+    public Integer maxAttemptsInterpreted() {
+        return this.interpretedMaxAttempts.getValue(this.context, this.args, Integer.class);
+    }
+
+    @Benchmark
+    public Integer maxAttemptsCompiled() {
+        return this.compiledMaxAttempts.getValue(this.context, this.args, Integer.class);
+    }
+
+    private static SpelExpressionParser parser(SpelCompilerMode mode) {
+        return new SpelExpressionParser(new SpelParserConfiguration(mode, RetryExpressionBenchmark.class.getClassLoader()));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RetryExpressionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
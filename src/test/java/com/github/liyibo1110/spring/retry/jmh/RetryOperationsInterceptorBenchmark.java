@@ -0,0 +1,155 @@
+package com.github.liyibo1110.spring.retry.jmh;
+
+import com.github.liyibo1110.spring.retry.RetryCallback;
+import com.github.liyibo1110.spring.retry.RetryContext;
+import com.github.liyibo1110.spring.retry.RetryOperations;
+import com.github.liyibo1110.spring.retry.interceptor.MethodInvocationRetryCallback;
+import com.github.liyibo1110.spring.retry.interceptor.RetryOperationsInterceptor;
+import com.github.liyibo1110.spring.retry.support.Args;
+import com.github.liyibo1110.spring.retry.support.RetrySynchronizationManager;
+import com.github.liyibo1110.spring.retry.support.RetryTemplate;
+import com.github.liyibo1110.spring.retry.support.RetryTemplateBuilder;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RetryOperationsInterceptor.invoke的耗时和分配对比（需要-Pbenchmark编译，结果看gc.alloc.rate.norm）：
+ * 1、baseline：改成按方法缓存InvocationPlan之前的invoke，每次调用都新建匿名callback（同时重新计算label），
+ * 每次尝试都重新计算label、新建Args并写一遍所有attribute。
+ * 2、current：当前的RetryOperationsInterceptor。
+ * 两者都通过同一个RetryTemplate和同样的JDK代理调用，failures是每次调用中先失败的尝试次数（失败用预先创建的异常，不计入分配）
+ * @author liyibo
+ * @date 2026-10-20 15:00
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RetryOperationsInterceptorBenchmark {
+
+    @Param({ "0", "2" })
+    private int failures;
+
+    private Service baseline;
+
+    private Service current;
+
+    @Setup
+    public void setUp() {
+        RetryTemplate template = new RetryTemplateBuilder().maxAttempts(3).noBackoff().build();
+        this.baseline = proxy(new BaselineRetryOperationsInterceptor(template));
+        RetryOperationsInterceptor interceptor = new RetryOperationsInterceptor();
+        interceptor.setRetryOperations(template);
+        this.current = proxy(interceptor);
+    }
+
+    @Benchmark
+    public String baseline() {
+        return this.baseline.call("payload");
+    }
+
+    @Benchmark
+    public String current() {
+        return this.current.call("payload");
+    }
+
+    private Service proxy(MethodInterceptor interceptor) {
+        ProxyFactory factory = new ProxyFactory(new FlakyService(this.failures));
+        factory.addInterface(Service.class);
+        factory.addAdvice(interceptor);
+        return (Service)factory.getProxy();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RetryOperationsInterceptorBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    public interface Service {
+        String call(String value);
+    }
+
+    /**
+     * 每次调用先失败failures次，再成功
+     */
+    private static class FlakyService implements Service {
+        private static final IllegalStateException FAILURE = new IllegalStateException("down");
+
+        private final int failures;
+        private int attempts;
+
+        FlakyService(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public String call(String value) {
+            if(this.attempts++ < this.failures)
+                throw FAILURE;
+            this.attempts = 0;
+            return value;
+        }
+    }
+
+    /**
+     * 按方法缓存InvocationPlan之前的同步invoke路径，只保留基准测试用到的部分（没有recoverer和异步返回值）
+     */
+    private static class BaselineRetryOperationsInterceptor implements MethodInterceptor {
+        private final RetryOperations retryOperations;
+
+        BaselineRetryOperationsInterceptor(RetryOperations retryOperations) {
+            this.retryOperations = retryOperations;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            RetryCallback<Object, Throwable> retryCallback = new MethodInvocationRetryCallback<>(invocation, null) {
+                @Override
+                public Object doWithRetry(RetryContext context) throws Exception {
+                    context.setAttribute(RetryContext.NAME, this.label);
+                    Args args = new Args(invocation.getArguments());
+                    context.setAttribute(RetryOperationsInterceptor.METHOD, invocation.getMethod());
+                    context.setAttribute(RetryOperationsInterceptor.METHOD_ARGS, args);
+                    context.setAttribute(RetryOperationsInterceptor.PROXY, ((ProxyMethodInvocation)this.invocation).getProxy());
+                    try {
+                        return ((ProxyMethodInvocation)this.invocation).invocableClone().proceed();
+                    } catch (Exception | Error e) {
+                        throw e;
+                    } catch (Throwable e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            };
+            try {
+                return this.retryOperations.execute(retryCallback);
+            } finally {
+                RetryContext context = RetrySynchronizationManager.getContext();
+                if(context != null)
+                    context.removeAttribute("__proxy__");
+            }
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.github.liyibo1110.spring.retry.policy;
+
+import com.github.liyibo1110.spring.classify.BinaryExceptionClassifier;
+import com.github.liyibo1110.spring.retry.RetryContext;
+import com.github.liyibo1110.spring.retry.RetryState;
+import com.github.liyibo1110.spring.retry.support.CircuitBreakerRegistry;
+import com.github.liyibo1110.spring.retry.support.DefaultRetryState;
+import com.github.liyibo1110.spring.retry.support.RetryTemplate;
+import com.github.liyibo1110.spring.retry.support.RetryTemplateBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * 熔断器policy测试
+ * @author liyibo
+ * @date 2026-10-19 10:12
+ */
+public class CircuitBreakerRetryPolicyTests {
+
+    /**
+     * 调用本身都成功，但慢调用比例超标后，熔断器也要开启
+     */
+    @Test
+    public void testSlowCallsOpenCircuit() throws Throwable {
+        CircuitBreakerRetryPolicy breaker = new CircuitBreakerRetryPolicy(new SimpleRetryPolicy(3));
+        breaker.setSlowCallDurationThreshold(20);
+        breaker.setSlowCallRateThreshold(0.5);
+        breaker.setSlowCallMinimumCalls(2);
+        RetryTemplate template = new RetryTemplate();
+        template.setRetryPolicy(breaker);
+        RetryState state = new DefaultRetryState("slow", new BinaryExceptionClassifier(false));
+        AtomicInteger calls = new AtomicInteger();
+
+        for(int i = 0; i < 2; i++) {
+            String result = template.execute(context -> {
+                calls.incrementAndGet();
+                Thread.sleep(30);
+                return "ok";
+            }, context -> "recovered", state);
+            assertThat(result).isEqualTo("ok");
+        }
+
+        // 第3次不会再调用下游，直接走recovery
+        String result = template.execute(context -> {
+            calls.incrementAndGet();
+            return "ok";
+        }, context -> {
+            assertThat(context.getAttribute(CircuitBreakerRetryPolicy.CIRCUIT_OPEN)).isEqualTo(true);
+            assertThat(context.getAttribute(CircuitBreakerRetryPolicy.CIRCUIT_SLOW_CALL_RATE)).isEqualTo(1.0);
+            return "recovered";
+        }, state);
+        assertThat(result).isEqualTo("recovered");
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    /**
+     * 从开启状态的快照恢复后，不需要再经历失败，直接熔断
+     */
+    @Test
+    public void testRestoredOpenCircuitShedsLoad() throws Throwable {
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry();
+        long now = System.currentTimeMillis();
+        registry.restore(Map.of("downstream", new CircuitBreakerSnapshot(true, now, 0, 0, 0, now)));
+        RetryTemplate template = new RetryTemplateBuilder().circuitBreaker("downstream")
+                .circuitBreakerRegistry(registry).build();
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = template.execute(context -> {
+            calls.incrementAndGet();
+            return "ok";
+        }, context -> "recovered");
+        assertThat(result).isEqualTo("recovered");
+        assertThat(calls.get()).isEqualTo(0);
+        assertThat(registry.isOpen("downstream")).isTrue();
+    }
+
+    /**
+     * 按key区分的熔断器，某个key开启熔断不影响其它key
+     */
+    @Test
+    public void testKeysAreIsolated() throws Throwable {
+        LruRetryContextCache cache = new LruRetryContextCache(16);
+        RetryTemplate template = perKeyTemplate(cache);
+        Map<String, AtomicInteger> calls = new HashMap<>();
+
+        for(int i = 0; i < 3; i++)
+            assertThat(call(template, "a", calls, false)).isEqualTo("recovered");
+        assertThat(calls.get("a").get()).isEqualTo(2);
+        assertThat(cache.get("a").getAttribute(CircuitBreakerRetryPolicy.CIRCUIT_OPEN)).isEqualTo(true);
+
+        assertThat(call(template, "b", calls, true)).isEqualTo("ok");
+        assertThat(calls.get("b").get()).isEqualTo(1);
+        assertThat(cache.get("b").getAttribute(CircuitBreakerRetryPolicy.CIRCUIT_OPEN)).isEqualTo(false);
+    }
+
+    /**
+     * key的数量超过maxKeys之后，淘汰最久未被访问的熔断器，被淘汰的熔断器下次访问时以关闭状态重新创建
+     */
+    @Test
+    public void testLeastRecentlyUsedKeyIsEvicted() throws Throwable {
+        LruRetryContextCache cache = new LruRetryContextCache(2);
+        RetryTemplate template = perKeyTemplate(cache);
+        Map<String, AtomicInteger> calls = new HashMap<>();
+
+        call(template, "a", calls, false);
+        call(template, "a", calls, false);
+        call(template, "a", calls, false);
+        assertThat(calls.get("a").get()).isEqualTo(2);  // 已经熔断
+
+        call(template, "b", calls, true);
+        call(template, "c", calls, true);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.containsKey("a")).isFalse();
+
+        // a的开启状态已经被淘汰，会再次调用下游
+        call(template, "a", calls, false);
+        assertThat(calls.get("a").get()).isEqualTo(3);
+        assertThat(cache.containsKey("b")).isFalse();
+    }
+
+    /**
+     * 容量为0的话每次put都会立刻淘汰，熔断状态永远记不住，直接拒绝
+     */
+    @Test
+    public void testLruCacheRejectsNonPositiveCapacity() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new LruRetryContextCache(0));
+        assertThatIllegalArgumentException().isThrownBy(() -> new LruRetryContextCache(-1));
+    }
+
+    /**
+     * 熔断关闭后的爬坡期内，探测调用之后只按策略给出的比例放行
+     */
+    @Test
+    public void testRampUpAdmitsFractionDuringWindow() {
+        CircuitBreakerRetryPolicy linear = rampUpPolicy(3600000, RampUpStrategy.LINEAR);
+        RetryContext context = closedAfterRestore(linear);
+        assertThat(linear.canRetry(context)).isTrue();  // 触发关闭的探测调用
+        // 线性爬坡刚开始，放行比例接近0
+        assertThat(admitted(linear, context, 1000)).isLessThan(5);
+
+        CircuitBreakerRetryPolicy exponential = rampUpPolicy(3600000, RampUpStrategy.EXPONENTIAL);
+        context = closedAfterRestore(exponential);
+        assertThat(exponential.canRetry(context)).isTrue();
+        // 指数爬坡从1/64开始
+        assertThat(admitted(exponential, context, 6400)).isBetween(40, 200);
+    }
+
+    /**
+     * 爬坡窗口结束后恢复全量放行
+     */
+    @Test
+    public void testRampUpAdmitsEverythingAfterWindow() throws Exception {
+        CircuitBreakerRetryPolicy policy = rampUpPolicy(50, RampUpStrategy.LINEAR);
+        RetryContext context = closedAfterRestore(policy);
+        assertThat(policy.canRetry(context)).isTrue();
+        Thread.sleep(80);
+        assertThat(admitted(policy, context, 1000)).isEqualTo(1000);
+        assertThat(context.getAttribute(CircuitBreakerRetryPolicy.CIRCUIT_OPEN)).isEqualTo(false);
+    }
+
+    /**
+     * RetryTemplate在一次失败之后还会再调用1次canRetry，这次检查不能重新抽签，也不能计为短路
+     */
+    @Test
+    public void testCheckAfterFailureDoesNotRedrawAdmission() {
+        CircuitBreakerRetryPolicy policy = rampUpPolicy(3600000, RampUpStrategy.LINEAR);
+        RetryContext context = closedAfterRestore(policy);
+        assertThat(policy.canRetry(context)).isTrue();  // 探测调用被放行
+        for(int i = 0; i < 2; i++) {    // SimpleRetryPolicy(3)，2次失败都还在允许范围内
+            policy.registerThrowable(context, new IllegalStateException("down"));
+            // 线性爬坡刚开始，重新抽签几乎一定被拒绝
+            assertThat(policy.canRetry(context)).isTrue();
+            assertThat(context.getAttribute(CircuitBreakerRetryPolicy.CIRCUIT_SHORT_COUNT)).isEqualTo(0);
+        }
+        // 下一次执行照常抽签，被拒绝的才计为短路
+        assertThat(admitted(policy, context, 100)).isLessThan(5);
+        assertThat((Integer)context.getAttribute(CircuitBreakerRetryPolicy.CIRCUIT_SHORT_COUNT)).isGreaterThan(90);
+    }
+
+    /**
+     * 失败开启了熔断的那次调用是被执行过的，不算短路
+     */
+    @Test
+    public void testFailureThatOpensCircuitIsNotShortCircuited() throws Throwable {
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry();
+        RetryTemplate template = new RetryTemplateBuilder().maxAttempts(1).circuitBreaker("downstream")
+                .circuitBreakerRegistry(registry).build();
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = template.execute(context -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("down");
+        }, context -> "recovered");
+        assertThat(result).isEqualTo("recovered");
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(registry.isOpen("downstream")).isTrue();
+        assertThat(registry.snapshot().get("downstream").shortCircuitCount()).isZero();
+
+        template.execute(context -> calls.incrementAndGet(), context -> 0);
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(registry.snapshot().get("downstream").shortCircuitCount()).isEqualTo(1);
+    }
+
+    private CircuitBreakerRetryPolicy rampUpPolicy(long window, RampUpStrategy strategy) {
+        CircuitBreakerRetryPolicy policy = new CircuitBreakerRetryPolicy(new SimpleRetryPolicy(3));
+        policy.setRampUpWindow(window);
+        policy.setRampUpStrategy(strategy);
+        return policy;
+    }
+
+    /**
+     * 从熔断期已经结束的开启快照恢复，下一次canRetry就会关闭熔断并开始爬坡
+     */
+    private RetryContext closedAfterRestore(CircuitBreakerRetryPolicy policy) {
+        long now = System.currentTimeMillis();
+        return policy.restore(null, new CircuitBreakerSnapshot(true, now - 30000, 0, 0, 0, now));
+    }
+
+    private int admitted(CircuitBreakerRetryPolicy policy, RetryContext context, int calls) {
+        int admitted = 0;
+        for(int i = 0; i < calls; i++) {
+            if(policy.canRetry(context))
+                admitted++;
+        }
+        return admitted;
+    }
+
+    private RetryTemplate perKeyTemplate(RetryContextCache cache) {
+        RetryTemplate template = new RetryTemplate();
+        template.setRetryPolicy(new CircuitBreakerRetryPolicy(new SimpleRetryPolicy(2)));
+        template.setRetryContextCache(cache);
+        return template;
+    }
+
+    private String call(RetryTemplate template, String key, Map<String, AtomicInteger> calls, boolean succeed) throws Throwable {
+        RetryState state = new DefaultRetryState(key, new BinaryExceptionClassifier(false));
+        return template.execute(context -> {
+            calls.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+            if(!succeed)
+                throw new IllegalStateException("down");
+            return "ok";
+        }, context -> "recovered", state);
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.liyibo1110.spring.retry.policy;
+
+import com.github.liyibo1110.spring.retry.RetryContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 编译模式下的表达式重试策略测试
+ * @author liyibo
+ * @date 2026-10-20 03:30
+ */
+public class ExpressionRetryPolicyTests {
+
+    @Test
+    public void testExpressionIsCompiledAndStaysCorrect() throws Exception {
+        ExpressionRetryPolicy policy = new ExpressionRetryPolicy(Integer.MAX_VALUE, Collections.emptyMap(), false,
+                "message.contains('retry')", true);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for(int i = 0; i < 1000; i++) {
+                final int n = i;
+                results.add(executor.submit(() -> {
+                    RetryContext context = policy.open(null);
+                    Throwable error = n % 2 == 0 ? new IllegalStateException("please retry " + n)
+                            : new IllegalArgumentException("give up " + n);
+                    policy.registerThrowable(context, error);
+                    return policy.canRetry(context) == (n % 2 == 0);
+                }));
+            }
+            for(Future<Boolean> result : results)
+                assertThat(result.get()).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+        Object expression = ReflectionTestUtils.getField(policy, "expression");
+        assertThat(ReflectionTestUtils.getField(expression, "compiledAst")).isNotNull();
+    }
+}
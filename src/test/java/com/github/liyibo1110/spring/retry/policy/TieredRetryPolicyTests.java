@@ -0,0 +1,91 @@
+package com.github.liyibo1110.spring.retry.policy;
+
+import com.github.liyibo1110.spring.retry.DeferredRetryException;
+import com.github.liyibo1110.spring.retry.backoff.BackOffSchedule;
+import com.github.liyibo1110.spring.retry.backoff.ExponentialBackOffPolicy;
+import com.github.liyibo1110.spring.retry.backoff.FixedBackOffPolicy;
+import com.github.liyibo1110.spring.retry.backoff.ScheduledBackOffPolicy;
+import com.github.liyibo1110.spring.retry.support.DeferredRetryHandler;
+import com.github.liyibo1110.spring.retry.support.RetryTemplate;
+import com.github.liyibo1110.spring.retry.support.RetryTemplateBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 分级升级重试的测试
+ * @author liyibo
+ * @date 2026-10-20 01:20
+ */
+public class TieredRetryPolicyTests {
+
+    @Test
+    public void testTiersThenDefer() {
+        List<Long> sleeps = new ArrayList<>();
+        TieredRetryPolicy tiers = new TieredRetryPolicy().tier(3, fixed(10, sleeps)).tier(2, fixed(1000, sleeps)).thenDefer();
+        RetryTemplate template = new RetryTemplateBuilder().tieredRetry(tiers).build();
+        AtomicInteger attempts = new AtomicInteger();
+        assertThatThrownBy(() -> template.execute(context -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("down");
+        })).isInstanceOf(DeferredRetryException.class).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(attempts.get()).isEqualTo(6);
+        assertThat(sleeps).containsExactly(10L, 10L, 10L, 1000L, 1000L);
+    }
+
+    @Test
+    public void testExponentialTiersStartFromTheirFirstInterval() {
+        List<Long> sleeps = new ArrayList<>();
+        ExponentialBackOffPolicy exponential = new ExponentialBackOffPolicy();
+        exponential.setInitialInterval(100);
+        exponential.setMultiplier(2);
+        ScheduledBackOffPolicy scheduled = new ScheduledBackOffPolicy(BackOffSchedule.exponential(1000, 2, 60000));
+        TieredRetryPolicy tiers = new TieredRetryPolicy().tier(2, fixed(10, sleeps))
+                .tier(3, exponential.withSleeper(sleeps::add)).tier(2, scheduled.withSleeper(sleeps::add));
+        RetryTemplate template = new RetryTemplateBuilder().tieredRetry(tiers).build();
+        AtomicInteger attempts = new AtomicInteger();
+        assertThatThrownBy(() -> template.execute(context -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("down");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(attempts.get()).isEqualTo(8);
+        assertThat(sleeps).containsExactly(10L, 10L, 100L, 200L, 400L, 1000L, 2000L);
+    }
+
+    @Test
+    public void testDeferredRetryIsResubmitted() throws Exception {
+        TieredRetryPolicy tiers = new TieredRetryPolicy().tier(1, fixed(1, new ArrayList<>())).thenDefer();
+        RetryTemplate template = new RetryTemplateBuilder().tieredRetry(tiers).build();
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            DeferredRetryHandler handler = new DeferredRetryHandler(executor);
+            handler.setDelay(10);
+            AtomicInteger attempts = new AtomicInteger();
+            CompletableFuture<String> future = handler.execute(template, context -> {
+                if(attempts.incrementAndGet() < 5)
+                    throw new IllegalStateException("down");
+                return "ok";
+            });
+            assertThat(future.isDone()).isFalse();  // 调用线程已经被释放
+            assertThat(future.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+            assertThat(attempts.get()).isEqualTo(5);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static FixedBackOffPolicy fixed(long period, List<Long> sleeps) {
+        FixedBackOffPolicy policy = new FixedBackOffPolicy();
+        policy.setBackOffPeriod(period);
+        return policy.withSleeper(sleeps::add);
+    }
+}
@@ -0,0 +1,161 @@
+package com.github.liyibo1110.spring.retry.support;
+
+import com.github.liyibo1110.spring.retry.policy.CircuitBreakerSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 熔断器状态持久化测试，保存之后在新的registry中恢复，过期、格式错误的条目被忽略，写入先写临时文件再原子替换
+ * @author liyibo
+ * @date 2026-10-20 14:40
+ */
+public class CircuitBreakerStatePersisterTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testSaveAndRestoreRoundTrip() throws IOException {
+        Path file = this.dir.resolve("state/breakers.properties");
+        long now = System.currentTimeMillis();
+        CircuitBreakerRegistry before = new CircuitBreakerRegistry();
+        before.restore(Map.of("downstream", new CircuitBreakerSnapshot(true, now - 1000, 7, 2, 3, now)));
+        before.circuitBreaker("downstream");
+        before.circuitBreaker("healthy");   // 还没有状态的熔断器不写入文件
+        new CircuitBreakerStatePersister(before, file).save();
+
+        Properties properties = load(file);
+        assertThat(properties.getProperty("circuit.downstream.open")).isEqualTo("true");
+        assertThat(properties.getProperty("circuit.downstream.callCount")).isEqualTo("7");
+        assertThat(properties.stringPropertyNames()).noneMatch(name -> name.startsWith("circuit.healthy."));
+
+        CircuitBreakerRegistry after = new CircuitBreakerRegistry();
+        new CircuitBreakerStatePersister(after, file).afterPropertiesSet();
+        after.circuitBreaker("downstream");
+        assertThat(after.isOpen("downstream")).isTrue();
+        CircuitBreakerSnapshot snapshot = after.snapshot().get("downstream");
+        assertThat(snapshot.openedAt()).isEqualTo(now - 1000);
+        assertThat(snapshot.callCount()).isEqualTo(7);
+        assertThat(snapshot.slowCallCount()).isEqualTo(2);
+        assertThat(snapshot.shortCircuitCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testSnapshotsOlderThanMaxAgeAreDropped() throws IOException {
+        Path file = this.dir.resolve("breakers.properties");
+        long now = System.currentTimeMillis();
+        Properties properties = new Properties();
+        entry(properties, "stale", now - 120000);
+        entry(properties, "fresh", now - 1000);
+        store(properties, file);
+
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry();
+        CircuitBreakerStatePersister persister = new CircuitBreakerStatePersister(registry, file);
+        persister.setMaxAge(60000);
+        persister.restore();
+        registry.circuitBreaker("stale");
+        registry.circuitBreaker("fresh");
+        assertThat(registry.isOpen("stale")).isFalse();
+        assertThat(registry.isOpen("fresh")).isTrue();
+    }
+
+    @Test
+    public void testMalformedAndPartialEntriesAreSkipped() throws IOException {
+        Path file = this.dir.resolve("breakers.properties");
+        long now = System.currentTimeMillis();
+        Properties properties = new Properties();
+        entry(properties, "good", now);
+        entry(properties, "malformed", now);
+        properties.setProperty("circuit.malformed.openedAt", "yesterday");
+        properties.setProperty("circuit.partial.open", "true");
+        properties.setProperty("circuit.partial.takenAt", String.valueOf(now));  // 缺少openedAt
+        properties.setProperty("unrelated.takenAt", "x");
+        store(properties, file);
+
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry();
+        new CircuitBreakerStatePersister(registry, file).restore();
+        for(String name : new String[] { "good", "malformed", "partial" })
+            registry.circuitBreaker(name);
+        assertThat(registry.isOpen("good")).isTrue();
+        assertThat(registry.isOpen("malformed")).isFalse();
+        assertThat(registry.isOpen("partial")).isFalse();
+    }
+
+    @Test
+    public void testMissingOrUnreadableFileStartsFresh() {
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry();
+        new CircuitBreakerStatePersister(registry, this.dir.resolve("missing.properties")).restore();
+        registry.circuitBreaker("downstream");
+        assertThat(registry.snapshot()).isEmpty();
+    }
+
+    @Test
+    public void testSaveReplacesFileThroughTempFile() throws IOException {
+        Path file = this.dir.resolve("breakers.properties");
+        Files.writeString(file, "circuit.old.takenAt=1\n");
+        long now = System.currentTimeMillis();
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry();
+        registry.restore(Map.of("downstream", new CircuitBreakerSnapshot(true, now, 0, 0, 0, now)));
+        registry.circuitBreaker("downstream");
+
+        new CircuitBreakerStatePersister(registry, file).destroy();
+        // 整个文件被替换，而不是在原文件上追加或覆盖一部分，也没有留下临时文件
+        assertThat(load(file).stringPropertyNames()).noneMatch(name -> name.startsWith("circuit.old."))
+                .contains("circuit.downstream.open");
+        assertThat(files()).containsExactly(file);
+    }
+
+    @Test
+    public void testFailedReplaceKeepsTargetAndLeavesNoTempFile() throws IOException {
+        // 目标是一个非空目录，替换一定失败
+        Path file = Files.createDirectory(this.dir.resolve("breakers.properties"));
+        Path child = Files.writeString(file.resolve("keep"), "keep");
+        long now = System.currentTimeMillis();
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry();
+        registry.restore(Map.of("downstream", new CircuitBreakerSnapshot(true, now, 0, 0, 0, now)));
+        registry.circuitBreaker("downstream");
+
+        new CircuitBreakerStatePersister(registry, file).save();
+        assertThat(Files.readString(child)).isEqualTo("keep");
+        assertThat(files()).containsExactly(file);
+    }
+
+    private List<Path> files() throws IOException {
+        try(Stream<Path> files = Files.list(this.dir)) {
+            return files.toList();
+        }
+    }
+
+    private static void entry(Properties properties, String name, long takenAt) {
+        String prefix = "circuit." + name + ".";
+        properties.setProperty(prefix + "open", "true");
+        properties.setProperty(prefix + "openedAt", String.valueOf(takenAt));
+        properties.setProperty(prefix + "takenAt", String.valueOf(takenAt));
+    }
+
+    private static Properties load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try(InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    private static void store(Properties properties, Path file) throws IOException {
+        try(OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, null);
+        }
+    }
+}
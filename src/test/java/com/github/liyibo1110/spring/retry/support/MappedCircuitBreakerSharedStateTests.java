@@ -0,0 +1,81 @@
+package com.github.liyibo1110.spring.retry.support;
+
+import com.github.liyibo1110.spring.retry.policy.CircuitBreakerSharedState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 内存映射文件共享熔断状态测试，两个映射了同一文件的实例模拟同一台机器上的两个进程
+ * @author liyibo
+ * @date 2026-10-19 16:40
+ */
+public class MappedCircuitBreakerSharedStateTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testCircuitOpenedInOneProcessShortCircuitsOthers() throws Throwable {
+        Path file = this.dir.resolve("circuits.dat");
+        try(MappedCircuitBreakerSharedState first = new MappedCircuitBreakerSharedState(file, 16);
+            MappedCircuitBreakerSharedState second = new MappedCircuitBreakerSharedState(file, 64)) {
+            RetryTemplate one = template(first);
+            RetryTemplate two = template(second);
+            AtomicInteger calls = new AtomicInteger();
+
+            for(int i = 0; i < 3; i++) {
+                one.execute(context -> {
+                    calls.incrementAndGet();
+                    throw new IllegalStateException("down");
+                }, context -> "recovered");
+            }
+            assertThat(calls.get()).isEqualTo(2);
+            assertThat(second.getOpenedAt("downstream")).isPositive();
+
+            // 另一个"进程"没有经历任何失败，也直接熔断
+            String result = two.execute(context -> {
+                calls.incrementAndGet();
+                return "ok";
+            }, context -> "recovered");
+            assertThat(result).isEqualTo("recovered");
+            assertThat(calls.get()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void testHandleIsBoundToItsSlot() throws Exception {
+        Path file = this.dir.resolve("circuits.dat");
+        try(MappedCircuitBreakerSharedState first = new MappedCircuitBreakerSharedState(file, 2);
+            MappedCircuitBreakerSharedState second = new MappedCircuitBreakerSharedState(file)) {
+            CircuitBreakerSharedState.Handle handle = first.handle("downstream");
+            CircuitBreakerSharedState.Handle other = second.handle("downstream");
+            handle.publishOpen(1000);
+            assertThat(other.getOpenedAt()).isEqualTo(1000);
+            assertThat(second.getOpenedAt("downstream")).isEqualTo(1000);
+            // 只有发布开启的那个时间才能关闭
+            other.publishClosed(999);
+            assertThat(handle.getOpenedAt()).isEqualTo(1000);
+            other.publishClosed(1000);
+            assertThat(handle.getOpenedAt()).isZero();
+
+            // slot用完之后的句柄不共享，但也不会失败
+            first.handle("other");
+            CircuitBreakerSharedState.Handle overflow = first.handle("third");
+            overflow.publishOpen(1000);
+            assertThat(overflow.getOpenedAt()).isZero();
+            assertThat(second.getOpenedAt("third")).isZero();
+        }
+    }
+
+    private RetryTemplate template(MappedCircuitBreakerSharedState sharedState) {
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry();
+        registry.setSharedState(sharedState);
+        return new RetryTemplateBuilder().maxAttempts(2).circuitBreaker("downstream")
+                .circuitBreakerRegistry(registry).build();
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.liyibo1110.spring.retry.support;
+
+import com.github.liyibo1110.spring.retry.RetryCallback;
+import com.github.liyibo1110.spring.retry.RetryContext;
+import com.github.liyibo1110.spring.retry.RetryListener;
+import com.github.liyibo1110.spring.retry.ThrottledException;
+import com.github.liyibo1110.spring.retry.backoff.BackOffInterruptedException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * 暂停闸门测试，闸门关闭时HOLD等待（通过注入的Sleeper，不真正sleep）、FAIL直接失败，两者都不算一次失败的尝试
+ * @author liyibo
+ * @date 2026-10-20 12:10
+ */
+public class ThrottleGateTests {
+
+    @Test
+    public void testHoldWaitsForGateWithoutCountingAnAttempt() throws Throwable {
+        ThrottleGate gate = new ThrottleGate("downstream");
+        gate.setMode(ThrottleGate.Mode.HOLD);
+        gate.setExtractor(t -> Duration.ofSeconds(10));
+        List<Long> sleeps = new ArrayList<>();
+        gate.setSleeper(period -> { // 虚拟时间：等待结束时闸门已经打开
+            sleeps.add(period);
+            gate.open();
+        });
+        ErrorCounter errors = new ErrorCounter();
+        RetryTemplate template = new RetryTemplateBuilder().maxAttempts(3).noBackoff().throttleGate(gate)
+                .withListener(errors).build();
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = template.execute(context -> {
+            // 第1次失败关闭了闸门，第2次尝试要先等闸门打开
+            if(calls.incrementAndGet() == 1)
+                throw new IllegalStateException("overloaded");
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(sleeps).hasSize(1);
+        assertThat(sleeps.get(0)).isBetween(1L, 10000L);
+        assertThat(errors.count.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFailThrowsBeforeTheAttempt() {
+        ThrottleGate gate = new ThrottleGate("downstream");
+        gate.close(Duration.ofSeconds(10));
+        ErrorCounter errors = new ErrorCounter();
+        RetryTemplate template = new RetryTemplateBuilder().maxAttempts(3).noBackoff().throttleGate(gate)
+                .withListener(errors).build();
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatExceptionOfType(ThrottledException.class)
+                .isThrownBy(() -> template.execute(context -> calls.incrementAndGet(), context -> -1))
+                .satisfies(e -> assertThat(e.getRetryAfter()).isPositive());
+        // 没有调用下游，也没有经过retry policy和recovery
+        assertThat(calls.get()).isZero();
+        assertThat(errors.count.get()).isZero();
+        assertThat(errors.closedWith).isInstanceOf(ThrottledException.class);
+    }
+
+    @Test
+    public void testInterruptedHoldIsNotAnAttemptFailure() {
+        ThrottleGate gate = new ThrottleGate("downstream");
+        gate.setMode(ThrottleGate.Mode.HOLD);
+        gate.setSleeper(period -> {
+            throw new InterruptedException();
+        });
+        gate.close(Duration.ofSeconds(10));
+        ErrorCounter errors = new ErrorCounter();
+        RetryTemplate template = new RetryTemplateBuilder().maxAttempts(3).noBackoff().throttleGate(gate)
+                .withListener(errors).build();
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatExceptionOfType(BackOffInterruptedException.class)
+                .isThrownBy(() -> template.execute(context -> calls.incrementAndGet()));
+        assertThat(Thread.interrupted()).isTrue();
+        assertThat(calls.get()).isZero();
+        assertThat(errors.count.get()).isZero();
+    }
+
+    @Test
+    public void testAsyncHoldIsScheduledInsteadOfSleeping() throws Exception {
+        ThrottleGate gate = new ThrottleGate("downstream");
+        gate.setMode(ThrottleGate.Mode.HOLD);
+        List<Long> sleeps = new ArrayList<>();
+        gate.setSleeper(sleeps::add);
+        gate.close(Duration.ofMillis(200));
+        RetryTemplate template = new RetryTemplateBuilder().maxAttempts(3).noBackoff().throttleGate(gate).build();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            AtomicInteger calls = new AtomicInteger();
+            long start = System.currentTimeMillis();
+            CompletableFuture<String> result = template.executeAsync(
+                    context -> CompletableFuture.completedFuture("ok-" + calls.incrementAndGet()), null, scheduler);
+            // 调用线程没有等待闸门，尝试被延迟到闸门打开之后
+            assertThat(result).isNotDone();
+            assertThat(calls.get()).isZero();
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("ok-1");
+            assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(150);
+            assertThat(sleeps).isEmpty();
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static class ErrorCounter implements RetryListener {
+        private final AtomicInteger count = new AtomicInteger();
+        private Throwable closedWith;
+
+        @Override
+        public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+            this.count.incrementAndGet();
+        }
+
+        @Override
+        public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+            this.closedWith = throwable;
+        }
+    }
+}